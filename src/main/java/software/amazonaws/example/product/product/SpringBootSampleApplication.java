@@ -6,10 +6,13 @@ package software.amazonaws.example.product.product;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties(AzureConfigurationProperties.class)
+@EnableConfigurationProperties({AzureConfigurationProperties.class, ProductConfigurationProperties.class})
+@EnableScheduling
 public class SpringBootSampleApplication {
 
   public static void main(String[] args) {
@@ -0,0 +1,125 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter with 4-bit counters instead of bits, so that elements can be removed.
+ * Sixteen counters are packed per long and updated with compare-and-set, so lookups and updates
+ * never block. A counter that reaches 15 sticks there: it is never decremented again, which can only
+ * cause false positives, never false negatives.
+ * Elements are given as two 64-bit hashes, combined by double hashing into the filter's k indexes.
+ */
+final class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long MAX_COUNT = 15;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Sizes the filter to hold the given number of elements at the given false positive rate.
+     */
+    CountingBloomFilter(long capacity, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long optimal = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.counters = Math.max(COUNTERS_PER_WORD, optimal);
+        this.hashes = Math.max(1, (int) Math.round((double) counters / capacity * ln2));
+        this.capacity = capacity;
+        this.words = new AtomicLongArray(Math.toIntExact((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        for (int i = 0; i < hashes; i++) {
+            if (counter(index(hash1, hash2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(long hash1, long hash2) {
+        for (int i = 0; i < hashes; i++) {
+            update(index(hash1, hash2, i), 1);
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Removes an element. Must only be called for an element that was added,
+     * otherwise it decrements counters of other elements and causes false negatives.
+     */
+    void remove(long hash1, long hash2) {
+        for (int i = 0; i < hashes; i++) {
+            update(index(hash1, hash2, i), -1);
+        }
+        count.decrementAndGet();
+    }
+
+    /**
+     * Whether the filter holds as many elements as it was sized for.
+     */
+    boolean isFull() {
+        return count.get() >= capacity;
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long sizeInBytes() {
+        return words.length() * (long) Long.BYTES;
+    }
+
+    private long index(long hash1, long hash2, int i) {
+        return Math.floorMod(hash1 + i * hash2, counters);
+    }
+
+    private long counter(long index) {
+        long word = words.get((int) (index / COUNTERS_PER_WORD));
+        return (word >>> shift(index)) & MAX_COUNT;
+    }
+
+    private void update(long index, int delta) {
+        int slot = (int) (index / COUNTERS_PER_WORD);
+        int shift = shift(index);
+        while (true) {
+            long word = words.get(slot);
+            long value = (word >>> shift) & MAX_COUNT;
+            if (value == MAX_COUNT || (delta < 0 && value == 0)) {
+                return;
+            }
+            if (words.compareAndSet(slot, word, word + ((long) delta << shift))) {
+                return;
+            }
+        }
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    /**
+     * 64-bit hash of a string (FNV-1a over its chars, then the MurmurHash3 finalizer).
+     */
+    static long hash(String value, long seed) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,148 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * ProductDao decorator that answers reads of product ids the {@link ProductIdFilter} knows do not exist
+ * with an empty result instead of a database read, which for Cosmos DB is a 404 that still costs
+ * request units. Writes add the id to the filter before reaching the backend, so a product is never
+ * reported absent while its write is in flight; deletes record it as absent once they succeeded. Reads carrying a session token always go to the backend,
+ * and a product they find that the filter did not know, e.g. written by another replica, is added.
+ */
+public class NegativeLookupProductDao implements ProductDao {
+
+    private final ProductDao delegate;
+    private final ProductIdFilter filter;
+
+    private final Counter absent;
+    private final Counter passed;
+    private final Counter falsePositives;
+
+    public NegativeLookupProductDao(ProductDao delegate, ProductIdFilter filter, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.filter = filter;
+        this.absent = lookups(meterRegistry, "absent");
+        this.passed = lookups(meterRegistry, "maybe");
+        this.falsePositives = Counter.builder("product.cache.negative.false-positives")
+            .description("Reads the existence filter let through for products that did not exist")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        boolean known = filter.mightContain(id);
+        if (SessionTokenContext.getRequestToken() == null) {
+            if (!known) {
+                absent.increment();
+                return Optional.empty();
+            }
+            passed.increment();
+        }
+
+        Optional<Product> product = delegate.getProduct(id);
+        if (product.isEmpty() && known) {
+            falsePositives.increment();
+        } else if (product.isPresent() && !known) {
+            filter.add(id);
+        }
+        return product;
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        boolean checked = SessionTokenContext.getRequestToken() == null;
+        List<String> reads = new ArrayList<>(ids.size());
+        Set<String> unknown = new HashSet<>();
+        for (String id : ids) {
+            if (filter.mightContain(id)) {
+                if (checked) {
+                    passed.increment();
+                }
+                reads.add(id);
+            } else if (checked) {
+                absent.increment();
+            } else {
+                unknown.add(id);
+                reads.add(id);
+            }
+        }
+        if (reads.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Product> products = delegate.getProducts(reads);
+        for (String id : reads) {
+            boolean found = products.containsKey(id);
+            if (!found && !unknown.contains(id)) {
+                falsePositives.increment();
+            } else if (found && unknown.contains(id)) {
+                filter.add(id);
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        filter.add(product.id());
+        delegate.putProduct(product);
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        // Patches only update existing products, which are added if the filter did not know them
+        Optional<Product> product = delegate.patchProduct(id, patch);
+        if (product.isPresent() && !filter.mightContain(id)) {
+            filter.add(id);
+        }
+        return product;
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        delegate.deleteProduct(id);
+        filter.remove(id);
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        return delegate.getAllProduct(fields);
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return delegate.scanProducts(fields, pageSize, continuationToken);
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return delegate.queryProducts(query, fields);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("product.cache.negative.lookups")
+            .description("Product reads checked against the existence filter by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
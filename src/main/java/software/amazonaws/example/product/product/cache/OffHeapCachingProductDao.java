@@ -0,0 +1,174 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.invalidation.ProductInvalidations;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * ProductDao decorator that answers point reads from the {@link OffHeapProductStore}.
+ * Misses are read through to the backend, those of a batch read in one call, writes and deletes are written through,
+ * and full listings warm the store. Reads carrying a session token always go to the backend
+ * so read-your-writes holds. Products changed by other replicas are evicted from the store
+ * as their invalidations arrive, and a read that raced with an invalidation or a local write is not cached.
+ */
+public class OffHeapCachingProductDao implements ProductDao {
+
+    private final ProductDao delegate;
+    private final OffHeapProductStore store;
+    private final ProductInvalidations invalidations;
+
+    public OffHeapCachingProductDao(ProductDao delegate, OffHeapProductStore store,
+                                    ProductInvalidations invalidations) {
+        this.delegate = delegate;
+        this.store = store;
+        this.invalidations = invalidations;
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        if (SessionTokenContext.getRequestToken() == null) {
+            Optional<Product> cached = store.get(id);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        long sequence = invalidations.sequence();
+        Optional<Product> product = delegate.getProduct(id);
+        if (product.isPresent()) {
+            cache(product.get(), sequence);
+        } else {
+            store.remove(id);
+        }
+        return product;
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        Map<String, Product> products = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        boolean cacheable = SessionTokenContext.getRequestToken() == null;
+        for (String id : ids) {
+            Optional<Product> cached = cacheable ? store.get(id) : Optional.empty();
+            if (cached.isPresent()) {
+                products.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return products;
+        }
+
+        long sequence = invalidations.sequence();
+        Map<String, Product> found = delegate.getProducts(misses);
+        for (String id : misses) {
+            Product product = found.get(id);
+            if (product != null) {
+                cache(product, sequence);
+            } else {
+                store.remove(id);
+            }
+        }
+        products.putAll(found);
+        return products;
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        try {
+            delegate.putProduct(product);
+        } finally {
+            // On failure the write may still have been applied, so drop the entry rather than keep the old one
+            written(product.id());
+        }
+        store.put(product);
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        Optional<Product> product;
+        try {
+            product = delegate.patchProduct(id, patch);
+        } finally {
+            written(id);
+        }
+        product.ifPresent(store::put);
+        return product;
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        try {
+            delegate.deleteProduct(id);
+        } finally {
+            written(id);
+        }
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        long sequence = invalidations.sequence();
+        Products products = delegate.getAllProduct(fields);
+        if (fields.isAll()) {
+            products.products().forEach(product -> cache(product, sequence));
+        }
+        return products;
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        long sequence = invalidations.sequence();
+        ProductPage page = delegate.scanProducts(fields, pageSize, continuationToken);
+        if (fields.isAll()) {
+            page.products().forEach(product -> cache(product, sequence));
+        }
+        return page;
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return delegate.queryProducts(query, fields);
+    }
+
+    /**
+     * Stores a product read from the backend unless it was invalidated or written since the read began.
+     * Checked again once stored: a write finishing between the check and the put may already have
+     * written its value through, which the put would otherwise overwrite with the older one.
+     */
+    private void cache(Product product, long sequence) {
+        String id = product.id();
+        if (invalidations.invalidatedSince(id, sequence)) {
+            store.remove(id);
+            return;
+        }
+        store.put(product);
+        if (invalidations.invalidatedSince(id, sequence)) {
+            store.remove(id);
+        }
+    }
+
+    /**
+     * Marks a product written before dropping its entry, so reads still in flight do not cache the value
+     * they read before the write; its change event, which marks it for other replicas, comes only later.
+     */
+    private void written(String id) {
+        invalidations.markWritten(id);
+        store.remove(id);
+    }
+}
@@ -0,0 +1,432 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Product store kept outside the Java heap, used as a large second-level cache in front of the database.
+ * Products are written into fixed-size slots of direct buffers in a compact binary layout
+ * (price as unscaled long and scale, id, name and category as UTF-8) and located through open-addressing
+ * hash tables that are also held off-heap, so millions of entries add no GC work.
+ * When a segment is full, slots are reclaimed with the clock (second chance) algorithm.
+ *
+ * <p>The store is split into independently locked segments. Products that do not fit a slot,
+ * or whose price does not fit a long, are simply not cached.
+ */
+@Component
+@ConditionalOnProperty(name = "product.cache.off-heap.enabled", havingValue = "true")
+public class OffHeapProductStore {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapProductStore.class);
+
+    // Slot layout
+    private static final int FLAGS = 0;
+    private static final int HAS_PRICE = 1;
+    private static final int ID_LENGTH = 2;
+    private static final int NAME_LENGTH = 4;
+    private static final int CATEGORY_LENGTH = 6;
+    private static final int HASH = 8;
+    private static final int PRICE_SCALE = 12;
+    private static final int PRICE_UNSCALED = 16;
+    private static final int WRITTEN_AT = 24;
+    private static final int HEADER_SIZE = 32;
+
+    private static final byte LIVE = 1;
+    private static final byte REFERENCED = 2;
+
+    private final Segment[] segments;
+    private final int slotSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public OffHeapProductStore(ProductConfigurationProperties productConfig, MeterRegistry meterRegistry) {
+        this(productConfig.getCache().getOffHeap(), Clock.systemUTC());
+
+        Gauge.builder("product.cache.offheap.size", this, OffHeapProductStore::size)
+            .description("Number of products held in the off-heap cache")
+            .register(meterRegistry);
+        Gauge.builder("product.cache.offheap.capacity", this, OffHeapProductStore::capacityBytes)
+            .description("Direct memory reserved by the off-heap cache")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        FunctionCounter.builder("product.cache.offheap.evictions", evictions, LongAdder::sum)
+            .description("Products evicted from the off-heap cache to make room")
+            .register(meterRegistry);
+        FunctionCounter.builder("product.cache.offheap.requests", hits, LongAdder::sum)
+            .description("Reads looked up in the off-heap cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        FunctionCounter.builder("product.cache.offheap.requests", misses, LongAdder::sum)
+            .description("Reads looked up in the off-heap cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    }
+
+    OffHeapProductStore(ProductConfigurationProperties.OffHeap config, Clock clock) {
+        if (config.getSlotSize() <= HEADER_SIZE || config.getSlotSize() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap slot size must be between " + (HEADER_SIZE + 1)
+                + " and " + Short.MAX_VALUE + " bytes");
+        }
+        int segmentCount = Integer.highestOneBit(Math.min(256, Math.max(1, config.getSegments())));
+        int slotsPerSegment = Math.max(1, (config.getMaxEntries() + segmentCount - 1) / segmentCount);
+        if ((long) slotsPerSegment * config.getSlotSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap segments exceed 2 GiB; increase product.cache.off-heap.segments");
+        }
+
+        this.slotSize = config.getSlotSize();
+        this.ttlMillis = config.getTtl().toMillis();
+        this.clock = clock;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+
+        logger.info("Off-heap product store allocated {} segments of {} slots ({} bytes)",
+            segmentCount, slotsPerSegment, capacityBytes());
+    }
+
+    public Optional<Product> get(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        Product product = segmentFor(hash).get(id, idBytes, hash);
+        if (product == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(product);
+    }
+
+    /**
+     * Stores a product, replacing any previous entry for its id.
+     *
+     * @return false when the product cannot be represented in a slot and was not cached
+     */
+    public boolean put(Product product) {
+        byte[] idBytes = product.id().getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = product.name() != null ? product.name().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] categoryBytes = product.category() != null ? product.category().getBytes(StandardCharsets.UTF_8) : null;
+        int hash = hash(product.id());
+        Segment segment = segmentFor(hash);
+
+        BigDecimal price = product.price();
+        int size = HEADER_SIZE + idBytes.length + (nameBytes != null ? nameBytes.length : 0)
+            + (categoryBytes != null ? categoryBytes.length : 0);
+        if (size > slotSize || (price != null && price.unscaledValue().bitLength() > 63)) {
+            segment.remove(idBytes, hash);
+            return false;
+        }
+        segment.put(idBytes, nameBytes, categoryBytes, price, hash);
+        return true;
+    }
+
+    public void remove(String id) {
+        int hash = hash(id);
+        segmentFor(hash).remove(id.getBytes(StandardCharsets.UTF_8), hash);
+    }
+
+    /**
+     * Evicts products changed by other replicas; local changes are written through by the DAO.
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.remote()) {
+            remove(event.id());
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long capacityBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.data.capacity() + 4L * segment.index.capacity();
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 24) & (segments.length - 1)];
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A direct buffer of slots with its own open-addressing index and clock hand.
+     * Index entries hold the slot number plus one, so zero marks an empty bucket.
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer data;
+        private final IntBuffer index;
+        private final int slots;
+        private final int mask;
+        private int allocated;
+        private int live;
+        private int hand;
+
+        Segment(int slots) {
+            this.slots = slots;
+            this.data = ByteBuffer.allocateDirect(slots * slotSize);
+            // Keep the load factor at or below one half so probe sequences stay short
+            int buckets = Integer.highestOneBit(Math.max(2, slots * 2 - 1)) << 1;
+            this.index = ByteBuffer.allocateDirect(buckets * 4).asIntBuffer();
+            this.mask = buckets - 1;
+        }
+
+        Product get(String id, byte[] idBytes, int hash) {
+            lock.lock();
+            try {
+                int bucket = find(idBytes, hash);
+                if (bucket < 0) {
+                    return null;
+                }
+                int offset = (index.get(bucket) - 1) * slotSize;
+                if (clock.millis() - data.getLong(offset + WRITTEN_AT) >= ttlMillis) {
+                    removeAt(bucket);
+                    return null;
+                }
+                data.put(offset + FLAGS, (byte) (LIVE | REFERENCED));
+                return read(id, offset);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(byte[] idBytes, byte[] nameBytes, byte[] categoryBytes, BigDecimal price, int hash) {
+            lock.lock();
+            try {
+                int slot;
+                int bucket = find(idBytes, hash);
+                if (bucket >= 0) {
+                    slot = index.get(bucket) - 1;
+                } else {
+                    slot = allocate();
+                    index.put(emptyBucket(hash), slot + 1);
+                    live++;
+                }
+                write(slot * slotSize, idBytes, nameBytes, categoryBytes, price, hash);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(byte[] idBytes, int hash) {
+            lock.lock();
+            try {
+                int bucket = find(idBytes, hash);
+                if (bucket >= 0) {
+                    removeAt(bucket);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                for (int i = 0; i < index.capacity(); i++) {
+                    index.put(i, 0);
+                }
+                for (int slot = 0; slot < allocated; slot++) {
+                    data.put(slot * slotSize + FLAGS, (byte) 0);
+                }
+                live = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return live;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int find(byte[] idBytes, int hash) {
+            for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+                int entry = index.get(bucket);
+                if (entry == 0) {
+                    return -1;
+                }
+                int offset = (entry - 1) * slotSize;
+                if (data.getInt(offset + HASH) == hash && idEquals(offset, idBytes)) {
+                    return bucket;
+                }
+            }
+        }
+
+        private int emptyBucket(int hash) {
+            int bucket = hash & mask;
+            while (index.get(bucket) != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            return bucket;
+        }
+
+        private boolean idEquals(int offset, byte[] idBytes) {
+            if (data.getShort(offset + ID_LENGTH) != idBytes.length) {
+                return false;
+            }
+            int start = offset + HEADER_SIZE;
+            for (int i = 0; i < idBytes.length; i++) {
+                if (data.get(start + i) != idBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Hands out a never-used slot while there are any, then sweeps the clock hand:
+         * free slots are taken straight away, referenced ones get a second chance.
+         */
+        private int allocate() {
+            if (allocated < slots) {
+                return allocated++;
+            }
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) % slots;
+                int offset = slot * slotSize;
+                byte flags = data.get(offset + FLAGS);
+                if ((flags & LIVE) == 0) {
+                    return slot;
+                }
+                if ((flags & REFERENCED) != 0) {
+                    data.put(offset + FLAGS, LIVE);
+                    continue;
+                }
+                removeAt(bucketOf(slot, data.getInt(offset + HASH)));
+                evictions.increment();
+                return slot;
+            }
+        }
+
+        private int bucketOf(int slot, int hash) {
+            int bucket = hash & mask;
+            while (index.get(bucket) != slot + 1) {
+                bucket = (bucket + 1) & mask;
+            }
+            return bucket;
+        }
+
+        /**
+         * Frees the slot referenced from a bucket and closes the gap in its probe sequence
+         * by shifting later entries back, so lookups never need tombstones.
+         */
+        private void removeAt(int bucket) {
+            int slot = index.get(bucket) - 1;
+            data.put(slot * slotSize + FLAGS, (byte) 0);
+            index.put(bucket, 0);
+            live--;
+
+            int gap = bucket;
+            for (int next = (gap + 1) & mask; ; next = (next + 1) & mask) {
+                int entry = index.get(next);
+                if (entry == 0) {
+                    return;
+                }
+                int home = data.getInt((entry - 1) * slotSize + HASH) & mask;
+                // The entry can fill the gap unless its home bucket lies cyclically in (gap, next]
+                boolean homeBetween = gap <= next
+                    ? home > gap && home <= next
+                    : home > gap || home <= next;
+                if (!homeBetween) {
+                    index.put(gap, entry);
+                    index.put(next, 0);
+                    gap = next;
+                }
+            }
+        }
+
+        private void write(int offset, byte[] idBytes, byte[] nameBytes, byte[] categoryBytes, BigDecimal price,
+                           int hash) {
+            data.put(offset + FLAGS, LIVE);
+            data.put(offset + HAS_PRICE, (byte) (price != null ? 1 : 0));
+            data.putShort(offset + ID_LENGTH, (short) idBytes.length);
+            data.putShort(offset + NAME_LENGTH, (short) (nameBytes != null ? nameBytes.length : -1));
+            data.putShort(offset + CATEGORY_LENGTH, (short) (categoryBytes != null ? categoryBytes.length : -1));
+            data.putInt(offset + HASH, hash);
+            data.putInt(offset + PRICE_SCALE, price != null ? price.scale() : 0);
+            data.putLong(offset + PRICE_UNSCALED, price != null ? price.unscaledValue().longValue() : 0L);
+            data.putLong(offset + WRITTEN_AT, clock.millis());
+            data.put(offset + HEADER_SIZE, idBytes);
+            int nameOffset = offset + HEADER_SIZE + idBytes.length;
+            if (nameBytes != null) {
+                data.put(nameOffset, nameBytes);
+            }
+            if (categoryBytes != null) {
+                data.put(nameOffset + (nameBytes != null ? nameBytes.length : 0), categoryBytes);
+            }
+        }
+
+        private Product read(String id, int offset) {
+            int idLength = data.getShort(offset + ID_LENGTH);
+            int nameLength = data.getShort(offset + NAME_LENGTH);
+            int categoryLength = data.getShort(offset + CATEGORY_LENGTH);
+            int nameOffset = offset + HEADER_SIZE + idLength;
+            String name = readString(nameOffset, nameLength);
+            String category = readString(nameOffset + Math.max(nameLength, 0), categoryLength);
+            BigDecimal price = data.get(offset + HAS_PRICE) != 0
+                ? new BigDecimal(BigInteger.valueOf(data.getLong(offset + PRICE_UNSCALED)), data.getInt(offset + PRICE_SCALE))
+                : null;
+            return new Product(id, name, price, category);
+        }
+
+        private String readString(int offset, int length) {
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            data.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
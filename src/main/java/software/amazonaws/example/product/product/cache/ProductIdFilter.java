@@ -0,0 +1,197 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Membership filter of the product ids that exist, so that reads of ids that do not can be answered
+ * without a database call. Backed by a scalable Bloom filter: it answers "definitely absent"
+ * or "maybe present" and grows without its false positive rate degrading.
+ *
+ * <p>Deleted ids are not taken out of the Bloom filter, where removing an id it only falsely contains
+ * would take counts from other ids, but held in a bounded set of recent deletes until the next rebuild;
+ * once the set is full the oldest deletes are forgotten, which only costs database reads.
+ * The filter is built from a paged, id-only scan of the whole backend and rebuilt periodically,
+ * which also drops ids deleted on other replicas. Until the first build completes
+ * every id is reported as maybe present. Ids written by other replicas are only known once added through
+ * {@link #add}, from the Cosmos DB change feed or from cache invalidations, or after the next rebuild.
+ */
+@Component
+@ConditionalOnProperty(name = "product.cache.negative.enabled", havingValue = "true")
+public class ProductIdFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ProductIdFilter.class);
+
+    private static final ProductFields ID_ONLY = ProductFields.parse(ProductFields.ID);
+    private static final int SCAN_PAGE_SIZE = 1_000;
+    private static final int MAX_RECENTLY_DELETED = 10_000;
+
+    private final long expectedIds;
+    private final double falsePositiveRate;
+
+    private volatile ScalableBloomFilter filter;
+    private volatile boolean ready;
+    private volatile ProductDao source;
+
+    // Guarded by this: ids added and deleted while a rebuild scans
+    private List<String> addedDuringRebuild;
+    private Set<String> deletedDuringRebuild;
+    // Read without locking; updated under this, with the order of deletes to forget the oldest by
+    private final Map<String, Boolean> recentlyDeleted = new ConcurrentHashMap<>();
+    private final Queue<String> deleteOrder = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public ProductIdFilter(ProductConfigurationProperties productConfig, MeterRegistry meterRegistry) {
+        this(productConfig.getCache().getNegative());
+
+        Gauge.builder("product.cache.negative.ids", this, f -> f.filter.count())
+            .description("Product ids counted in the existence filter")
+            .register(meterRegistry);
+        Gauge.builder("product.cache.negative.bytes", this, f -> f.filter.sizeInBytes())
+            .description("Memory used by the existence filter")
+            .register(meterRegistry);
+    }
+
+    ProductIdFilter(ProductConfigurationProperties.Negative config) {
+        this.expectedIds = config.getExpectedIds();
+        this.falsePositiveRate = config.getFalsePositiveRate();
+        this.filter = new ScalableBloomFilter(expectedIds, falsePositiveRate);
+    }
+
+    /**
+     * Sets the DAO scanned to build the filter, typically the database backend below any caches.
+     */
+    public void rebuildFrom(ProductDao source) {
+        this.source = source;
+    }
+
+    /**
+     * @return false if the product definitely does not exist
+     */
+    public boolean mightContain(String id) {
+        return !ready || (filter.mightContain(id) && !recentlyDeleted.containsKey(id));
+    }
+
+    /**
+     * Learns ids written by other replicas. Their deletes are left to the next rebuild,
+     * as a stale "maybe present" only costs a database read.
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.remote() && !event.deleted()) {
+            add(event.id());
+        }
+    }
+
+    /**
+     * Adds a written product. An id the Bloom filter already holds is not added again, so updates
+     * do not fill it up; it is still recorded for a rebuild in progress, whose scan may miss it.
+     */
+    public synchronized void add(String id) {
+        recentlyDeleted.remove(id);
+        if (!filter.mightContain(id)) {
+            filter.add(id);
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(id);
+            deletedDuringRebuild.remove(id);
+        }
+    }
+
+    /**
+     * Records a deleted product as absent until it is added again or the next rebuild.
+     */
+    public synchronized void remove(String id) {
+        markDeleted(id);
+        if (deletedDuringRebuild != null) {
+            deletedDuringRebuild.add(id);
+        }
+    }
+
+    private void markDeleted(String id) {
+        if (recentlyDeleted.put(id, Boolean.TRUE) == null) {
+            deleteOrder.add(id);
+        }
+        while (recentlyDeleted.size() > MAX_RECENTLY_DELETED) {
+            String oldest = deleteOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            recentlyDeleted.remove(oldest);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.cache.negative.rebuild-interval:PT15M}")
+    public void rebuild() {
+        ProductDao dao = source;
+        if (dao == null) {
+            return;
+        }
+        synchronized (this) {
+            addedDuringRebuild = new ArrayList<>();
+            deletedDuringRebuild = new HashSet<>();
+        }
+        try {
+            ScalableBloomFilter rebuilt = new ScalableBloomFilter(expectedIds, falsePositiveRate);
+            long ids = 0;
+            String continuationToken = null;
+            do {
+                ProductPage page = dao.scanProducts(ID_ONLY, SCAN_PAGE_SIZE, continuationToken);
+                for (Product product : page.products()) {
+                    rebuilt.add(product.id());
+                }
+                ids += page.products().size();
+                continuationToken = page.continuationToken();
+            } while (continuationToken != null);
+            synchronized (this) {
+                // Writes that completed after the scan read past them, and deletes the scan may predate
+                addedDuringRebuild.stream().filter(id -> !rebuilt.mightContain(id)).forEach(rebuilt::add);
+                filter = rebuilt;
+                recentlyDeleted.clear();
+                deleteOrder.clear();
+                deletedDuringRebuild.forEach(this::markDeleted);
+                ready = true;
+            }
+            logger.info("Product id filter rebuilt with {} ids in {} bytes", ids, rebuilt.sizeInBytes());
+        } catch (RuntimeException e) {
+            logger.warn("Product id filter rebuild failed, keeping the previous filter", e);
+        } finally {
+            synchronized (this) {
+                addedDuringRebuild = null;
+                deletedDuringRebuild = null;
+            }
+        }
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    int sliceCount() {
+        return filter.sliceCount();
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of encoded JSON responses for product reads.
+ * Holds the serialized bytes of GET /products/{id} per id and of GET /products for the current
+ * catalog generation, each with a precompressed gzip variant, so hits are written without
+ * object mapping or compression. Entries are dropped when a product changes and expire after a TTL
+ * to bound staleness for writes handled by other replicas.
+ */
+@Component
+@ConditionalOnProperty(name = "product.cache.response.enabled", havingValue = "true")
+public class ProductResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int minCompressSize;
+
+    private final Map<String, EncodedResponse> products = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile EncodedResponse listing;
+
+    public ProductResponseCache(ObjectMapper objectMapper, ProductConfigurationProperties productConfig) {
+        ProductConfigurationProperties.Response config = productConfig.getCache().getResponse();
+        this.objectMapper = objectMapper;
+        this.maxEntries = config.getMaxEntries();
+        this.ttlNanos = config.getTtl().toNanos();
+        this.minCompressSize = config.getMinCompressSize();
+    }
+
+    /**
+     * Current catalog generation; capture it before reading from the backend and pass it when caching
+     * the result, so a response read before a concurrent write is never cached after that write.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public EncodedResponse getProduct(String id) {
+        EncodedResponse response = products.get(id);
+        return response != null && !isExpired(response) ? response : null;
+    }
+
+    public EncodedResponse cacheProduct(Product product, long readGeneration) {
+        EncodedResponse response = encode(product, readGeneration);
+        if (readGeneration == generation.get()) {
+            if (products.size() >= maxEntries) {
+                evictOne();
+            }
+            products.put(product.id(), response);
+            if (readGeneration != generation.get()) {
+                products.remove(product.id(), response);
+            }
+        }
+        return response;
+    }
+
+    public EncodedResponse getListing() {
+        EncodedResponse response = listing;
+        return response != null && response.generation() == generation.get() && !isExpired(response)
+            ? response
+            : null;
+    }
+
+    public EncodedResponse cacheListing(Products products, long readGeneration) {
+        EncodedResponse response = encode(products, readGeneration);
+        if (readGeneration == generation.get()) {
+            listing = response;
+        }
+        return response;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+        products.remove(event.id());
+    }
+
+    private boolean isExpired(EncodedResponse response) {
+        return System.nanoTime() - response.createdAtNanos() >= ttlNanos;
+    }
+
+    private void evictOne() {
+        Iterator<String> ids = products.keySet().iterator();
+        if (ids.hasNext()) {
+            products.remove(ids.next());
+        }
+    }
+
+    private EncodedResponse encode(Object body, long readGeneration) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = identity.length >= minCompressSize ? gzip(identity) : null;
+            return new EncodedResponse(identity, gzip, readGeneration, System.nanoTime());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] identity) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(identity.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Whether the response for this request can be served from the JSON cache:
+     * every media type the client accepts has to be compatible with JSON.
+     */
+    public static boolean acceptsJson(HttpHeaders requestHeaders) {
+        List<MediaType> accepted = requestHeaders.getAccept();
+        return accepted.stream().allMatch(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    public static boolean acceptsGzip(HttpHeaders requestHeaders) {
+        for (String header : requestHeaders.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                    return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encoded response body.
+     *
+     * @param identity the uncompressed JSON bytes
+     * @param gzip the gzip-compressed bytes, or null when the body is too small to be worth compressing
+     * @param generation the catalog generation the body was read at
+     * @param createdAtNanos when the entry was encoded, from {@link System#nanoTime()}
+     */
+    public record EncodedResponse(byte[] identity, byte[] gzip, long generation, long createdAtNanos) {
+    }
+}
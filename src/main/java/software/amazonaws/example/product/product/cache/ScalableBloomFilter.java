@@ -0,0 +1,107 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import java.util.Arrays;
+
+/**
+ * Scalable Bloom filter built from {@link CountingBloomFilter} slices.
+ * When the newest slice holds as many elements as it was sized for, a slice of twice the capacity
+ * and half the false positive rate is added, so the overall false positive rate stays below twice the
+ * initial one however far the filter grows. Lookups may run concurrently with anything;
+ * adds and removes must be serialized by the caller.
+ */
+final class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+
+    private volatile CountingBloomFilter[] slices;
+    private final double falsePositiveRate;
+    private long nextCapacity;
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.nextCapacity = initialCapacity;
+        this.slices = new CountingBloomFilter[0];
+        grow();
+    }
+
+    boolean mightContain(String element) {
+        long hash1 = CountingBloomFilter.hash(element, 0);
+        long hash2 = CountingBloomFilter.hash(element, SEED);
+        for (CountingBloomFilter slice : slices) {
+            if (slice.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void add(String element) {
+        CountingBloomFilter newest = slices[slices.length - 1];
+        if (newest.isFull()) {
+            newest = grow();
+        }
+        newest.add(CountingBloomFilter.hash(element, 0), CountingBloomFilter.hash(element, SEED));
+    }
+
+    /**
+     * Removes an element that was added. The element is removed from the one slice that holds it;
+     * if several slices appear to hold it, one of them falsely, it is left in place rather than risk
+     * removing another element's counts.
+     *
+     * @return whether the element was removed
+     */
+    boolean remove(String element) {
+        long hash1 = CountingBloomFilter.hash(element, 0);
+        long hash2 = CountingBloomFilter.hash(element, SEED);
+        CountingBloomFilter holder = null;
+        for (CountingBloomFilter slice : slices) {
+            if (slice.mightContain(hash1, hash2)) {
+                if (holder != null) {
+                    return false;
+                }
+                holder = slice;
+            }
+        }
+        if (holder == null) {
+            return false;
+        }
+        holder.remove(hash1, hash2);
+        return true;
+    }
+
+    long count() {
+        long count = 0;
+        for (CountingBloomFilter slice : slices) {
+            count += slice.count();
+        }
+        return count;
+    }
+
+    long sizeInBytes() {
+        long bytes = 0;
+        for (CountingBloomFilter slice : slices) {
+            bytes += slice.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    int sliceCount() {
+        return slices.length;
+    }
+
+    private CountingBloomFilter grow() {
+        CountingBloomFilter[] current = slices;
+        double rate = falsePositiveRate * Math.pow(TIGHTENING, current.length);
+        CountingBloomFilter slice = new CountingBloomFilter(nextCapacity, rate);
+        nextCapacity *= GROWTH;
+        CountingBloomFilter[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = slice;
+        slices = grown;
+        return slice;
+    }
+}
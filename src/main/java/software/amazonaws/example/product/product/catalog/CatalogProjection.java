@@ -0,0 +1,200 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory projection of the product catalog held by each replica.
+ * Kept current from the Cosmos DB change feed and from writes handled by this replica,
+ * so list and search requests can be answered without a cross-partition query.
+ * Deletes, which the change feed does not report, are applied as they are made on any replica.
+ */
+@Component
+@ConditionalOnProperty(name = {"azure.cosmos.enabled", "azure.cosmos.change-feed.enabled"}, havingValue = "true")
+public class CatalogProjection {
+
+    private final Clock clock;
+    private final Duration maxStaleness;
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile ProductIndex index = new ProductIndex();
+    private volatile Instant lastCaughtUpAt;
+    private volatile Snapshot snapshot;
+    // Guarded by this: ids deleted while a rebuild reads the catalog, null while none is running
+    private Set<String> removedDuringRebuild;
+
+    @Autowired
+    public CatalogProjection(AzureConfigurationProperties azureConfig, MeterRegistry meterRegistry) {
+        this(azureConfig.getCosmos().getChangeFeed().getMaxStaleness(), Clock.systemUTC());
+
+        Gauge.builder("product.catalog.projection.lag", this, CatalogProjection::lagSeconds)
+            .description("Time since the catalog projection last caught up with the change feed")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("product.catalog.projection.size", this, CatalogProjection::size)
+            .description("Number of products held in the catalog projection")
+            .register(meterRegistry);
+    }
+
+    CatalogProjection(Duration maxStaleness, Clock clock) {
+        this.maxStaleness = maxStaleness;
+        this.clock = clock;
+    }
+
+    public Optional<Product> get(String id) {
+        return index.get(id);
+    }
+
+    public void apply(Product product) {
+        synchronized (this) {
+            if (removedDuringRebuild != null) {
+                // Recreated since its delete, so the rebuild may keep it
+                removedDuringRebuild.remove(product.id());
+            }
+        }
+        index.put(product);
+        changed();
+    }
+
+    public void remove(String id) {
+        synchronized (this) {
+            if (removedDuringRebuild != null) {
+                removedDuringRebuild.add(id);
+            }
+        }
+        if (index.remove(id)) {
+            changed();
+        }
+    }
+
+    /**
+     * Applies deletes made by other replicas; other changes arrive through the change feed.
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.remote() && event.deleted()) {
+            remove(event.id());
+        }
+    }
+
+    /**
+     * Starts recording deletes for the rebuild about to read the catalog, as the read may return products
+     * deleted after it. {@link #replaceAll} leaves them out of the rebuild; {@link #endRebuild} must follow.
+     */
+    public synchronized void beginRebuild() {
+        removedDuringRebuild = new HashSet<>();
+    }
+
+    /**
+     * Stops recording deletes, whether or not the rebuild was swapped in.
+     */
+    public synchronized void endRebuild() {
+        removedDuringRebuild = null;
+    }
+
+    /**
+     * Swaps in a complete rebuild of the catalog, e.g. after reading the change feed from the beginning,
+     * without the products deleted since {@link #beginRebuild}.
+     */
+    public synchronized void replaceAll(Map<String, Product> rebuilt) {
+        Map<String, Product> products = rebuilt;
+        if (removedDuringRebuild != null && !removedDuringRebuild.isEmpty()) {
+            products = new HashMap<>(rebuilt);
+            products.keySet().removeAll(removedDuringRebuild);
+        }
+        ProductIndex rebuiltIndex = new ProductIndex();
+        products.values().forEach(rebuiltIndex::put);
+        this.index = rebuiltIndex;
+        changed();
+    }
+
+    /**
+     * Records that the projection has applied every change available at this point in time.
+     */
+    public void markCaughtUp() {
+        this.lastCaughtUpAt = clock.instant();
+    }
+
+    /**
+     * Time since the projection was last known to be current, or the maximum duration if it never was.
+     */
+    public Duration lag() {
+        Instant caughtUp = lastCaughtUpAt;
+        if (caughtUp == null) {
+            return Duration.ofSeconds(Long.MAX_VALUE);
+        }
+        return Duration.between(caughtUp, clock.instant());
+    }
+
+    private double lagSeconds() {
+        return lastCaughtUpAt == null ? Double.NaN : lag().toMillis() / 1000.0;
+    }
+
+    /**
+     * Whether list requests may be served from the projection within the configured staleness bound.
+     */
+    public boolean isFresh() {
+        return lag().compareTo(maxStaleness) <= 0;
+    }
+
+    /**
+     * Monotonic version incremented on every change to the projection.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Answers a name-prefix / price-range query from the in-process indexes.
+     */
+    public Products query(ProductQuery query) {
+        return new Products(index.query(query));
+    }
+
+    /**
+     * Returns the catalog as a list, reusing the previous list while the projection is unchanged.
+     */
+    public Products snapshot() {
+        long currentVersion = version.get();
+        Snapshot current = snapshot;
+        if (current == null || current.version() != currentVersion) {
+            current = new Snapshot(currentVersion, new Products(List.copyOf(index.values())));
+            snapshot = current;
+        }
+        return current.products();
+    }
+
+    private void changed() {
+        version.incrementAndGet();
+    }
+
+    private record Snapshot(long version, Products products) {
+    }
+}
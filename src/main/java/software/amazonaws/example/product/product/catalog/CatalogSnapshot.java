@@ -0,0 +1,156 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the product catalog in a compact binary format, used to start replicas warm.
+ *
+ * <p>Layout, big-endian: magic "PCAT", format version (short), creation time (epoch millis),
+ * change feed continuation token (int length and UTF-8 bytes, length -1 if none), product count (int),
+ * then per product the id (short length and UTF-8 bytes), the name (the same, length -1 if null)
+ * the price (int scale, Integer.MIN_VALUE if null, then byte length and two's-complement bytes
+ * of the unscaled value) and the category (like the name), and finally a CRC32 of everything before it (int).
+ * Snapshots of format version 1, written before products had a category, are still read.
+ *
+ * @param createdAt when the catalog was read
+ * @param continuationToken change feed position the snapshot is consistent with, to catch up from; null if unknown
+ * @param products the catalog
+ */
+public record CatalogSnapshot(Instant createdAt, String continuationToken, List<Product> products) {
+
+    public static final short FORMAT_VERSION = 2;
+
+    private static final short WITHOUT_CATEGORY_VERSION = 1;
+
+    private static final int MAGIC = 0x50434154;
+    private static final int NO_PRICE = Integer.MIN_VALUE;
+    private static final int MIN_RECORD_BYTES = 8;
+
+    public void writeTo(OutputStream stream) throws IOException {
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeLong(createdAt.toEpochMilli());
+        if (continuationToken == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] token = continuationToken.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(token.length);
+            out.write(token);
+        }
+        out.writeInt(products.size());
+        for (Product product : products) {
+            writeString(out, product.id());
+            writeString(out, product.name());
+            if (product.price() == null) {
+                out.writeInt(NO_PRICE);
+            } else {
+                byte[] unscaled = product.price().unscaledValue().toByteArray();
+                if (unscaled.length > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Price of product " + product.id() + " is too large");
+                }
+                out.writeInt(product.price().scale());
+                out.writeByte(unscaled.length);
+                out.write(unscaled);
+            }
+            writeString(out, product.category());
+        }
+        out.flush();
+        new DataOutputStream(stream).writeInt((int) crc.getValue());
+        stream.flush();
+    }
+
+    /**
+     * Reads a snapshot, e.g. from a memory-mapped file.
+     *
+     * @throws IllegalArgumentException if the data is not a snapshot of a supported version or is corrupt
+     */
+    public static CatalogSnapshot readFrom(ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate();
+        try {
+            if (data.remaining() < Integer.BYTES || data.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a catalog snapshot");
+            }
+            short version = data.getShort();
+            if (version != FORMAT_VERSION && version != WITHOUT_CATEGORY_VERSION) {
+                throw new IllegalArgumentException("Unsupported catalog snapshot format version " + version);
+            }
+            Instant createdAt = Instant.ofEpochMilli(data.getLong());
+            int tokenLength = data.getInt();
+            String token = null;
+            if (tokenLength >= 0) {
+                byte[] bytes = new byte[tokenLength];
+                data.get(bytes);
+                token = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int count = data.getInt();
+            // A corrupt count must not size the list beyond what the data can hold
+            List<Product> products = new ArrayList<>(Math.min(count, data.remaining() / MIN_RECORD_BYTES));
+            for (int i = 0; i < count; i++) {
+                String id = readString(data);
+                String name = readString(data);
+                BigDecimal price = null;
+                int scale = data.getInt();
+                if (scale != NO_PRICE) {
+                    byte[] unscaled = new byte[data.get()];
+                    data.get(unscaled);
+                    price = new BigDecimal(new BigInteger(unscaled), scale);
+                }
+                String category = version == WITHOUT_CATEGORY_VERSION ? null : readString(data);
+                products.add(new Product(id, name, price, category));
+            }
+
+            int end = data.position();
+            int checksum = data.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(end));
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalArgumentException("Catalog snapshot checksum mismatch");
+            }
+            return new CatalogSnapshot(createdAt, token, products);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated catalog snapshot", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for a catalog snapshot: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer data) {
+        short length = data.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
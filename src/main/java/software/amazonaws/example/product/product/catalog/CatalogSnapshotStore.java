@@ -0,0 +1,241 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.options.BlobDownloadToFileOptions;
+import com.azure.storage.blob.options.BlobUploadFromFileOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes catalog snapshots to Blob Storage and loads the latest one when a replica starts,
+ * so that scaled-out replicas start with a warm catalog projection instead of sending a burst of cold reads
+ * to the database.
+ *
+ * <p>The snapshot is loaded before the web server starts and memory-mapped rather than read onto the heap.
+ * It fills the {@link CatalogProjection}, if enabled; when it was taken from the projection, it also carries
+ * the change feed position the projection then resumes from instead of reading the feed from the beginning.
+ * Snapshots do not fill the off-heap product store: the change feed does not report deletes, so products
+ * deleted since the snapshot was taken would be served from it until they expire. The projection drops
+ * them at its next rebuild.
+ * Any replica may export; an export is skipped when another replica wrote a snapshot recently.
+ */
+@Component
+@ConditionalOnProperty(name = "azure.storage.snapshot.enabled", havingValue = "true")
+public class CatalogSnapshotStore implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+
+    private static final String CREATED_AT = "createdat";
+    private static final String FORMAT_VERSION = "formatversion";
+    private static final String PRODUCTS = "products";
+    private static final int SCAN_PAGE_SIZE = 1_000;
+
+    private final BlobContainerClient container;
+    private final BlobClient blob;
+    private final AzureConfigurationProperties.Snapshot config;
+    private final ProductDao productDao;
+    private final CatalogProjection projection;
+    private final CosmosChangeFeedProjector projector;
+
+    private volatile boolean running;
+
+    public CatalogSnapshotStore(BlobContainerClient snapshotContainerClient,
+                                AzureConfigurationProperties azureConfig,
+                                ProductDao productDao,
+                                ObjectProvider<CatalogProjection> projection,
+                                ObjectProvider<CosmosChangeFeedProjector> projector) {
+        this.config = azureConfig.getStorage().getSnapshot();
+        this.container = snapshotContainerClient;
+        this.blob = snapshotContainerClient.getBlobClient(config.getBlobName());
+        this.productDao = productDao;
+        this.projection = projection.getIfAvailable();
+        this.projector = projector.getIfAvailable();
+    }
+
+    /**
+     * Loads the latest snapshot. Runs before the web server starts and before scheduled tasks,
+     * including the first change feed poll; a missing or unusable snapshot only means a cold start.
+     */
+    @Override
+    public void start() {
+        running = true;
+        try {
+            load().ifPresent(this::apply);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load catalog snapshot, starting cold", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Scheduled(fixedDelayString = "${azure.storage.snapshot.export-interval:PT15M}",
+        initialDelayString = "${azure.storage.snapshot.export-interval:PT15M}")
+    public void export() {
+        try {
+            Instant latest = latestCreatedAt();
+            Instant now = Instant.now();
+            if (latest != null && Duration.between(latest, now).compareTo(config.getExportInterval().dividedBy(2)) < 0) {
+                logger.debug("Catalog snapshot from {} is recent, skipping export", latest);
+                return;
+            }
+            upload(capture(now));
+        } catch (RuntimeException e) {
+            logger.warn("Catalog snapshot export failed", e);
+        }
+    }
+
+    /**
+     * Reads the catalog from the projection when it is current, together with the change feed position
+     * taken before reading it, so that resuming from that position can only reapply changes.
+     * Otherwise scans the database page by page, as a listing may stop short of the full catalog.
+     */
+    CatalogSnapshot capture(Instant now) {
+        if (projection != null && projector != null && projection.isFresh()) {
+            String continuationToken = projector.continuationToken();
+            return new CatalogSnapshot(now, continuationToken, projection.snapshot().products());
+        }
+        List<Product> products = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            ProductPage page = productDao.scanProducts(ProductFields.ALL, SCAN_PAGE_SIZE, continuationToken);
+            products.addAll(page.products());
+            continuationToken = page.continuationToken();
+        } while (continuationToken != null);
+        return new CatalogSnapshot(now, null, products);
+    }
+
+    private Instant latestCreatedAt() {
+        try {
+            String createdAt = blob.getProperties().getMetadata().get(CREATED_AT);
+            return createdAt == null ? null : Instant.parse(createdAt);
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void upload(CatalogSnapshot snapshot) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("catalog", ".snapshot");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                snapshot.writeTo(out);
+            }
+            container.createIfNotExists();
+            Map<String, String> metadata = Map.of(
+                CREATED_AT, snapshot.createdAt().toString(),
+                FORMAT_VERSION, String.valueOf(CatalogSnapshot.FORMAT_VERSION),
+                PRODUCTS, String.valueOf(snapshot.products().size()));
+            blob.uploadFromFileWithResponse(
+                new BlobUploadFromFileOptions(file.toString()).setMetadata(metadata), null, Context.NONE);
+            logger.info("Exported catalog snapshot with {} products, {} bytes",
+                snapshot.products().size(), Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    Optional<CatalogSnapshot> load() {
+        Path file = null;
+        try {
+            file = Files.createTempFile("catalog", ".snapshot");
+            blob.downloadToFileWithResponse(
+                new BlobDownloadToFileOptions(file.toString()).setOpenOptions(Set.of(
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)),
+                config.getDownloadTimeout(), Context.NONE);
+
+            CatalogSnapshot snapshot;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                snapshot = CatalogSnapshot.readFrom(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            Duration age = Duration.between(snapshot.createdAt(), Instant.now());
+            if (age.compareTo(config.getMaxAge()) > 0) {
+                logger.info("Catalog snapshot is {} old, older than {}, not loading it", age, config.getMaxAge());
+                return Optional.empty();
+            }
+            return Optional.of(snapshot);
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                logger.info("No catalog snapshot found, starting cold");
+                return Optional.empty();
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    void apply(CatalogSnapshot snapshot) {
+        if (projection != null) {
+            Map<String, Product> products = new HashMap<>();
+            snapshot.products().forEach(product -> products.put(product.id(), product));
+            projection.replaceAll(products);
+            if (projector != null && snapshot.continuationToken() != null) {
+                projector.resumeFrom(snapshot.continuationToken());
+            }
+        }
+        logger.info("Loaded catalog snapshot from {} with {} products", snapshot.createdAt(), snapshot.products().size());
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import com.azure.cosmos.CosmosClient;
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosChangeFeedRequestOptions;
+import com.azure.cosmos.models.FeedRange;
+import com.azure.cosmos.models.FeedResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.cache.ProductIdFilter;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.dao.CosmosProductItem;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link CatalogProjection} current by pulling the Cosmos DB change feed.
+ * Uses the pull model with the continuation token held in memory, so each replica keeps its own
+ * position without a lease container. The latest-version change feed does not report deletes,
+ * so the projection is periodically rebuilt from the beginning of the feed to drop them.
+ * Changed ids are also added to the {@link ProductIdFilter}, if enabled, so it knows about
+ * products written by other replicas.
+ */
+@Component
+@ConditionalOnProperty(name = {"azure.cosmos.enabled", "azure.cosmos.change-feed.enabled"}, havingValue = "true")
+public class CosmosChangeFeedProjector {
+    private static final Logger logger = LoggerFactory.getLogger(CosmosChangeFeedProjector.class);
+
+    private final CosmosContainer container;
+    private final CatalogProjection projection;
+    private final ProductIdFilter idFilter;
+    private final Duration rebuildInterval;
+
+    private volatile String continuationToken;
+    private volatile Instant lastRebuildAt;
+
+    public CosmosChangeFeedProjector(CosmosClient cosmosClient,
+                                     AzureConfigurationProperties azureConfig,
+                                     CatalogProjection projection,
+                                     ObjectProvider<ProductIdFilter> idFilter) {
+        this.container = cosmosClient
+            .getDatabase(azureConfig.getCosmos().getDatabaseName())
+            .getContainer(azureConfig.getCosmos().getContainerName());
+        this.projection = projection;
+        this.idFilter = idFilter.getIfAvailable();
+        this.rebuildInterval = azureConfig.getCosmos().getChangeFeed().getRebuildInterval();
+    }
+
+    @Scheduled(fixedDelayString = "${azure.cosmos.change-feed.poll-interval:PT1S}")
+    public void poll() {
+        try {
+            if (continuationToken == null || rebuildDue()) {
+                rebuild();
+            } else {
+                catchUp();
+            }
+            projection.markCaughtUp();
+        } catch (CosmosException e) {
+            logger.warn("Change feed poll failed, catalog projection lag is {}", projection.lag(), e);
+        }
+    }
+
+    /**
+     * Position in the change feed the projection has applied changes up to, or null before the first read.
+     */
+    public String continuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Continues from a position other than the beginning of the feed, after the projection was
+     * loaded from a snapshot taken at that position. The next full rebuild, which drops the products
+     * deleted since the snapshot was taken, is due a rebuild interval after resuming rather than
+     * on the first poll, which would throw the snapshot away.
+     */
+    public void resumeFrom(String continuationToken) {
+        this.continuationToken = continuationToken;
+        this.lastRebuildAt = Instant.now();
+    }
+
+    private boolean rebuildDue() {
+        return lastRebuildAt == null
+            || Duration.between(lastRebuildAt, Instant.now()).compareTo(rebuildInterval) >= 0;
+    }
+
+    private void rebuild() {
+        Map<String, Product> rebuilt = new HashMap<>();
+        String token;
+        projection.beginRebuild();
+        try {
+            token = drain(
+                CosmosChangeFeedRequestOptions.createForProcessingFromBeginning(FeedRange.forFullRange()),
+                product -> rebuilt.put(product.id(), product));
+            projection.replaceAll(rebuilt);
+        } finally {
+            projection.endRebuild();
+        }
+        continuationToken = token;
+        lastRebuildAt = Instant.now();
+        logger.info("Catalog projection rebuilt with {} products", rebuilt.size());
+    }
+
+    private void catchUp() {
+        String token = drain(
+            CosmosChangeFeedRequestOptions.createForProcessingFromContinuation(continuationToken),
+            product -> {
+                projection.apply(product);
+                if (idFilter != null) {
+                    idFilter.add(product.id());
+                }
+            });
+        if (token != null) {
+            continuationToken = token;
+        }
+    }
+
+    /**
+     * Reads change feed pages until the feed reports no further changes.
+     *
+     * @return the continuation token to resume from, or null if no page was returned
+     */
+    private String drain(CosmosChangeFeedRequestOptions options, Consumer<Product> sink) {
+        String token = null;
+        for (FeedResponse<CosmosProductItem> page :
+                container.queryChangeFeed(options, CosmosProductItem.class).iterableByPage()) {
+            for (CosmosProductItem item : page.getResults()) {
+                sink.accept(item.product());
+            }
+            token = page.getContinuationToken();
+            if (page.getResults().isEmpty()) {
+                break;
+            }
+        }
+        return token;
+    }
+}
@@ -0,0 +1,179 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-process product index.
+ * Holds products by id together with a sorted index on price, a sorted index on the
+ * normalized name and the products of each category, so price ranges, name prefixes, top-N
+ * by price or name and category listings are answered without scanning the catalog.
+ * Reads are lock-free; writes are serialized to keep the indexes consistent with each other.
+ */
+public class ProductIndex {
+
+    private static final Comparator<PriceKey> PRICE_ORDER = Comparator
+        .comparing(PriceKey::price)
+        .thenComparing(PriceKey::id, Comparator.nullsLast(Comparator.naturalOrder()));
+    private static final Comparator<NameKey> NAME_ORDER = Comparator
+        .comparing(NameKey::name)
+        .thenComparing(NameKey::id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Map<String, Product> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<PriceKey, Product> byPrice = new ConcurrentSkipListMap<>(PRICE_ORDER);
+    private final ConcurrentSkipListMap<NameKey, Product> byName = new ConcurrentSkipListMap<>(NAME_ORDER);
+    private final Map<String, Map<String, Product>> byCategory = new ConcurrentHashMap<>();
+
+    public Optional<Product> get(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Collection<Product> values() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public synchronized void put(Product product) {
+        Product previous = byId.put(product.id(), product);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (product.price() != null) {
+            byPrice.put(new PriceKey(product.price(), product.id()), product);
+        }
+        if (product.name() != null) {
+            byName.put(new NameKey(ProductQuery.normalize(product.name()), product.id()), product);
+        }
+        if (product.category() != null) {
+            byCategory.computeIfAbsent(product.category(), category -> new ConcurrentHashMap<>())
+                .put(product.id(), product);
+        }
+    }
+
+    public synchronized boolean remove(String id) {
+        Product previous = byId.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        unindex(previous);
+        return true;
+    }
+
+    private void unindex(Product product) {
+        if (product.price() != null) {
+            byPrice.remove(new PriceKey(product.price(), product.id()));
+        }
+        if (product.name() != null) {
+            byName.remove(new NameKey(ProductQuery.normalize(product.name()), product.id()));
+        }
+        if (product.category() != null) {
+            Map<String, Product> category = byCategory.get(product.category());
+            category.remove(product.id());
+            if (category.isEmpty()) {
+                byCategory.remove(product.category());
+            }
+        }
+    }
+
+    /**
+     * Answers a query from the indexes.
+     * A name prefix is resolved on the name index, otherwise a category on the category's products,
+     * otherwise a price range on the price index.
+     * When the walked index already yields the requested order, iteration stops at the limit.
+     * Products without the walked attribute are not in its index; unless the query excludes them,
+     * they follow the indexed ones, which is where the query's ordering puts them.
+     */
+    public List<Product> query(ProductQuery query) {
+        int limit = query.limit() == null ? Integer.MAX_VALUE : query.limit();
+        if (limit == 0) {
+            return List.of();
+        }
+        Iterable<Product> candidates;
+        boolean ordered;
+
+        if (query.namePrefix() != null) {
+            String prefix = ProductQuery.normalize(query.namePrefix());
+            candidates = () -> byName.tailMap(new NameKey(prefix, ""), true).entrySet().stream()
+                .takeWhile(entry -> entry.getKey().name().startsWith(prefix))
+                .map(Map.Entry::getValue)
+                .iterator();
+            ordered = query.sort() != ProductQuery.Sort.PRICE;
+        } else if (query.category() != null) {
+            candidates = byCategory.getOrDefault(query.category(), Map.of()).values();
+            ordered = query.sort() == ProductQuery.Sort.NONE;
+        } else if (query.sort() == ProductQuery.Sort.NAME) {
+            candidates = thenUnindexed(byName.values(), product -> product.name() == null);
+            ordered = true;
+        } else if (query.minPrice() == null && query.maxPrice() == null) {
+            candidates = thenUnindexed(byPrice.values(), product -> product.price() == null);
+            ordered = true;
+        } else {
+            candidates = priceRange(query.minPrice(), query.maxPrice()).values();
+            ordered = true;
+        }
+
+        List<Product> results = new ArrayList<>();
+        for (Product product : candidates) {
+            if (!query.matches(product)) {
+                continue;
+            }
+            results.add(product);
+            if (ordered && results.size() >= limit) {
+                break;
+            }
+        }
+
+        if (!ordered) {
+            results.sort(query.comparator());
+            if (results.size() > limit) {
+                results = new ArrayList<>(results.subList(0, limit));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The products of an index followed by those missing from it, which are only looked up
+     * once the index is exhausted.
+     */
+    private Iterable<Product> thenUnindexed(Collection<Product> indexed, Predicate<Product> unindexed) {
+        return () -> Stream.concat(indexed.stream(), byId.values().stream().filter(unindexed)).iterator();
+    }
+
+    private NavigableMap<PriceKey, Product> priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice != null && maxPrice != null) {
+            return byPrice.subMap(new PriceKey(minPrice, ""), true, new PriceKey(maxPrice, null), true);
+        } else if (minPrice != null) {
+            return byPrice.tailMap(new PriceKey(minPrice, ""), true);
+        } else if (maxPrice != null) {
+            return byPrice.headMap(new PriceKey(maxPrice, null), true);
+        }
+        return byPrice;
+    }
+
+    // A null id sorts after every real id, so it bounds a range inclusively from above
+    private record PriceKey(BigDecimal price, String id) {
+    }
+
+    private record NameKey(String name, String id) {
+    }
+}
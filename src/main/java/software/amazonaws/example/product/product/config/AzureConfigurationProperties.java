@@ -4,19 +4,20 @@
 package software.amazonaws.example.product.product.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
 
 /**
  * Azure configuration properties for the Product Service.
  * Replaces AWS environment variables with Azure-specific configuration.
  */
-@Configuration
 @ConfigurationProperties(prefix = "azure")
 public class AzureConfigurationProperties {
 
     private final Cosmos cosmos = new Cosmos();
     private final ApplicationInsights applicationInsights = new ApplicationInsights();
     private final Identity identity = new Identity();
+    private final Storage storage = new Storage();
 
     public Cosmos getCosmos() {
         return cosmos;
@@ -30,11 +31,19 @@ public class AzureConfigurationProperties {
         return identity;
     }
 
+    public Storage getStorage() {
+        return storage;
+    }
+
     public static class Cosmos {
         private String endpoint;
         private String key;
         private String databaseName;
         private String containerName;
+        private String consistencyLevel;
+        private String partitionKey = "id";
+        private final ChangeFeed changeFeed = new ChangeFeed();
+        private final Migration migration = new Migration();
 
         public String getEndpoint() {
             return endpoint;
@@ -67,6 +76,96 @@ public class AzureConfigurationProperties {
         public void setContainerName(String containerName) {
             this.containerName = containerName;
         }
+
+        public String getConsistencyLevel() {
+            return consistencyLevel;
+        }
+
+        public void setConsistencyLevel(String consistencyLevel) {
+            this.consistencyLevel = consistencyLevel;
+        }
+
+        /**
+         * How products are partitioned: "id", or "category" for single-partition category listings.
+         */
+        public String getPartitionKey() {
+            return partitionKey;
+        }
+
+        public void setPartitionKey(String partitionKey) {
+            this.partitionKey = partitionKey;
+        }
+
+        public ChangeFeed getChangeFeed() {
+            return changeFeed;
+        }
+
+        public Migration getMigration() {
+            return migration;
+        }
+    }
+
+    public static class Migration {
+        private String sourceContainer;
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * Container to copy products from into the configured container, e.g. when repartitioning by category.
+         */
+        public String getSourceContainer() {
+            return sourceContainer;
+        }
+
+        public void setSourceContainer(String sourceContainer) {
+            this.sourceContainer = sourceContainer;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+    }
+
+    public static class ChangeFeed {
+        private boolean enabled;
+        private Duration pollInterval = Duration.ofSeconds(1);
+        private Duration maxStaleness = Duration.ofSeconds(10);
+        private Duration rebuildInterval = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        public void setMaxStaleness(Duration maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
     }
 
     public static class ApplicationInsights {
@@ -101,4 +200,99 @@ public class AzureConfigurationProperties {
             this.clientId = clientId;
         }
     }
-}
\ No newline at end of file
+
+    public static class Storage {
+        private String endpoint;
+        private String connectionString;
+        private final Snapshot snapshot = new Snapshot();
+
+        /**
+         * Blob service endpoint, used with Azure identity when no connection string is set.
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Connection string, e.g. UseDevelopmentStorage=true for the Azurite emulator.
+         */
+        public String getConnectionString() {
+            return connectionString;
+        }
+
+        public void setConnectionString(String connectionString) {
+            this.connectionString = connectionString;
+        }
+
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    public static class Snapshot {
+        private boolean enabled;
+        private String container = "catalog-snapshots";
+        private String blobName = "catalog.snapshot";
+        private Duration exportInterval = Duration.ofMinutes(15);
+        private Duration maxAge = Duration.ofHours(6);
+        private Duration downloadTimeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getContainer() {
+            return container;
+        }
+
+        public void setContainer(String container) {
+            this.container = container;
+        }
+
+        public String getBlobName() {
+            return blobName;
+        }
+
+        public void setBlobName(String blobName) {
+            this.blobName = blobName;
+        }
+
+        /**
+         * How often a snapshot is written; replicas skip the export when another one wrote a recent snapshot.
+         */
+        public Duration getExportInterval() {
+            return exportInterval;
+        }
+
+        public void setExportInterval(Duration exportInterval) {
+            this.exportInterval = exportInterval;
+        }
+
+        /**
+         * Snapshots older than this are not loaded at startup.
+         */
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public Duration getDownloadTimeout() {
+            return downloadTimeout;
+        }
+
+        public void setDownloadTimeout(Duration downloadTimeout) {
+            this.downloadTimeout = downloadTimeout;
+        }
+    }
+}
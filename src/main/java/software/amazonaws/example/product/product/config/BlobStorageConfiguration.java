@@ -0,0 +1,48 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import com.azure.identity.DefaultAzureCredentialBuilder;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Azure Blob Storage configuration.
+ * Configures the container catalog snapshots are written to and loaded from.
+ */
+@Configuration
+@ConditionalOnProperty(name = "azure.storage.snapshot.enabled", havingValue = "true")
+public class BlobStorageConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStorageConfiguration.class);
+
+    private final AzureConfigurationProperties azureConfig;
+
+    public BlobStorageConfiguration(AzureConfigurationProperties azureConfig) {
+        this.azureConfig = azureConfig;
+    }
+
+    @Bean
+    public BlobContainerClient snapshotContainerClient() {
+        AzureConfigurationProperties.Storage storage = azureConfig.getStorage();
+        BlobServiceClientBuilder clientBuilder = new BlobServiceClientBuilder();
+
+        // Use a connection string if provided (e.g. for Azurite), otherwise use Azure identity
+        if (storage.getConnectionString() != null && !storage.getConnectionString().isEmpty()) {
+            logger.info("Using connection string authentication for Blob Storage");
+            clientBuilder.connectionString(storage.getConnectionString());
+        } else {
+            logger.info("Using Azure identity authentication for Blob Storage at {}", storage.getEndpoint());
+            clientBuilder.endpoint(storage.getEndpoint())
+                .credential(new DefaultAzureCredentialBuilder().build());
+        }
+
+        return clientBuilder.buildClient().getBlobContainerClient(storage.getSnapshot().getContainer());
+    }
+}
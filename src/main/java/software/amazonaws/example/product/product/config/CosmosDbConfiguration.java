@@ -3,6 +3,7 @@
 
 package software.amazonaws.example.product.product.config;
 
+import com.azure.cosmos.ConsistencyLevel;
 import com.azure.cosmos.CosmosClient;
 import com.azure.cosmos.CosmosClientBuilder;
 import com.azure.cosmos.DirectConnectionConfig;
@@ -48,6 +49,13 @@ public class CosmosDbConfiguration {
             clientBuilder = clientBuilder.credential(new DefaultAzureCredentialBuilder().build());
         }
 
+        // Relax below the account default when configured; session tokens keep read-your-writes per client
+        String consistencyLevel = azureConfig.getCosmos().getConsistencyLevel();
+        if (consistencyLevel != null && !consistencyLevel.isEmpty()) {
+            logger.info("Using {} consistency for Cosmos DB", consistencyLevel);
+            clientBuilder = clientBuilder.consistencyLevel(ConsistencyLevel.valueOf(consistencyLevel.toUpperCase()));
+        }
+
         // Configure connection options for optimal performance
         CosmosClient client = clientBuilder
             .directMode(DirectConnectionConfig.getDefaultConfig())
@@ -0,0 +1,82 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazonaws.example.product.product.dao.CosmosProductDao;
+import software.amazonaws.example.product.product.dao.DynamoProductDao;
+import software.amazonaws.example.product.product.health.CachedHealthIndicator;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Health indicators for the database backends, checked in the background and answered from cache.
+ * The backend serving requests is "primaryDatabase", part of the readiness group: a replica that cannot
+ * reach it stops receiving traffic. The shadow backend, if any, is "shadowDatabase" and only reported.
+ * Neither is part of the liveness group, as restarting a replica does not bring a database back.
+ */
+@Configuration
+public class HealthConfiguration {
+
+    // DynamoDB table statuses in which the table serves reads and writes
+    private static final Set<String> SERVING_TABLE_STATUSES = Set.of("ACTIVE", "UPDATING");
+
+    private final ProductConfigurationProperties productConfig;
+
+    public HealthConfiguration(ProductConfigurationProperties productConfig) {
+        this.productConfig = productConfig;
+    }
+
+    @Bean
+    public CachedHealthIndicator primaryDatabaseHealthIndicator(DynamoProductDao dynamoProductDao,
+                                                                ObjectProvider<CosmosProductDao> cosmosProductDao) {
+        CosmosProductDao cosmos = cosmosProductDao.getIfAvailable();
+        boolean cosmosPrimary = productConfig.getDao().primaryBackend(cosmos != null)
+            == ProductConfigurationProperties.Backend.COSMOS;
+        return cosmosPrimary
+            ? cached("primary-cosmos", cosmosContainer(cosmos))
+            : cached("primary-dynamodb", dynamoDbTable(dynamoProductDao));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.dao.shadow.enabled", havingValue = "true")
+    public CachedHealthIndicator shadowDatabaseHealthIndicator(DynamoProductDao dynamoProductDao,
+                                                               CosmosProductDao cosmosProductDao) {
+        boolean cosmosPrimary = productConfig.getDao().primaryBackend(true)
+            == ProductConfigurationProperties.Backend.COSMOS;
+        return cosmosPrimary
+            ? cached("shadow-dynamodb", dynamoDbTable(dynamoProductDao))
+            : cached("shadow-cosmos", cosmosContainer(cosmosProductDao));
+    }
+
+    private CachedHealthIndicator cached(String name, CachedHealthIndicator.Probe probe) {
+        ProductConfigurationProperties.HealthCheck health = productConfig.getHealth();
+        return new CachedHealthIndicator(name, probe, health.getInterval(), health.getTimeout(),
+            health.getFailureThreshold());
+    }
+
+    private static CachedHealthIndicator.Probe cosmosContainer(CosmosProductDao cosmos) {
+        return () -> Map.of(
+            "backend", "cosmosdb",
+            "container", cosmos.getContainerName(),
+            "requestCharge", cosmos.checkContainer());
+    }
+
+    private static CachedHealthIndicator.Probe dynamoDbTable(DynamoProductDao dynamo) {
+        return () -> {
+            String tableStatus = dynamo.describeTable();
+            if (!SERVING_TABLE_STATUSES.contains(tableStatus)) {
+                throw new IllegalStateException("Table " + dynamo.getProductTableName() + " is " + tableStatus);
+            }
+            return Map.of(
+                "backend", "dynamodb",
+                "table", dynamo.getProductTableName(),
+                "tableStatus", tableStatus);
+        };
+    }
+}
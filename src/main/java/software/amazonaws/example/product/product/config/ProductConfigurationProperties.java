@@ -0,0 +1,980 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product service configuration properties.
+ * Tunes the caching and traffic management features of the service.
+ */
+@ConfigurationProperties(prefix = "product")
+public class ProductConfigurationProperties {
+
+    private final Cache cache = new Cache();
+    private final Dao dao = new Dao();
+    private final Saturation saturation = new Saturation();
+    private final RateLimit rateLimit = new RateLimit();
+    private final Idempotency idempotency = new Idempotency();
+    private final Invalidation invalidation = new Invalidation();
+    private final Profiling profiling = new Profiling();
+    private final Deadline deadline = new Deadline();
+    private final HealthCheck health = new HealthCheck();
+    private final Grpc grpc = new Grpc();
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Dao getDao() {
+        return dao;
+    }
+
+    public Saturation getSaturation() {
+        return saturation;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public Invalidation getInvalidation() {
+        return invalidation;
+    }
+
+    public Profiling getProfiling() {
+        return profiling;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public HealthCheck getHealth() {
+        return health;
+    }
+
+    public Grpc getGrpc() {
+        return grpc;
+    }
+
+    public static class Cache {
+        private final Response response = new Response();
+        private final OffHeap offHeap = new OffHeap();
+        private final Negative negative = new Negative();
+        private final Peer peer = new Peer();
+
+        public Response getResponse() {
+            return response;
+        }
+
+        public OffHeap getOffHeap() {
+            return offHeap;
+        }
+
+        public Negative getNegative() {
+            return negative;
+        }
+
+        public Peer getPeer() {
+            return peer;
+        }
+    }
+
+    public static class Response {
+        private boolean enabled;
+        private int maxEntries = 10_000;
+        private Duration ttl = Duration.ofSeconds(30);
+        private int minCompressSize = 512;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMinCompressSize() {
+            return minCompressSize;
+        }
+
+        public void setMinCompressSize(int minCompressSize) {
+            this.minCompressSize = minCompressSize;
+        }
+    }
+
+    public static class OffHeap {
+        private boolean enabled;
+        private int maxEntries = 1_000_000;
+        private int slotSize = 128;
+        private int segments = 16;
+        private Duration ttl = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public int getSlotSize() {
+            return slotSize;
+        }
+
+        public void setSlotSize(int slotSize) {
+            this.slotSize = slotSize;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+
+        public void setSegments(int segments) {
+            this.segments = segments;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class Negative {
+        private boolean enabled;
+        private long expectedIds = 1_000_000;
+        private double falsePositiveRate = 0.01;
+        private Duration rebuildInterval = Duration.ofMinutes(15);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Ids the filter is initially sized for; it grows beyond this at a cost in memory.
+         */
+        public long getExpectedIds() {
+            return expectedIds;
+        }
+
+        public void setExpectedIds(long expectedIds) {
+            this.expectedIds = expectedIds;
+        }
+
+        /**
+         * Share of reads of absent ids still sent to the database.
+         */
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class Peer {
+        private boolean enabled;
+        private List<String> peers = new ArrayList<>();
+        private String self;
+        private String dnsName;
+        private Duration refreshInterval = Duration.ofSeconds(10);
+        private int pointsPerPeer = 128;
+        private Duration timeout = Duration.ofMillis(200);
+        private Duration suspendDuration = Duration.ofSeconds(5);
+        private int maxEntries = 100_000;
+        private Duration ttl = Duration.ofMinutes(5);
+        private int hotThreshold = 20;
+        private Duration hotWindow = Duration.ofSeconds(1);
+        private int maxHotEntries = 1000;
+        private Duration hotTtl = Duration.ofSeconds(2);
+        private String secret;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Base URLs of all replicas including this one, e.g. http://localhost:8081/api; used without a DNS name.
+         */
+        public List<String> getPeers() {
+            return peers;
+        }
+
+        public void setPeers(List<String> peers) {
+            this.peers = peers;
+        }
+
+        /**
+         * Base URL of this replica as listed in peers; with a DNS name, found from the local addresses.
+         */
+        public String getSelf() {
+            return self;
+        }
+
+        public void setSelf(String self) {
+            this.self = self;
+        }
+
+        /**
+         * Name resolving to the addresses of all replicas, e.g. a headless service; overrides peers.
+         */
+        public String getDnsName() {
+            return dnsName;
+        }
+
+        public void setDnsName(String dnsName) {
+            this.dnsName = dnsName;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        /**
+         * Points per replica on the consistent hash ring.
+         */
+        public int getPointsPerPeer() {
+            return pointsPerPeer;
+        }
+
+        public void setPointsPerPeer(int pointsPerPeer) {
+            this.pointsPerPeer = pointsPerPeer;
+        }
+
+        /**
+         * Longest wait for the owner of a product before reading it from the database instead.
+         */
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        /**
+         * How long a replica that failed to answer is bypassed.
+         */
+        public Duration getSuspendDuration() {
+            return suspendDuration;
+        }
+
+        public void setSuspendDuration(Duration suspendDuration) {
+            this.suspendDuration = suspendDuration;
+        }
+
+        /**
+         * Products cached for the ids this replica owns.
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * Reads of a product owned elsewhere within the hot window after which it is also cached locally.
+         */
+        public int getHotThreshold() {
+            return hotThreshold;
+        }
+
+        public void setHotThreshold(int hotThreshold) {
+            this.hotThreshold = hotThreshold;
+        }
+
+        public Duration getHotWindow() {
+            return hotWindow;
+        }
+
+        public void setHotWindow(Duration hotWindow) {
+            this.hotWindow = hotWindow;
+        }
+
+        public int getMaxHotEntries() {
+            return maxHotEntries;
+        }
+
+        public void setMaxHotEntries(int maxHotEntries) {
+            this.maxHotEntries = maxHotEntries;
+        }
+
+        /**
+         * How long a local copy of a hot product is served, bounding its staleness after writes elsewhere.
+         */
+        public Duration getHotTtl() {
+            return hotTtl;
+        }
+
+        public void setHotTtl(Duration hotTtl) {
+            this.hotTtl = hotTtl;
+        }
+
+        /**
+         * Shared secret replicas send to each other's internal endpoint; required with the peer cache.
+         */
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+    }
+
+    /**
+     * The database backends a ProductDao can be served from.
+     */
+    public enum Backend {
+        DYNAMODB, COSMOS
+    }
+
+    public static class Dao {
+        private Backend primary;
+        private final Shadow shadow = new Shadow();
+        private final Batching batching = new Batching();
+
+        /**
+         * Backend answering requests; when unset, Cosmos DB if it is enabled and DynamoDB otherwise.
+         */
+        public Backend getPrimary() {
+            return primary;
+        }
+
+        public void setPrimary(Backend primary) {
+            this.primary = primary;
+        }
+
+        /**
+         * The backend answering requests, resolving the default.
+         *
+         * @param cosmosEnabled whether Cosmos DB is configured, i.e. azure.cosmos.enabled
+         * @throws IllegalStateException if the primary is Cosmos DB but it is not enabled
+         */
+        public Backend primaryBackend(boolean cosmosEnabled) {
+            if (primary == null) {
+                return cosmosEnabled ? Backend.COSMOS : Backend.DYNAMODB;
+            }
+            if (primary == Backend.COSMOS && !cosmosEnabled) {
+                throw new IllegalStateException("product.dao.primary is cosmos but azure.cosmos.enabled is not set");
+            }
+            return primary;
+        }
+
+        public Shadow getShadow() {
+            return shadow;
+        }
+
+        public Batching getBatching() {
+            return batching;
+        }
+    }
+
+    public static class Batching {
+        private boolean enabled;
+        private Duration maxWindow = Duration.ofMillis(2);
+        private int maxSize = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Longest a read waits for others to join its batch; the window in use shrinks with the arrival rate.
+         */
+        public Duration getMaxWindow() {
+            return maxWindow;
+        }
+
+        public void setMaxWindow(Duration maxWindow) {
+            this.maxWindow = maxWindow;
+        }
+
+        /**
+         * Reads per batch, at most 100 for DynamoDB's BatchGetItem; a full batch is issued at once.
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class Shadow {
+        private boolean enabled;
+        private double sampleRate = 0.05;
+        private boolean mirrorWrites;
+        private int threads = 2;
+        private int queueCapacity = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public boolean isMirrorWrites() {
+            return mirrorWrites;
+        }
+
+        public void setMirrorWrites(boolean mirrorWrites) {
+            this.mirrorWrites = mirrorWrites;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public static class Saturation {
+        private int targetConcurrency = 20;
+        private int daoTargetConcurrency = 16;
+        private Duration latencySlo = Duration.ofMillis(200);
+        private Duration latencyWindow = Duration.ofMinutes(1);
+
+        /**
+         * In-flight product requests a replica is sized to serve.
+         */
+        public int getTargetConcurrency() {
+            return targetConcurrency;
+        }
+
+        public void setTargetConcurrency(int targetConcurrency) {
+            this.targetConcurrency = targetConcurrency;
+        }
+
+        /**
+         * Concurrent database calls a replica is sized to keep waiting on.
+         */
+        public int getDaoTargetConcurrency() {
+            return daoTargetConcurrency;
+        }
+
+        public void setDaoTargetConcurrency(int daoTargetConcurrency) {
+            this.daoTargetConcurrency = daoTargetConcurrency;
+        }
+
+        /**
+         * Target p99 latency of product requests.
+         */
+        public Duration getLatencySlo() {
+            return latencySlo;
+        }
+
+        public void setLatencySlo(Duration latencySlo) {
+            this.latencySlo = latencySlo;
+        }
+
+        public Duration getLatencyWindow() {
+            return latencyWindow;
+        }
+
+        public void setLatencyWindow(Duration latencyWindow) {
+            this.latencyWindow = latencyWindow;
+        }
+    }
+
+    public static class RateLimit {
+        private boolean enabled;
+        private String apiKeyHeader = "X-API-Key";
+        private List<String> apiKeys = new ArrayList<>();
+        private final Bucket cheap = new Bucket(100, 50);
+        private final Bucket expensive = new Bucket(10, 2);
+        private int maxClients = 100_000;
+        private int metricsClients = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Header identifying the client; clients without a configured key are limited per remote address.
+         */
+        public String getApiKeyHeader() {
+            return apiKeyHeader;
+        }
+
+        public void setApiKeyHeader(String apiKeyHeader) {
+            this.apiKeyHeader = apiKeyHeader;
+        }
+
+        /**
+         * API keys given a budget of their own; any other key is ignored.
+         */
+        public List<String> getApiKeys() {
+            return apiKeys;
+        }
+
+        public void setApiKeys(List<String> apiKeys) {
+            this.apiKeys = apiKeys;
+        }
+
+        /**
+         * Budget for single-item operations: get, put and delete by id.
+         */
+        public Bucket getCheap() {
+            return cheap;
+        }
+
+        /**
+         * Budget for operations that scan the container: listing and searching products.
+         */
+        public Bucket getExpensive() {
+            return expensive;
+        }
+
+        /**
+         * Clients tracked at once; beyond this new clients share overflow budgets until idle ones are evicted.
+         */
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        /**
+         * Clients given their own usage metrics; the rest are reported together as "other".
+         */
+        public int getMetricsClients() {
+            return metricsClients;
+        }
+
+        public void setMetricsClients(int metricsClients) {
+            this.metricsClients = metricsClients;
+        }
+    }
+
+    public static class Bucket {
+        private int capacity;
+        private double refillPerSecond;
+
+        public Bucket() {
+        }
+
+        Bucket(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        /**
+         * Requests a client may burst before being limited.
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Sustained requests per second allowed per client.
+         */
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    public static class Idempotency {
+        private boolean enabled = true;
+        private int maxEntries = 100_000;
+        private Duration ttl = Duration.ofHours(1);
+        private Duration waitTimeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * How long a response is replayed for after the first request completes.
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * How long a duplicate waits for the first request to complete before getting 409.
+         */
+        public Duration getWaitTimeout() {
+            return waitTimeout;
+        }
+
+        public void setWaitTimeout(Duration waitTimeout) {
+            this.waitTimeout = waitTimeout;
+        }
+    }
+
+    public static class Invalidation {
+        private String channel = "local";
+        private String container = "product-invalidations";
+        private Duration ttl = Duration.ofHours(1);
+        private Duration pollInterval = Duration.ofSeconds(1);
+        private int queueCapacity = 10_000;
+
+        /**
+         * How invalidations reach the other replicas: local (single replica) or cosmos.
+         */
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Cosmos DB container the cosmos channel writes invalidations to, created if missing.
+         */
+        public String getContainer() {
+            return container;
+        }
+
+        public void setContainer(String container) {
+            this.container = container;
+        }
+
+        /**
+         * How long invalidation documents are kept in the container.
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        /**
+         * Invalidations waiting to be sent before further ones are dropped.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public static class Profiling {
+        private Duration defaultDuration = Duration.ofSeconds(30);
+        private Duration maxDuration = Duration.ofMinutes(5);
+        private String settings = "default";
+        private String token;
+
+        /**
+         * How long /actuator/jfr records for when the request gives no duration.
+         */
+        public Duration getDefaultDuration() {
+            return defaultDuration;
+        }
+
+        public void setDefaultDuration(Duration defaultDuration) {
+            this.defaultDuration = defaultDuration;
+        }
+
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+
+        public void setMaxDuration(Duration maxDuration) {
+            this.maxDuration = maxDuration;
+        }
+
+        /**
+         * JDK Flight Recorder settings: default (about 1% overhead) or profile (more detail, about 2%).
+         */
+        public String getSettings() {
+            return settings;
+        }
+
+        public void setSettings(String settings) {
+            this.settings = settings;
+        }
+
+        /**
+         * Bearer token required by /actuator/jfr; without one the endpoint refuses every request.
+         */
+        public String getToken() {
+            return token;
+        }
+
+        public void setToken(String token) {
+            this.token = token;
+        }
+    }
+
+    public static class Deadline {
+        private boolean enabled;
+        private Duration defaultTimeout = Duration.ofSeconds(10);
+        private Duration listingTimeout = Duration.ofSeconds(30);
+        private Duration maxTimeout = Duration.ofSeconds(60);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Deadline of requests by id that do not send one.
+         */
+        public Duration getDefaultTimeout() {
+            return defaultTimeout;
+        }
+
+        public void setDefaultTimeout(Duration defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+        }
+
+        /**
+         * Deadline of listings and searches that do not send one.
+         */
+        public Duration getListingTimeout() {
+            return listingTimeout;
+        }
+
+        public void setListingTimeout(Duration listingTimeout) {
+            this.listingTimeout = listingTimeout;
+        }
+
+        /**
+         * Longest deadline a client may ask for; later ones are shortened to it.
+         */
+        public Duration getMaxTimeout() {
+            return maxTimeout;
+        }
+
+        public void setMaxTimeout(Duration maxTimeout) {
+            this.maxTimeout = maxTimeout;
+        }
+    }
+
+    public static class HealthCheck {
+        private Duration interval = Duration.ofSeconds(15);
+        private Duration timeout = Duration.ofSeconds(3);
+        private int failureThreshold = 3;
+
+        /**
+         * Time between checks of a backend; health requests are answered from the last check.
+         */
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        /**
+         * Consecutive failed checks before a backend is reported DOWN.
+         */
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+    }
+
+    public static class Grpc {
+        private boolean enabled;
+        private int port = 9090;
+        private int listPageSize = 500;
+        private int maxInboundMessageSize = 4 * 1024 * 1024;
+        private Duration shutdownGracePeriod = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Port of the gRPC server, separate from the HTTP port.
+         */
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        /**
+         * Products per streamed List message when the caller does not choose.
+         */
+        public int getListPageSize() {
+            return listPageSize;
+        }
+
+        public void setListPageSize(int listPageSize) {
+            this.listPageSize = listPageSize;
+        }
+
+        /**
+         * Largest request accepted, bounding e.g. the ids of a BatchGet.
+         */
+        public int getMaxInboundMessageSize() {
+            return maxInboundMessageSize;
+        }
+
+        public void setMaxInboundMessageSize(int maxInboundMessageSize) {
+            this.maxInboundMessageSize = maxInboundMessageSize;
+        }
+
+        /**
+         * How long calls in flight may complete on shutdown before they are cancelled.
+         */
+        public Duration getShutdownGracePeriod() {
+            return shutdownGracePeriod;
+        }
+
+        public void setShutdownGracePeriod(Duration shutdownGracePeriod) {
+            this.shutdownGracePeriod = shutdownGracePeriod;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import software.amazonaws.example.product.product.cache.NegativeLookupProductDao;
+import software.amazonaws.example.product.product.cache.OffHeapCachingProductDao;
+import software.amazonaws.example.product.product.cache.OffHeapProductStore;
+import software.amazonaws.example.product.product.cache.ProductIdFilter;
+import software.amazonaws.example.product.product.dao.BatchingProductDao;
+import software.amazonaws.example.product.product.dao.CosmosProductDao;
+import software.amazonaws.example.product.product.dao.DeadlineProductDao;
+import software.amazonaws.example.product.product.dao.DynamoProductDao;
+import software.amazonaws.example.product.product.dao.ObservedProductDao;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.dao.ShadowReadProductDao;
+import software.amazonaws.example.product.product.invalidation.ProductInvalidations;
+import software.amazonaws.example.product.product.peer.PeerCache;
+import software.amazonaws.example.product.product.peer.PeerCachingProductDao;
+
+/**
+ * Assembles the ProductDao used by the service layer.
+ * Selects the primary backend (product.dao.primary, defaulting to Cosmos DB when enabled
+ * and DynamoDB otherwise), optionally pairs it with the other backend for shadow reads,
+ * optionally batches concurrent point reads, and wraps the result in the optional cache tiers,
+ * innermost first, so that only cache misses are batched. The innermost tier, the peer cache,
+ * is shared across replicas, so each product is read from the database by the replica owning it.
+ * With request deadlines, the outermost tier abandons calls of requests whose deadline has passed.
+ * Each backend is observed separately so traces show which database served a call, cache hits none.
+ */
+@Configuration
+public class ProductDaoConfiguration {
+
+    private final ProductConfigurationProperties productConfig;
+    private final ObservationRegistry observationRegistry;
+
+    public ProductDaoConfiguration(ProductConfigurationProperties productConfig,
+                                   ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.productConfig = productConfig;
+        this.observationRegistry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+    }
+
+    @Bean
+    @Primary
+    public ProductDao productDao(DynamoProductDao dynamoProductDao,
+                                 ObjectProvider<CosmosProductDao> cosmosProductDao,
+                                 ObjectProvider<ShadowReadProductDao> shadowReadProductDao,
+                                 ObjectProvider<ProductIdFilter> productIdFilter,
+                                 ObjectProvider<OffHeapProductStore> offHeapProductStore,
+                                 ObjectProvider<PeerCache> peerCache,
+                                 ProductInvalidations productInvalidations,
+                                 MeterRegistry meterRegistry) {
+        ProductDao productDao = shadowReadProductDao.getIfAvailable();
+        if (productDao == null) {
+            CosmosProductDao cosmos = cosmosProductDao.getIfAvailable();
+            productDao = primaryBackend(cosmos != null) == ProductConfigurationProperties.Backend.COSMOS
+                ? observed(cosmos, "cosmosdb")
+                : observed(dynamoProductDao, "dynamodb");
+        }
+
+        ProductConfigurationProperties.Batching batching = productConfig.getDao().getBatching();
+        if (batching.isEnabled()) {
+            productDao = new BatchingProductDao(productDao, batching.getMaxWindow(), batching.getMaxSize(), meterRegistry);
+        }
+
+        PeerCache peers = peerCache.getIfAvailable();
+        if (peers != null) {
+            PeerCachingProductDao peerCachingDao = new PeerCachingProductDao(productDao, peers);
+            peers.serveFrom(peerCachingDao);
+            productDao = peerCachingDao;
+        }
+
+        ProductIdFilter idFilter = productIdFilter.getIfAvailable();
+        if (idFilter != null) {
+            idFilter.rebuildFrom(productDao);
+            productDao = new NegativeLookupProductDao(productDao, idFilter, meterRegistry);
+        }
+
+        OffHeapProductStore offHeapStore = offHeapProductStore.getIfAvailable();
+        if (offHeapStore != null) {
+            productDao = new OffHeapCachingProductDao(productDao, offHeapStore, productInvalidations);
+        }
+
+        if (productConfig.getDeadline().isEnabled()) {
+            productDao = new DeadlineProductDao(productDao, meterRegistry);
+        }
+        return productDao;
+    }
+
+    /**
+     * Reads from the primary backend and replays a sample of reads against the other one.
+     * Requires both backends, i.e. azure.cosmos.enabled.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "product.dao.shadow.enabled", havingValue = "true")
+    public ShadowReadProductDao shadowReadProductDao(DynamoProductDao dynamoProductDao,
+                                                     CosmosProductDao cosmosProductDao,
+                                                     MeterRegistry meterRegistry) {
+        ProductConfigurationProperties.Shadow shadow = productConfig.getDao().getShadow();
+        boolean cosmosPrimary = primaryBackend(true) == ProductConfigurationProperties.Backend.COSMOS;
+        ProductDao cosmos = observed(cosmosProductDao, "cosmosdb");
+        ProductDao dynamo = observed(dynamoProductDao, "dynamodb");
+        return new ShadowReadProductDao(
+            cosmosPrimary ? cosmos : dynamo, cosmosPrimary ? "cosmos" : "dynamodb",
+            cosmosPrimary ? dynamo : cosmos, cosmosPrimary ? "dynamodb" : "cosmos",
+            shadow.getSampleRate(), shadow.isMirrorWrites(),
+            shadow.getThreads(), shadow.getQueueCapacity(),
+            meterRegistry);
+    }
+
+    private ProductDao observed(ProductDao backend, String system) {
+        return new ObservedProductDao(backend, system, observationRegistry);
+    }
+
+    private ProductConfigurationProperties.Backend primaryBackend(boolean cosmosEnabled) {
+        return productConfig.getDao().primaryBackend(cosmosEnabled);
+    }
+}
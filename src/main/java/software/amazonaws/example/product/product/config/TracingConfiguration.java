@@ -0,0 +1,56 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * OpenTelemetry tracing configuration.
+ * Spring Boot's auto-configuration bridges Micrometer observations to the OpenTelemetry SDK,
+ * applies parent-based head sampling (management.tracing.sampling.probability) and feeds the
+ * span exporters declared here through a batching span processor. HTTP server spans come from
+ * Spring MVC, service spans from {@code @Observed} and database spans from ObservedProductDao.
+ */
+@Configuration
+public class TracingConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfiguration.class);
+
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    /**
+     * Exports spans over OTLP/HTTP, e.g. to an OpenTelemetry Collector or the Container Apps managed agent.
+     * Uses the property Spring Boot 3.1 binds natively; drop this bean on upgrade.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "management.otlp.tracing.endpoint")
+    public SpanExporter otlpHttpSpanExporter(@Value("${management.otlp.tracing.endpoint}") String endpoint) {
+        logger.info("Exporting spans over OTLP to {}", endpoint);
+        return OtlpHttpSpanExporter.builder()
+            .setEndpoint(endpoint)
+            .build();
+    }
+
+    /**
+     * Writes spans as OTLP JSON to the application log, for local runs and tests without a collector.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "product.tracing.log-spans", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return OtlpJsonLoggingSpanExporter.create();
+    }
+}
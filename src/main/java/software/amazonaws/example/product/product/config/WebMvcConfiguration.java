@@ -0,0 +1,87 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import software.amazonaws.example.product.product.controller.DeadlineInterceptor;
+import software.amazonaws.example.product.product.controller.ProductProtobufHttpMessageConverter;
+import software.amazonaws.example.product.product.controller.RateLimitInterceptor;
+import software.amazonaws.example.product.product.controller.RequestEventInterceptor;
+import software.amazonaws.example.product.product.controller.SessionTokenInterceptor;
+import software.amazonaws.example.product.product.ratelimit.RateLimiter;
+
+import java.util.List;
+
+/**
+ * Spring MVC configuration.
+ * Registers request interceptors and the binary encodings offered through content negotiation:
+ * CBOR (application/cbor), Smile (application/x-jackson-smile) and Protobuf (application/x-protobuf).
+ */
+@Configuration
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+    private final ObjectProvider<RateLimiter> rateLimiter;
+    private final ProductConfigurationProperties productConfig;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public WebMvcConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders,
+                               ObjectProvider<RateLimiter> rateLimiter,
+                               ProductConfigurationProperties productConfig,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.objectMapperBuilders = objectMapperBuilders;
+        this.rateLimiter = rateLimiter;
+        this.productConfig = productConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Rate limiting runs first, after only the request event, so that rejected requests cost
+     * as little as possible yet still show up in Flight Recorder recordings.
+     * The deadline is bound next, so requests that arrive too late are rejected before any other work.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestEventInterceptor()).addPathPatterns("/products/**");
+        rateLimiter.ifAvailable(limiter ->
+            registry.addInterceptor(new RateLimitInterceptor(limiter)).addPathPatterns("/products/**"));
+        if (productConfig.getDeadline().isEnabled()) {
+            registry.addInterceptor(new DeadlineInterceptor(productConfig.getDeadline(),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new))).addPathPatterns("/products/**");
+        }
+        registry.addInterceptor(new SessionTokenInterceptor()).addPathPatterns("/products/**");
+    }
+
+    /**
+     * Appends the binary encodings after JSON so JSON stays the default when any media type is accepted.
+     * The Jackson ones are built from the Boot-customized builder so they honour the same
+     * spring.jackson settings as JSON, e.g. NON_NULL inclusion for sparse responses.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+            || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+            objectMapperBuilder().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+            objectMapperBuilder().factory(new SmileFactory()).build()));
+        converters.add(new ProductProtobufHttpMessageConverter());
+    }
+
+    private Jackson2ObjectMapperBuilder objectMapperBuilder() {
+        return objectMapperBuilders.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+    }
+}
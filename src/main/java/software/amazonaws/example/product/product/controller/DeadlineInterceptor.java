@@ -0,0 +1,94 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+import software.amazonaws.example.product.product.dao.DeadlineProductDao;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Binds the request's deadline to the request thread so that DAOs can bound their backend calls by it.
+ * Clients send the X-Request-Deadline header, either as the milliseconds they are willing to wait,
+ * e.g. "2500", or as an ISO-8601 instant, e.g. "2026-10-19T10:15:30.500Z", which relies on synchronized clocks.
+ * Without the header, listings and searches get the listing timeout and operations by id the default timeout.
+ * A request whose deadline has already passed is answered with 504 Gateway Timeout without being handled.
+ */
+public class DeadlineInterceptor implements HandlerInterceptor {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    private final ProductConfigurationProperties.Deadline config;
+    private final Counter expiredOnArrival;
+
+    public DeadlineInterceptor(ProductConfigurationProperties.Deadline config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.expiredOnArrival = DeadlineProductDao.exceeded(meterRegistry, "arrival");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Duration timeout;
+        try {
+            timeout = timeout(request);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return false;
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            expiredOnArrival.increment();
+            response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+            return false;
+        }
+        DeadlineContext.set(timeout);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DeadlineContext.clear();
+    }
+
+    /**
+     * Time the request may take, from the client's deadline capped at the maximum timeout, or the endpoint's default.
+     *
+     * @throws IllegalArgumentException if the header is neither a number of milliseconds nor an instant
+     */
+    private Duration timeout(HttpServletRequest request) {
+        String header = request.getHeader(DEADLINE_HEADER);
+        if (header == null || header.isBlank()) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return "GET".equals(request.getMethod()) && "/products".equals(pattern)
+                ? config.getListingTimeout()
+                : config.getDefaultTimeout();
+        }
+        Duration requested = parse(header.trim());
+        return requested.compareTo(config.getMaxTimeout()) > 0 ? config.getMaxTimeout() : requested;
+    }
+
+    static Duration parse(String header) {
+        if (header.chars().allMatch(Character::isDigit)) {
+            try {
+                return Duration.ofMillis(Long.parseLong(header));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + DEADLINE_HEADER + ": " + header, e);
+            }
+        }
+        try {
+            return Duration.between(Instant.now(), Instant.parse(header));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + DEADLINE_HEADER + ": " + header, e);
+        }
+    }
+}
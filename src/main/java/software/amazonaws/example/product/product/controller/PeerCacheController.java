@@ -0,0 +1,88 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.peer.PeerCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Internal endpoint through which replicas ask each other for the products they own in the {@link PeerCache},
+ * and tell owners of products changed elsewhere. Not meant to be exposed outside the cluster; callers
+ * must send the secret the replicas share, product.cache.peer.secret, in the X-Peer-Secret header.
+ */
+@RestController
+@RequestMapping("/internal/peer-cache")
+@ConditionalOnProperty(name = "product.cache.peer.enabled", havingValue = "true")
+public class PeerCacheController {
+
+    private final PeerCache peerCache;
+
+    public PeerCacheController(PeerCache peerCache) {
+        this.peerCache = peerCache;
+    }
+
+    /**
+     * Get a product this replica owns, from its share of the cache or the database.
+     *
+     * @param id the product id
+     * @return ResponseEntity containing the product, 404 if it does not exist, 503 if the cache is not serving yet
+     */
+    @GetMapping("/products/{id}")
+    public ResponseEntity<Product> getProduct(@PathVariable String id,
+                                              @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret) {
+        if (!peerCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return peerCache.serve(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Get several products this replica owns, from its share of the cache or in one read from the database.
+     *
+     * @param ids the product ids
+     * @return ResponseEntity containing the products that exist, 503 if the cache is not serving yet
+     */
+    @PostMapping("/products")
+    public ResponseEntity<Products> getProducts(@RequestBody List<String> ids,
+                                                @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret) {
+        if (!peerCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(new Products(new ArrayList<>(peerCache.serve(ids).values())));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Evict a product changed on another replica.
+     *
+     * @param id the product id
+     * @return ResponseEntity with no content
+     */
+    @DeleteMapping("/products/{id}")
+    public ResponseEntity<Void> evictProduct(@PathVariable String id,
+                                             @RequestHeader(name = PeerCache.SECRET_HEADER, required = false) String secret) {
+        if (!peerCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        peerCache.evict(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,13 +3,25 @@
 
 package software.amazonaws.example.product.product.controller;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import software.amazonaws.example.product.product.cache.ProductResponseCache;
+import software.amazonaws.example.product.product.dao.DeadlineExceededException;
+import software.amazonaws.example.product.product.dao.PreconditionFailedException;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
+import software.amazonaws.example.product.product.idempotency.IdempotencyStore;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
 import software.amazonaws.example.product.product.service.ProductService;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 /**
@@ -21,22 +33,70 @@ import java.util.Optional;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductResponseCache responseCache;
+    private final IdempotencyStore idempotencyStore;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectProvider<ProductResponseCache> responseCache,
+                             ObjectProvider<IdempotencyStore> idempotencyStore) {
         this.productService = productService;
+        this.responseCache = responseCache.getIfAvailable();
+        this.idempotencyStore = idempotencyStore.getIfAvailable();
     }
 
     /**
-     * Get all products.
+     * Get all products, or search them by category, name prefix and price range.
      * Migrated from GetAllProductsFunction.
      *
-     * @return ResponseEntity containing all products
+     * @param category optional exact category, served by a single-partition query with category partitioning
+     * @param namePrefix optional case-insensitive name prefix
+     * @param minPrice optional inclusive lower price bound
+     * @param maxPrice optional inclusive upper price bound
+     * @param sort optional ordering, either "price" or "name"
+     * @param limit optional maximum number of products to return
+     * @param fields optional comma separated list of fields to return, e.g. "id,price"
+     * @return ResponseEntity containing the matching products, 504 if the request deadline passed
      */
     @GetMapping
-    public ResponseEntity<Products> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String category,
+                                            @RequestParam(required = false) String namePrefix,
+                                            @RequestParam(required = false) BigDecimal minPrice,
+                                            @RequestParam(required = false) BigDecimal maxPrice,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String fields,
+                                            @RequestHeader HttpHeaders headers) {
         try {
-            Products products = productService.getAllProducts();
-            return ResponseEntity.ok(products);
+            ProductFields projection;
+            ProductQuery query = null;
+            try {
+                projection = ProductFields.parse(fields);
+                if (category != null || namePrefix != null || minPrice != null || maxPrice != null
+                        || sort != null || limit != null) {
+                    query = new ProductQuery(namePrefix, minPrice, maxPrice, ProductQuery.Sort.parse(sort), limit,
+                        category);
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (query == null && projection.isAll() && isCacheable(headers)) {
+                ProductResponseCache.EncodedResponse cached = responseCache.getListing();
+                if (cached == null) {
+                    long generation = responseCache.generation();
+                    cached = responseCache.cacheListing(productService.getAllProducts(), generation);
+                }
+                return encoded(cached, headers);
+            }
+            if (query == null) {
+                return ResponseEntity.ok(projection.isAll()
+                    ? productService.getAllProducts()
+                    : productService.getAllProducts(projection));
+            }
+            return ResponseEntity.ok(projection.isAll()
+                ? productService.searchProducts(query)
+                : productService.searchProducts(query, projection));
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
         } catch (Exception e) {
             // Log the error (Application Insights will capture this)
             e.printStackTrace();
@@ -49,17 +109,43 @@ public class ProductController {
      * Migrated from GetProductByIdFunction.
      *
      * @param id the product ID
-     * @return ResponseEntity containing the product if found, 404 if not found
+     * @param fields optional comma separated list of fields to return, e.g. "id,price"
+     * @return ResponseEntity containing the product if found, 404 if not found,
+     *         504 if the request deadline passed
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
+    public ResponseEntity<?> getProductById(@PathVariable String id,
+                                            @RequestParam(required = false) String fields,
+                                            @RequestHeader HttpHeaders headers) {
         try {
+            ProductFields projection;
+            try {
+                projection = ProductFields.parse(fields);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            if (projection.isAll() && isCacheable(headers)) {
+                ProductResponseCache.EncodedResponse cached = responseCache.getProduct(id);
+                if (cached == null) {
+                    long generation = responseCache.generation();
+                    Optional<Product> product = productService.getProductById(id);
+                    if (product.isEmpty()) {
+                        return ResponseEntity.notFound().build();
+                    }
+                    cached = responseCache.cacheProduct(product.get(), generation);
+                }
+                return encoded(cached, headers);
+            }
+
             Optional<Product> product = productService.getProductById(id);
             if (product.isPresent()) {
-                return ResponseEntity.ok(product.get());
+                return ResponseEntity.ok(projection.project(product.get()));
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
         } catch (Exception e) {
             // Log the error (Application Insights will capture this)
             e.printStackTrace();
@@ -73,10 +159,22 @@ public class ProductController {
      *
      * @param id the product ID from path
      * @param product the product data from request body
+     * @param idempotencyKey optional key identifying retries of the same request, which are answered
+     *                       with the first response instead of writing again
      * @return ResponseEntity with creation status
      */
     @PutMapping("/{id}")
-    public ResponseEntity<String> createOrUpdateProduct(@PathVariable String id, @RequestBody Product product) {
+    public ResponseEntity<String> createOrUpdateProduct(@PathVariable String id, @RequestBody Product product,
+                                                        @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false)
+                                                        String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyStore == null) {
+            return putProduct(id, product);
+        }
+        return idempotencyStore.execute(idempotencyKey, "PUT /products/" + id + " " + product,
+            () -> putProduct(id, product));
+    }
+
+    private ResponseEntity<String> putProduct(String id, Product product) {
         try {
             // Validate that the ID in the path matches the ID in the body
             if (!product.id().equals(id)) {
@@ -85,8 +183,52 @@ public class ProductController {
             }
 
             productService.createOrUpdateProduct(product);
-            return ResponseEntity.status(HttpStatus.CREATED)
+            return withSessionToken(ResponseEntity.status(HttpStatus.CREATED))
                 .body("Product with id = " + id + " created");
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+        } catch (Exception e) {
+            // Log the error (Application Insights will capture this)
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Internal Server Error :: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Update some fields of a product, e.g. only its price, without sending or rewriting the whole product.
+     *
+     * @param id the product ID from path
+     * @param patch the fields to set; an optional expectedPrice makes the update conditional on the current price
+     * @param idempotencyKey optional key identifying retries of the same request
+     * @return ResponseEntity with update status, 404 if the product does not exist,
+     *         412 if its price is not the expected one
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<String> patchProduct(@PathVariable String id, @RequestBody ProductPatch patch,
+                                               @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false)
+                                               String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyStore == null) {
+            return applyPatch(id, patch);
+        }
+        return idempotencyStore.execute(idempotencyKey, "PATCH /products/" + id + " " + patch,
+            () -> applyPatch(id, patch));
+    }
+
+    private ResponseEntity<String> applyPatch(String id, ProductPatch patch) {
+        if (patch.isEmpty()) {
+            return ResponseEntity.badRequest().body("Patch does not set any field");
+        }
+        try {
+            if (productService.patchProduct(id, patch).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return withSessionToken(ResponseEntity.ok())
+                .body("Product with id = " + id + " updated");
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
         } catch (Exception e) {
             // Log the error (Application Insights will capture this)
             e.printStackTrace();
@@ -107,10 +249,13 @@ public class ProductController {
         try {
             boolean deleted = productService.deleteProduct(id);
             if (deleted) {
-                return ResponseEntity.ok("Product with id = " + id + " deleted");
+                return withSessionToken(ResponseEntity.ok())
+                    .body("Product with id = " + id + " deleted");
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
         } catch (Exception e) {
             // Log the error (Application Insights will capture this)
             e.printStackTrace();
@@ -118,4 +263,40 @@ public class ProductController {
                 .body("Internal Server Error :: " + e.getMessage());
         }
     }
+
+    /**
+     * Whether a read can be answered from the encoded response cache.
+     * Clients presenting a session token asked for read-your-writes and always go to the backend.
+     */
+    private boolean isCacheable(HttpHeaders headers) {
+        return responseCache != null
+            && SessionTokenContext.getRequestToken() == null
+            && ProductResponseCache.acceptsJson(headers);
+    }
+
+    /**
+     * Writes pre-encoded JSON bytes, choosing the precompressed variant when the client accepts gzip.
+     * The same URL also serves other representations depending on Accept, so shared caches key on both headers.
+     */
+    private ResponseEntity<byte[]> encoded(ProductResponseCache.EncodedResponse response, HttpHeaders headers) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (response.gzip() != null && ProductResponseCache.acceptsGzip(headers)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip());
+        }
+        return builder.body(response.identity());
+    }
+
+    /**
+     * Echoes the session token returned by the backend for a write,
+     * so the client can present it on later reads for read-your-writes consistency.
+     */
+    private ResponseEntity.BodyBuilder withSessionToken(ResponseEntity.BodyBuilder builder) {
+        String sessionToken = SessionTokenContext.getResponseToken();
+        if (sessionToken != null) {
+            builder.header(SessionTokenInterceptor.SESSION_TOKEN_HEADER, sessionToken);
+        }
+        return builder;
+    }
 }
\ No newline at end of file
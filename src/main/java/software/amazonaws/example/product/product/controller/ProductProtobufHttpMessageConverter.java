@@ -0,0 +1,56 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes Product and Products as Protobuf messages (application/x-protobuf).
+ * The messages are defined in src/main/proto/product.proto.
+ */
+public class ProductProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    public ProductProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Product.class == clazz || Products.class == clazz;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            if (Product.class == clazz) {
+                return ProductProtoMapper.fromMessage(ProductMessage.parseFrom(inputMessage.getBody()));
+            }
+            return ProductProtoMapper.fromMessage(ProductListMessage.parseFrom(inputMessage.getBody()));
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Invalid Protobuf payload: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof Product product) {
+            ProductProtoMapper.toMessage(product).writeTo(outputMessage.getBody());
+        } else {
+            ProductProtoMapper.toMessage((Products) body).writeTo(outputMessage.getBody());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import software.amazonaws.example.product.product.ratelimit.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects product requests over the client's budget with 429 Too Many Requests and a Retry-After header,
+ * before they reach the database. Clients are identified by API key if it is a configured one,
+ * or by remote address otherwise.
+ * Listing and searching products are charged to the expensive budget, operations by id to the cheap one.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long waitNanos = rateLimiter.tryAcquire(client(request), costClass(request));
+        if (waitNanos == 0) {
+            return true;
+        }
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return false;
+    }
+
+    private String client(HttpServletRequest request) {
+        return rateLimiter.clientOf(request.getHeader(rateLimiter.getApiKeyHeader()), request.getRemoteAddr());
+    }
+
+    private static RateLimiter.CostClass costClass(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return "GET".equals(request.getMethod()) && "/products".equals(pattern)
+            ? RateLimiter.CostClass.EXPENSIVE
+            : RateLimiter.CostClass.CHEAP;
+    }
+}
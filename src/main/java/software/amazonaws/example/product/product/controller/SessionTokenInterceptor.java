@@ -0,0 +1,29 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
+
+/**
+ * Binds the session token presented by the client to the request thread
+ * so that DAOs can request read-your-writes consistency from the backend.
+ */
+public class SessionTokenInterceptor implements HandlerInterceptor {
+
+    public static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SessionTokenContext.setRequestToken(request.getHeader(SESSION_TOKEN_HEADER));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SessionTokenContext.clear();
+    }
+}
@@ -0,0 +1,292 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * ProductDao decorator that coalesces point reads arriving close together into one batch read,
+ * a Cosmos DB readMany or a DynamoDB BatchGetItem, so that under load many concurrent gets
+ * cost one round trip and, for Cosmos DB, fewer request units.
+ *
+ * <p>The first read of a batch waits up to the batch window for others to join, then issues the batch
+ * on its own thread and hands every caller its product; a batch reaching the size cap is issued at once
+ * by the read that filled it. No threads are added. The window tunes itself from the arrival rate of reads:
+ * it is as long as the batch takes to fill at that rate, at most the configured window, and zero when
+ * fewer than one other read is expected within the configured window, so that at low traffic reads go
+ * straight to the backend without waiting.
+ *
+ * <p>The batch call runs under the latest deadline of the reads in it, or none if one of them has none,
+ * so that a read with a short deadline does not fail the others; each read stops waiting at its own deadline.
+ * Reads asking for read-your-writes carry a session token bound to their thread, which cannot be
+ * passed to the thread issuing the batch, so they bypass batching. Other operations are passed through.
+ */
+public class BatchingProductDao implements ProductDao {
+
+    // Interval over which arrivals are counted to update the arrival rate
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Weight of the latest interval in the moving average of the arrival rate
+    private static final double RATE_ALPHA = 0.5;
+
+    private final ProductDao delegate;
+    private final long maxWindowNanos;
+    private final int maxSize;
+    private final LongSupplier nanoClock;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private Batch pending;
+    private long arrivals;
+    private long intervalStart;
+    private double arrivalsPerNano;
+    private volatile long windowNanos;
+
+    public BatchingProductDao(ProductDao delegate, Duration maxWindow, int maxSize, MeterRegistry meterRegistry) {
+        this(delegate, maxWindow, maxSize, meterRegistry, System::nanoTime);
+    }
+
+    BatchingProductDao(ProductDao delegate, Duration maxWindow, int maxSize,
+                       MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + maxSize);
+        }
+        this.delegate = delegate;
+        this.maxWindowNanos = maxWindow.toNanos();
+        this.maxSize = maxSize;
+        this.nanoClock = nanoClock;
+        this.intervalStart = nanoClock.getAsLong();
+        this.batchSizes = DistributionSummary.builder("product.dao.batch.size")
+            .description("Products requested per batched read; 1 for reads that went straight to the backend")
+            .register(meterRegistry);
+        Gauge.builder("product.dao.batch.window", this, dao -> dao.windowNanos / 1e9)
+            .description("Current window for collecting reads into a batch")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        if (SessionTokenContext.getRequestToken() != null) {
+            return delegate.getProduct(id);
+        }
+        Batch batch;
+        CompletableFuture<Optional<Product>> result;
+        boolean leader = false;
+        boolean full = false;
+        synchronized (lock) {
+            long now = nanoClock.getAsLong();
+            arrived(now);
+            if (pending == null) {
+                if (windowNanos == 0) {
+                    batch = null;
+                } else {
+                    pending = new Batch();
+                    leader = true;
+                    batch = pending;
+                }
+            } else {
+                batch = pending;
+            }
+            if (batch != null) {
+                result = batch.add(id);
+                if (batch.size() >= maxSize) {
+                    pending = null;
+                    full = true;
+                }
+            } else {
+                result = null;
+            }
+        }
+
+        if (batch == null) {
+            batchSizes.record(1);
+            return delegate.getProduct(id);
+        }
+        if (full) {
+            batch.execute();
+        } else if (leader) {
+            awaitWindow(batch, result);
+        }
+        return join(result);
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        return delegate.getProducts(ids);
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        delegate.putProduct(product);
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        delegate.deleteProduct(id);
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        return delegate.patchProduct(id, patch);
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        return delegate.getAllProduct(fields);
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return delegate.scanProducts(fields, pageSize, continuationToken);
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return delegate.queryProducts(query, fields);
+    }
+
+    /**
+     * Current window for collecting reads into a batch, zero when reads go straight to the backend.
+     */
+    public Duration window() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    /**
+     * Waits for the batch to fill or the window to pass, then issues the batch unless a read filling it already has.
+     */
+    private void awaitWindow(Batch batch, CompletableFuture<Optional<Product>> result) {
+        try {
+            result.get(windowNanos, TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException | ExecutionException e) {
+            // Window passed, or the batch was issued and failed, which join reports
+        } catch (InterruptedException e) {
+            // The batch is still issued: the other reads in it wait for this thread
+            Thread.currentThread().interrupt();
+        }
+        boolean sealed;
+        synchronized (lock) {
+            sealed = pending == batch;
+            if (sealed) {
+                pending = null;
+            }
+        }
+        if (sealed) {
+            batch.execute();
+        }
+    }
+
+    /**
+     * Counts an arrival and, once per interval, updates the moving average of the arrival rate and the window.
+     */
+    private void arrived(long now) {
+        arrivals++;
+        long elapsed = now - intervalStart;
+        if (elapsed < RATE_INTERVAL_NANOS) {
+            return;
+        }
+        arrivalsPerNano = RATE_ALPHA * arrivals / elapsed + (1 - RATE_ALPHA) * arrivalsPerNano;
+        arrivals = 0;
+        intervalStart = now;
+        if (arrivalsPerNano * maxWindowNanos < 1) {
+            windowNanos = 0;
+        } else {
+            windowNanos = Math.min(maxWindowNanos, (long) ((maxSize - 1) / arrivalsPerNano));
+        }
+    }
+
+    /**
+     * Waits for the result of a read in a batch. The batch call is bounded by the latest deadline of the reads
+     * in it, so a read with an earlier deadline stops waiting when its own deadline passes.
+     */
+    private static Optional<Product> join(CompletableFuture<Optional<Product>> result) {
+        Duration remaining = DeadlineContext.remaining();
+        try {
+            if (remaining == null) {
+                return result.join();
+            }
+            return result.get(Math.max(0, remaining.toNanos()), TimeUnit.NANOSECONDS);
+        } catch (CompletionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to get product", e.getCause());
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Request deadline exceeded waiting for a batched read");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while getting product", e);
+        }
+    }
+
+    /**
+     * Reads collected for one batch call; reads of the same id share a result.
+     */
+    private class Batch {
+        // Guarded by lock until the batch is sealed, then only read by the thread issuing it
+        private final Map<String, CompletableFuture<Optional<Product>>> results = new LinkedHashMap<>();
+        // Latest deadline of the reads added, as a nanoTime value; null once a read without one was added
+        private Long deadline;
+        private boolean added;
+
+        CompletableFuture<Optional<Product>> add(String id) {
+            Long at = DeadlineContext.deadlineNanos();
+            if (!added) {
+                deadline = at;
+                added = true;
+            } else if (deadline != null && (at == null || at - deadline > 0)) {
+                deadline = at;
+            }
+            return results.computeIfAbsent(id, key -> new CompletableFuture<>());
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        void execute() {
+            batchSizes.record(results.size());
+            Long own = DeadlineContext.deadlineNanos();
+            DeadlineContext.setDeadlineNanos(deadline);
+            try {
+                if (results.size() == 1) {
+                    Map.Entry<String, CompletableFuture<Optional<Product>>> only = results.entrySet().iterator().next();
+                    only.getValue().complete(delegate.getProduct(only.getKey()));
+                    return;
+                }
+                Map<String, Product> products = delegate.getProducts(results.keySet());
+                results.forEach((id, result) -> result.complete(Optional.ofNullable(products.get(id))));
+            } catch (RuntimeException | Error e) {
+                results.values().forEach(result -> result.completeExceptionally(e));
+            } finally {
+                DeadlineContext.setDeadlineNanos(own);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import com.azure.cosmos.CosmosClient;
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.models.CosmosChangeFeedRequestOptions;
+import com.azure.cosmos.models.FeedRange;
+import com.azure.cosmos.models.FeedResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+
+/**
+ * Copies the products of another Cosmos DB container into the configured one, to move to a container
+ * with a different partition key, e.g. from one partitioned by id to one partitioned by category.
+ * A container's partition key cannot be changed in place, so a new container is created and filled.
+ *
+ * <p>The source's change feed is read from the beginning and then followed, so writes still made
+ * to the source while replicas are switched over are carried across. Each product is copied through
+ * {@link CosmosProductDao#copyProduct}, which stores it in the partition of its category unless the new
+ * container already holds a copy at least as new, e.g. written by a replica already switched over.
+ * The position is held in memory: after a restart the copy starts over, which skips the products copied.
+ * Deletes are not in the change feed; products deleted during the switch-over must be deleted again.
+ * Needs {@code azure.cosmos.enabled}; run it on one replica until every replica uses the new container.
+ */
+@Component
+@ConditionalOnProperty(name = "azure.cosmos.migration.source-container")
+public class CosmosPartitionMigration {
+    private static final Logger logger = LoggerFactory.getLogger(CosmosPartitionMigration.class);
+
+    private final CosmosContainer source;
+    private final String sourceName;
+    private final CosmosProductDao target;
+    private final Counter copied;
+
+    private volatile String continuationToken;
+    private volatile boolean caughtUp;
+
+    public CosmosPartitionMigration(CosmosClient cosmosClient,
+                                    AzureConfigurationProperties azureConfig,
+                                    CosmosProductDao target,
+                                    MeterRegistry meterRegistry) {
+        AzureConfigurationProperties.Cosmos cosmos = azureConfig.getCosmos();
+        this.sourceName = cosmos.getMigration().getSourceContainer();
+        if (sourceName.equals(cosmos.getContainerName())) {
+            throw new IllegalArgumentException("Migration source container " + sourceName
+                + " is the product container itself");
+        }
+        this.source = cosmosClient.getDatabase(cosmos.getDatabaseName()).getContainer(sourceName);
+        this.target = target;
+        this.copied = Counter.builder("product.migration.copied")
+            .description("Products copied from the migration source container")
+            .register(meterRegistry);
+        logger.info("Copying products from container {} into {}, partitioned by {}",
+            sourceName, cosmos.getContainerName(), CosmosPartitioning.parse(cosmos.getPartitionKey()));
+    }
+
+    @Scheduled(fixedDelayString = "${azure.cosmos.migration.poll-interval:PT1S}")
+    public void poll() {
+        long count = 0;
+        try {
+            CosmosChangeFeedRequestOptions options = continuationToken == null
+                ? CosmosChangeFeedRequestOptions.createForProcessingFromBeginning(FeedRange.forFullRange())
+                : CosmosChangeFeedRequestOptions.createForProcessingFromContinuation(continuationToken);
+            for (FeedResponse<CosmosProductItem> page :
+                    source.queryChangeFeed(options, CosmosProductItem.class).iterableByPage()) {
+                for (CosmosProductItem item : page.getResults()) {
+                    if (target.copyProduct(item.product(), item.writtenAt())) {
+                        copied.increment();
+                        count++;
+                    }
+                }
+                // Only advanced past a page once all of it was copied, so a failure retries the page
+                continuationToken = page.getContinuationToken();
+                if (page.getResults().isEmpty()) {
+                    break;
+                }
+            }
+            if (count > 0) {
+                logger.info("Copied {} products from container {}", count, sourceName);
+            } else if (!caughtUp) {
+                caughtUp = true;
+                logger.info("Caught up with container {}; following its changes", sourceName);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Copy from container {} failed after {} products, retrying", sourceName, count, e);
+        }
+    }
+}
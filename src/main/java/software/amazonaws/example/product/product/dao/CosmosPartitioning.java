@@ -0,0 +1,46 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.util.Locale;
+
+/**
+ * How products are spread over the logical partitions of the Cosmos DB container,
+ * set with {@code azure.cosmos.partition-key}.
+ *
+ * <p>{@link #ID}: the container is partitioned on {@code /id}, every product in its own logical partition.
+ * Point reads and writes address one partition; every listing is a cross-partition query.
+ *
+ * <p>{@link #CATEGORY}: the container is partitioned on {@code /_partitionKey}, which holds the product's
+ * category, so listing a category is a single-partition query. Products without a category keep their
+ * id as partition key and stay spread out. The partition of a product can no longer be derived from
+ * its id: point reads go to the partition the replica last saw the product in, and only fall back to a
+ * query on the id across partitions for products not seen yet or moved since. A write to the partition
+ * of a new category is followed by that query, and deletes the copies older than the newest, compared
+ * by a write time stored in the document, each only if unchanged since, so concurrent moves converge on
+ * one copy. This suits catalogs whose traffic is dominated by category listings.
+ */
+public enum CosmosPartitioning {
+    ID,
+    CATEGORY;
+
+    public static CosmosPartitioning parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return ID;
+        }
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Value of the {@code _partitionKey} property of the product's document.
+     */
+    public String partitionKeyOf(Product product) {
+        if (this == CATEGORY && product.category() != null) {
+            return product.category();
+        }
+        return product.id();
+    }
+}
@@ -6,58 +6,120 @@ package software.amazonaws.example.product.product.dao;
 import com.azure.cosmos.CosmosClient;
 import com.azure.cosmos.CosmosContainer;
 import com.azure.cosmos.CosmosDatabase;
+import com.azure.cosmos.CosmosDiagnostics;
+import com.azure.cosmos.CosmosDiagnosticsContext;
+import com.azure.cosmos.CosmosEndToEndOperationLatencyPolicyConfig;
+import com.azure.cosmos.CosmosEndToEndOperationLatencyPolicyConfigBuilder;
 import com.azure.cosmos.CosmosException;
 import com.azure.cosmos.models.*;
 import com.azure.cosmos.util.CosmosPagedIterable;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Azure Cosmos DB implementation of ProductDao.
  * Replaces DynamoDB with Azure Cosmos DB for data persistence.
+ * Items are encoded and decoded by the streaming codecs of {@link CosmosProductItem}.
+ * Products are partitioned by id or by category, see {@link CosmosPartitioning}.
+ * Requests are bounded by the time left until the request deadline, if any, with an end-to-end
+ * latency policy that cancels the operation, retries included, when that time runs out.
  */
 @Component
 @ConditionalOnProperty(name = "azure.cosmos.enabled", havingValue = "true", matchIfMissing = false)
 public class CosmosProductDao implements ProductDao {
     private static final Logger logger = LoggerFactory.getLogger(CosmosProductDao.class);
+    // Id of the document read by health checks; never written
+    private static final String HEALTH_CHECK_ID = "_health-check";
+    private static final int MAX_KNOWN_PARTITION_KEYS = 100_000;
     
     private final CosmosContainer container;
     private final AzureConfigurationProperties azureConfig;
+    private final ObservationRegistry observationRegistry;
+    private final CosmosPartitioning partitioning;
+    // Under category partitioning, the partition each product was last seen in, most recently used last;
+    // lets point reads skip the query across partitions. Another replica may have moved or deleted the
+    // product since, which the point read answers with 404, so entries are only hints
+    private final Map<String, String> knownPartitionKeys = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_KNOWN_PARTITION_KEYS;
+            }
+        });
 
-    public CosmosProductDao(CosmosClient cosmosClient, AzureConfigurationProperties azureConfig) {
+    public CosmosProductDao(CosmosClient cosmosClient, AzureConfigurationProperties azureConfig,
+                            ObservationRegistry observationRegistry) {
         this.azureConfig = azureConfig;
+        this.observationRegistry = observationRegistry;
+        this.partitioning = CosmosPartitioning.parse(azureConfig.getCosmos().getPartitionKey());
         
         // Get database and container
         CosmosDatabase database = cosmosClient.getDatabase(azureConfig.getCosmos().getDatabaseName());
         this.container = database.getContainer(azureConfig.getCosmos().getContainerName());
         
-        logger.info("CosmosProductDao initialized with database: {} and container: {}", 
+        logger.info("CosmosProductDao initialized with database: {} and container: {}, partitioned by {}", 
             azureConfig.getCosmos().getDatabaseName(), 
-            azureConfig.getCosmos().getContainerName());
+            azureConfig.getCosmos().getContainerName(),
+            partitioning);
     }
 
     @Override
     public Optional<Product> getProduct(String id) {
+        if (partitioning == CosmosPartitioning.CATEGORY) {
+            String partitionKey = knownPartitionKeys.get(id);
+            if (partitionKey != null) {
+                Optional<Product> product = readItem(id, partitionKey);
+                if (product.isPresent()) {
+                    return product;
+                }
+                // Moved or deleted by another replica since
+                knownPartitionKeys.remove(id);
+            }
+            return findProduct(id);
+        }
+        return readItem(id, id);
+    }
+
+    private Optional<Product> readItem(String id, String partitionKey) {
         try {
             logger.debug("Getting product with id: {}", id);
             
-            CosmosItemResponse<CosmosProductDocument> response = container.readItem(
+            CosmosItemResponse<CosmosProductItem> response = container.readItem(
                 id, 
-                new PartitionKey(id), 
-                CosmosProductDocument.class
+                new PartitionKey(partitionKey), 
+                itemRequestOptions(),
+                CosmosProductItem.class
             );
+            observe(response.getDiagnostics());
             
             if (response.getItem() != null) {
-                Product product = response.getItem().toProduct();
+                Product product = response.getItem().product();
                 logger.debug("Found product: {}", product);
                 return Optional.of(product);
             }
@@ -66,6 +128,7 @@ public class CosmosProductDao implements ProductDao {
             return Optional.empty();
             
         } catch (CosmosException e) {
+            observe(e.getDiagnostics());
             if (e.getStatusCode() == 404) {
                 logger.debug("Product not found with id: {}", id);
                 return Optional.empty();
@@ -75,22 +138,112 @@ public class CosmosProductDao implements ProductDao {
         }
     }
 
+    /**
+     * Reads the products with one readMany call, which groups the ids by physical partition
+     * and reads each group with a single query. Under category partitioning only the ids whose
+     * partition is known are read that way; the others are looked up with one query across partitions.
+     */
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        Map<String, Product> products = new HashMap<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        try {
+            logger.debug("Getting {} products", ids.size());
+
+            List<Product> found = new ArrayList<>();
+            List<String> unknown = new ArrayList<>();
+            List<CosmosItemIdentity> identities = new ArrayList<>();
+            for (String id : new LinkedHashSet<>(ids)) {
+                String partitionKey = partitioning == CosmosPartitioning.CATEGORY ? knownPartitionKeys.get(id) : id;
+                if (partitionKey != null) {
+                    identities.add(new CosmosItemIdentity(new PartitionKey(partitionKey), id));
+                } else {
+                    unknown.add(id);
+                }
+            }
+            if (!identities.isEmpty()) {
+                // readMany takes no request options in this SDK version, so the deadline is only checked up front
+                DeadlineContext.check();
+                String sessionToken = SessionTokenContext.getRequestToken();
+                FeedResponse<CosmosProductItem> response = sessionToken != null
+                    ? container.readMany(identities, sessionToken, CosmosProductItem.class)
+                    : container.readMany(identities, CosmosProductItem.class);
+                observe(response.getCosmosDiagnostics());
+                response.getResults().forEach(item -> found.add(item.product()));
+                if (partitioning == CosmosPartitioning.CATEGORY && found.size() < identities.size()) {
+                    // Moved or deleted by another replica since; looked up below
+                    Set<String> read = found.stream().map(Product::id).collect(Collectors.toSet());
+                    for (CosmosItemIdentity identity : identities) {
+                        if (!read.contains(identity.getId())) {
+                            knownPartitionKeys.remove(identity.getId());
+                            unknown.add(identity.getId());
+                        }
+                    }
+                }
+            }
+            if (!unknown.isEmpty()) {
+                for (FeedResponse<CosmosProductItem> page : container.queryItems(
+                        new SqlQuerySpec("SELECT * FROM c WHERE ARRAY_CONTAINS(@ids, c.id)",
+                            new SqlParameter("@ids", unknown)),
+                        queryRequestOptions(),
+                        CosmosProductItem.class).iterableByPage()) {
+                    observe(page.getCosmosDiagnostics());
+                    DeadlineContext.check();
+                    for (CosmosProductItem item : page.getResults()) {
+                        found.add(item.product());
+                        knownPartitionKeys.put(item.product().id(), item.partitionKey());
+                    }
+                }
+            }
+            for (Product product : found) {
+                products.put(product.id(), product);
+            }
+
+            logger.debug("Found {} of {} products", products.size(), ids.size());
+            return products;
+
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            logger.error("Error getting {} products", ids.size(), e);
+            throw new RuntimeException("Failed to get products", e);
+        }
+    }
+
     @Override
     public void putProduct(Product product) {
         try {
             logger.debug("Putting product: {}", product);
             
-            CosmosProductDocument document = CosmosProductDocument.fromProduct(product);
-            CosmosItemResponse<CosmosProductDocument> response = container.upsertItem(
-                document,
-                new PartitionKey(product.id()),
-                new CosmosItemRequestOptions()
+            String partitionKey = partitioning.partitionKeyOf(product);
+            String knownPartitionKey = knownPartitionKeys.get(product.id());
+            CosmosItemResponse<byte[]> response = container.upsertItem(
+                partitioning == CosmosPartitioning.CATEGORY
+                    ? CosmosProductItem.encode(product, partitionKey, System.currentTimeMillis())
+                    : CosmosProductItem.encode(product, partitionKey),
+                new PartitionKey(partitionKey),
+                itemRequestOptions()
             );
+            observe(response.getDiagnostics());
+            SessionTokenContext.setResponseToken(response.getSessionToken());
             
             logger.debug("Product saved successfully with id: {}, Request charge: {} RUs", 
                 product.id(), response.getRequestCharge());
+
+            if (partitioning == CosmosPartitioning.CATEGORY && !partitionKey.equals(knownPartitionKey)) {
+                // A product whose category changed, or whose partition is not known here, may have been
+                // written to a new partition; the copy in the old one, and any left by a concurrent write to
+                // yet another partition, are dropped by age. A write within the known partition skips the query
+                knownPartitionKeys.put(product.id(), partitionKey);
+                List<StoredCopy> copies = locate(product.id());
+                if (copies.size() > 1) {
+                    knownPartitionKeys.put(product.id(), reconcile(product.id(), copies).partitionKey());
+                }
+            }
                 
         } catch (CosmosException e) {
+            observe(e.getDiagnostics());
             logger.error("Error saving product: {}", product, e);
             throw new RuntimeException("Failed to save product", e);
         }
@@ -101,47 +254,507 @@ public class CosmosProductDao implements ProductDao {
         try {
             logger.debug("Deleting product with id: {}", id);
             
-            CosmosItemResponse<?> response = container.deleteItem(
-                id,
-                new PartitionKey(id),
-                new CosmosItemRequestOptions()
-            );
-            
-            logger.debug("Product deleted successfully with id: {}, Request charge: {} RUs", 
-                id, response.getRequestCharge());
+            if (partitioning == CosmosPartitioning.CATEGORY) {
+                knownPartitionKeys.remove(id);
+                for (StoredCopy copy : locate(id)) {
+                    deleteItem(id, copy.partitionKey(), null);
+                }
+            } else {
+                deleteItem(id, id, null);
+            }
                 
         } catch (CosmosException e) {
-            if (e.getStatusCode() == 404) {
-                logger.debug("Product not found for deletion with id: {}", id);
-                return; // Consider this as successful deletion
-            }
+            observe(e.getDiagnostics());
             logger.error("Error deleting product with id: {}", id, e);
             throw new RuntimeException("Failed to delete product", e);
         }
     }
 
+    /**
+     * Applies the patch as a partial document update, so only the changed fields are sent.
+     * The condition becomes the patch's filter predicate, which Cosmos DB evaluates atomically
+     * with the update and answers with 412 when it does not hold.
+     */
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        try {
+            logger.debug("Patching product with id: {}", id);
+
+            CosmosPatchOperations operations = CosmosPatchOperations.create();
+            if (patch.name() != null) {
+                operations.set("/name", patch.name());
+            }
+            if (patch.price() != null) {
+                operations.set("/price", patch.price());
+            }
+            CosmosPatchItemRequestOptions options = withDeadline(withSessionToken(new CosmosPatchItemRequestOptions()));
+            if (patch.expectedPrice() != null) {
+                // Written as a plain number literal; the value is a BigDecimal, never client text
+                options.setFilterPredicate("FROM c WHERE c.price = " + patch.expectedPrice().toPlainString());
+            }
+            // The updated document is returned so caches and the projection can apply it without a read
+            options.setContentResponseOnWriteEnabled(true);
+
+            if (partitioning != CosmosPartitioning.CATEGORY) {
+                return Optional.of(patchItem(id, id, operations, options));
+            }
+            String knownPartitionKey = knownPartitionKeys.get(id);
+            if (knownPartitionKey != null) {
+                try {
+                    return Optional.of(patchItem(id, knownPartitionKey, operations, options));
+                } catch (CosmosException e) {
+                    if (e.getStatusCode() != 404) {
+                        throw e;
+                    }
+                    observe(e.getDiagnostics());
+                    // Moved or deleted by another replica since; looked up below
+                    knownPartitionKeys.remove(id);
+                }
+            }
+            List<StoredCopy> copies = locate(id);
+            if (copies.isEmpty()) {
+                logger.debug("Product not found for patch with id: {}", id);
+                return Optional.empty();
+            }
+            String partitionKey = reconcile(id, copies).partitionKey();
+            knownPartitionKeys.put(id, partitionKey);
+            return Optional.of(patchItem(id, partitionKey, operations, options));
+
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            if (e.getStatusCode() == 404) {
+                logger.debug("Product not found for patch with id: {}", id);
+                return Optional.empty();
+            }
+            if (e.getStatusCode() == 412) {
+                throw new PreconditionFailedException(id);
+            }
+            logger.error("Error patching product with id: {}", id, e);
+            throw new RuntimeException("Failed to patch product", e);
+        }
+    }
+
+    private Product patchItem(String id, String partitionKey, CosmosPatchOperations operations,
+                              CosmosPatchItemRequestOptions options) {
+        CosmosItemResponse<CosmosProductItem> response = container.patchItem(
+            id,
+            new PartitionKey(partitionKey),
+            operations,
+            options,
+            CosmosProductItem.class
+        );
+        observe(response.getDiagnostics());
+        SessionTokenContext.setResponseToken(response.getSessionToken());
+
+        logger.debug("Product patched successfully with id: {}, Request charge: {} RUs",
+            id, response.getRequestCharge());
+        return response.getItem().product();
+    }
+
+    /**
+     * Copies a product from another container, e.g. during a {@link CosmosPartitionMigration}, unless this
+     * container already holds a copy at least as new: one written here by a replica already using it must
+     * not be overwritten with the older version from the source. The copy keeps the time it was written
+     * at in the source, so that copies are ordered by age across both containers.
+     *
+     * @param writtenAt epoch milliseconds the product was written at in the source
+     * @return whether the product was written
+     */
+    public boolean copyProduct(Product product, long writtenAt) {
+        String id = product.id();
+        try {
+            List<StoredCopy> copies = locate(id);
+            if (!copies.isEmpty()) {
+                StoredCopy newest = Collections.max(copies, StoredCopy.AGE);
+                if (newest.writtenAtMillis() >= writtenAt) {
+                    logger.debug("Product {} is already as new as the copy from {}", id, writtenAt);
+                    return false;
+                }
+            }
+
+            String partitionKey = partitioning.partitionKeyOf(product);
+            byte[] item = CosmosProductItem.encode(product, partitionKey, writtenAt);
+            StoredCopy existing = copies.stream()
+                .filter(copy -> copy.partitionKey().equals(partitionKey))
+                .findFirst()
+                .orElse(null);
+            CosmosItemRequestOptions options = itemRequestOptions();
+            CosmosItemResponse<byte[]> response;
+            if (existing != null) {
+                // Replaced only if unchanged since located, so a write meanwhile, which is newer, is kept
+                options.setIfMatchETag(existing.etag());
+                response = container.replaceItem(item, id, new PartitionKey(partitionKey), options);
+            } else {
+                response = container.createItem(item, new PartitionKey(partitionKey), options);
+            }
+            observe(response.getDiagnostics());
+
+            if (partitioning == CosmosPartitioning.CATEGORY) {
+                knownPartitionKeys.put(id, partitionKey);
+                if (copies.size() > (existing != null ? 1 : 0)) {
+                    knownPartitionKeys.put(id, reconcile(id, locate(id)).partitionKey());
+                }
+            }
+            return true;
+
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            if (e.getStatusCode() == 409 || e.getStatusCode() == 412) {
+                logger.debug("Product {} was written while being copied, keeping that write", id);
+                return false;
+            }
+            logger.error("Error copying product: {}", product, e);
+            throw new RuntimeException("Failed to copy product", e);
+        }
+    }
+
     @Override
-    public Products getAllProduct() {
+    public Products getAllProduct(ProductFields fields) {
         try {
-            logger.debug("Getting all products");
+            logger.debug("Getting all products with fields: {}", fields.names());
             
-            CosmosPagedIterable<CosmosProductDocument> items = container.queryItems(
-                "SELECT * FROM c",
-                new CosmosQueryRequestOptions(),
-                CosmosProductDocument.class
+            CosmosPagedIterable<CosmosProductItem> items = container.queryItems(
+                "SELECT " + selectList(fields) + " FROM c",
+                queryRequestOptions(),
+                CosmosProductItem.class
             );
             
-            List<Product> productList = new ArrayList<>();
-            for (CosmosProductDocument document : items) {
-                productList.add(document.toProduct());
-            }
+            List<Product> productList = readPages(items);
             
             logger.debug("Retrieved {} products", productList.size());
             return new Products(productList);
             
         } catch (CosmosException e) {
+            observe(e.getDiagnostics());
             logger.error("Error getting all products", e);
             throw new RuntimeException("Failed to get all products", e);
         }
     }
+
+    /**
+     * Reads one page of a query over all items; the continuation token is the query's own.
+     */
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        try {
+            Iterator<FeedResponse<CosmosProductItem>> pages = container.queryItems(
+                "SELECT " + selectList(fields) + " FROM c",
+                queryRequestOptions(),
+                CosmosProductItem.class
+            ).iterableByPage(continuationToken, pageSize).iterator();
+            if (!pages.hasNext()) {
+                return new ProductPage(List.of(), null);
+            }
+            FeedResponse<CosmosProductItem> page = pages.next();
+            observe(page.getCosmosDiagnostics());
+            List<Product> productList = new ArrayList<>(page.getResults().size());
+            for (CosmosProductItem item : page.getResults()) {
+                productList.add(item.product());
+            }
+            return new ProductPage(productList, page.getContinuationToken());
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            logger.error("Error scanning products", e);
+            throw new RuntimeException("Failed to scan products", e);
+        }
+    }
+
+    /**
+     * Runs a search as a parameterized query.
+     * Filtering on name and sorting on price together are served by a composite index
+     * on (name ASC, price ASC); see DATABASE_MIGRATION_GUIDE.md for the indexing policy.
+     */
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        try {
+            logger.debug("Querying products: {}", query);
+
+            List<SqlParameter> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT");
+            if (query.limit() != null) {
+                sql.append(" TOP @limit");
+                parameters.add(new SqlParameter("@limit", query.limit()));
+            }
+            sql.append(' ').append(selectList(fields)).append(" FROM c");
+
+            List<String> filters = new ArrayList<>();
+            if (query.category() != null) {
+                filters.add("c.category = @category");
+                parameters.add(new SqlParameter("@category", query.category()));
+            }
+            if (query.namePrefix() != null) {
+                filters.add("STARTSWITH(c.name, @namePrefix, true)");
+                parameters.add(new SqlParameter("@namePrefix", query.namePrefix().trim()));
+            }
+            if (query.minPrice() != null) {
+                filters.add("c.price >= @minPrice");
+                parameters.add(new SqlParameter("@minPrice", query.minPrice()));
+            }
+            if (query.maxPrice() != null) {
+                filters.add("c.price <= @maxPrice");
+                parameters.add(new SqlParameter("@maxPrice", query.maxPrice()));
+            }
+            if (!filters.isEmpty()) {
+                sql.append(" WHERE ").append(String.join(" AND ", filters));
+            }
+
+            if (query.sort() == ProductQuery.Sort.PRICE) {
+                sql.append(" ORDER BY c.price ASC");
+            } else if (query.sort() == ProductQuery.Sort.NAME) {
+                sql.append(" ORDER BY c.name ASC");
+            }
+
+            CosmosQueryRequestOptions options = queryRequestOptions();
+            if (query.category() != null && partitioning == CosmosPartitioning.CATEGORY) {
+                // The whole category is one logical partition
+                options.setPartitionKey(new PartitionKey(query.category()));
+            }
+            CosmosPagedIterable<CosmosProductItem> items = container.queryItems(
+                new SqlQuerySpec(sql.toString(), parameters),
+                options,
+                CosmosProductItem.class
+            );
+
+            List<Product> productList = readPages(items);
+
+            logger.debug("Query returned {} products", productList.size());
+            return new Products(productList);
+
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            logger.error("Error querying products: {}", query, e);
+            throw new RuntimeException("Failed to query products", e);
+        }
+    }
+
+    /**
+     * Checks that the container answers data-plane requests, e.g. for health checks, with a point read
+     * of a document that does not exist: one request unit, and no metadata request, which Cosmos DB
+     * throttles separately and sparingly.
+     *
+     * @return the request charge of the check
+     */
+    public double checkContainer() {
+        try {
+            return container.readItem(HEALTH_CHECK_ID, new PartitionKey(HEALTH_CHECK_ID),
+                itemRequestOptions(), CosmosProductItem.class).getRequestCharge();
+        } catch (CosmosException e) {
+            if (e.getStatusCode() == 404) {
+                return e.getRequestCharge();
+            }
+            throw e;
+        }
+    }
+
+    public String getContainerName() {
+        return container.getId();
+    }
+
+    /**
+     * Finds a product by id with a query across partitions, as its partition is not known under category partitioning,
+     * then reads it from the partition of its newest copy.
+     */
+    private Optional<Product> findProduct(String id) {
+        try {
+            logger.debug("Finding product with id: {}", id);
+
+            List<StoredCopy> copies = locate(id);
+            if (copies.isEmpty()) {
+                return Optional.empty();
+            }
+            String partitionKey = reconcile(id, copies).partitionKey();
+            knownPartitionKeys.put(id, partitionKey);
+            return readItem(id, partitionKey);
+
+        } catch (CosmosException e) {
+            observe(e.getDiagnostics());
+            logger.error("Error getting product with id: {}", id, e);
+            throw new RuntimeException("Failed to get product", e);
+        }
+    }
+
+    /**
+     * Document of a product in one partition. A product has one, but a write moving it to the partition
+     * of its new category, or concurrent writes moving it to different ones, briefly leave several.
+     *
+     * @param writtenAt epoch milliseconds of the write, or -1 for documents written before it was recorded
+     * @param timestamp the {@code _ts} of the document, in seconds
+     */
+    record StoredCopy(String partitionKey, String etag, long writtenAt, long timestamp) {
+
+        /**
+         * Orders copies oldest first, the same way on every replica: by time of writing, then by partition key.
+         */
+        static final Comparator<StoredCopy> AGE = Comparator
+            .comparingLong(StoredCopy::writtenAtMillis)
+            .thenComparing(StoredCopy::partitionKey);
+
+        /**
+         * Epoch milliseconds the copy was written at, to the second for documents without {@code _writtenAt}.
+         */
+        long writtenAtMillis() {
+            return writtenAt >= 0 ? writtenAt : timestamp * 1000;
+        }
+    }
+
+    /**
+     * Documents holding a product: none if it does not exist, one normally.
+     */
+    private List<StoredCopy> locate(String id) {
+        List<StoredCopy> copies = new ArrayList<>();
+        for (FeedResponse<JsonNode> page : container.queryItems(
+                new SqlQuerySpec("SELECT c._partitionKey, c._etag, c._writtenAt, c._ts FROM c WHERE c.id = @id",
+                    new SqlParameter("@id", id)),
+                queryRequestOptions(),
+                JsonNode.class).iterableByPage()) {
+            observe(page.getCosmosDiagnostics());
+            for (JsonNode copy : page.getResults()) {
+                copies.add(new StoredCopy(copy.path("_partitionKey").asText(), copy.path("_etag").asText(),
+                    copy.path("_writtenAt").asLong(-1), copy.path("_ts").asLong()));
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Keeps the newest copy of a product and deletes the others, each only if unchanged since it was located,
+     * so a copy rewritten meanwhile survives to be reconciled by a later read or write.
+     *
+     * @return the copy kept
+     */
+    private StoredCopy reconcile(String id, List<StoredCopy> copies) {
+        StoredCopy newest = Collections.max(copies, StoredCopy.AGE);
+        for (StoredCopy copy : copies) {
+            if (copy != newest) {
+                logger.info("Deleting older copy of product {} in partition {}", id, copy.partitionKey());
+                deleteItem(id, copy.partitionKey(), copy.etag());
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Deletes the document of a product in one partition; a document that is already gone counts as deleted.
+     *
+     * @param etag ETag the document must still have, or null to delete it whatever its version
+     */
+    private void deleteItem(String id, String partitionKey, String etag) {
+        try {
+            CosmosItemRequestOptions options = itemRequestOptions();
+            if (etag != null) {
+                options.setIfMatchETag(etag);
+            }
+            CosmosItemResponse<?> response = container.deleteItem(
+                id,
+                new PartitionKey(partitionKey),
+                options
+            );
+            observe(response.getDiagnostics());
+            SessionTokenContext.setResponseToken(response.getSessionToken());
+
+            logger.debug("Product deleted successfully with id: {}, Request charge: {} RUs",
+                id, response.getRequestCharge());
+
+        } catch (CosmosException e) {
+            if (e.getStatusCode() == 412) {
+                observe(e.getDiagnostics());
+                logger.debug("Product {} in partition {} changed since located, not deleted", id, partitionKey);
+                return;
+            }
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+            observe(e.getDiagnostics());
+            logger.debug("Product not found for deletion with id: {}", id);
+        }
+    }
+
+    /**
+     * Reads every page of a query, recording each page's request charge on the current observation.
+     * Stops once the request deadline has passed rather than paying for further pages.
+     */
+    private List<Product> readPages(CosmosPagedIterable<CosmosProductItem> items) {
+        List<Product> productList = new ArrayList<>();
+        for (FeedResponse<CosmosProductItem> page : items.iterableByPage()) {
+            observe(page.getCosmosDiagnostics());
+            DeadlineContext.check();
+            for (CosmosProductItem item : page.getResults()) {
+                productList.add(item.product());
+            }
+        }
+        return productList;
+    }
+
+    /**
+     * Adds the status code, request units and retries of a response to the trace of the DAO call.
+     */
+    private void observe(CosmosDiagnostics diagnostics) {
+        CosmosDiagnosticsContext context = diagnostics != null ? diagnostics.getDiagnosticsContext() : null;
+        if (context != null) {
+            ObservedProductDao.annotate(observationRegistry,
+                context.getStatusCode(), context.getTotalRequestCharge(), context.getRetryCount());
+        }
+    }
+
+    /**
+     * Builds item request options carrying the client's session token, if any,
+     * so reads observe that client's earlier writes under session consistency.
+     */
+    private CosmosItemRequestOptions itemRequestOptions() {
+        return withDeadline(withSessionToken(new CosmosItemRequestOptions()));
+    }
+
+    private static <T extends CosmosItemRequestOptions> T withSessionToken(T options) {
+        String sessionToken = SessionTokenContext.getRequestToken();
+        if (sessionToken != null) {
+            options.setSessionToken(sessionToken);
+        }
+        return options;
+    }
+
+    /**
+     * Projects only the requested fields so the query is charged and transferred for less data.
+     */
+    private static String selectList(ProductFields fields) {
+        if (fields.isAll()) {
+            return "*";
+        }
+        return fields.names().stream()
+            .sorted()
+            .map(name -> "c." + name)
+            .collect(Collectors.joining(", "));
+    }
+
+    private CosmosQueryRequestOptions queryRequestOptions() {
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions();
+        String sessionToken = SessionTokenContext.getRequestToken();
+        if (sessionToken != null) {
+            options.setSessionToken(sessionToken);
+        }
+        CosmosEndToEndOperationLatencyPolicyConfig latencyPolicy = latencyPolicy();
+        if (latencyPolicy != null) {
+            options.setCosmosEndToEndOperationLatencyPolicyConfig(latencyPolicy);
+        }
+        return options;
+    }
+
+    private static <T extends CosmosItemRequestOptions> T withDeadline(T options) {
+        CosmosEndToEndOperationLatencyPolicyConfig latencyPolicy = latencyPolicy();
+        if (latencyPolicy != null) {
+            options.setCosmosEndToEndOperationLatencyPolicyConfig(latencyPolicy);
+        }
+        return options;
+    }
+
+    /**
+     * End-to-end latency policy for the time left until the request deadline, or null without a deadline.
+     */
+    private static CosmosEndToEndOperationLatencyPolicyConfig latencyPolicy() {
+        Duration remaining = DeadlineContext.remaining();
+        if (remaining == null) {
+            return null;
+        }
+        DeadlineContext.check();
+        return new CosmosEndToEndOperationLatencyPolicyConfigBuilder(remaining).build();
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@
 
 package software.amazonaws.example.product.product.dao;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import software.amazonaws.example.product.product.entity.Product;
 
@@ -11,6 +12,8 @@ import java.math.BigDecimal;
 /**
  * Document model for Azure Cosmos DB persistence.
  * Maps between Product entity and Cosmos DB document format.
+ * Describes the stored document as a bean; the DAO itself reads and writes items through
+ * the allocation-light codecs of {@link CosmosProductItem}, which produce the same shape.
  */
 public class CosmosProductDocument {
     
@@ -22,6 +25,11 @@ public class CosmosProductDocument {
     
     @JsonProperty("price")
     private BigDecimal price;
+
+    // Uncategorized products are stored without the property
+    @JsonProperty("category")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String category;
     
     @JsonProperty("_partitionKey")
     private String partitionKey;
@@ -38,15 +46,17 @@ public class CosmosProductDocument {
     }
 
     public static CosmosProductDocument fromProduct(Product product) {
-        return new CosmosProductDocument(
+        CosmosProductDocument document = new CosmosProductDocument(
             product.id(),
             product.name(),
             product.price()
         );
+        document.category = product.category();
+        return document;
     }
 
     public Product toProduct() {
-        return new Product(this.id, this.name, this.price);
+        return new Product(this.id, this.name, this.price, this.category);
     }
 
     // Getters and setters
@@ -75,6 +85,14 @@ public class CosmosProductDocument {
         this.price = price;
     }
 
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
     public String getPartitionKey() {
         return partitionKey;
     }
@@ -89,6 +107,7 @@ public class CosmosProductDocument {
                 "id='" + id + '\'' +
                 ", name='" + name + '\'' +
                 ", price=" + price +
+                ", category='" + category + '\'' +
                 ", partitionKey='" + partitionKey + '\'' +
                 '}';
     }
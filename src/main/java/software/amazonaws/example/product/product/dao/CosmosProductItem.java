@@ -0,0 +1,150 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+/**
+ * Product as read from and written to Cosmos DB, with hand-written streaming codecs.
+ * Writes are encoded by {@link #encode} straight from the Product fields to the JSON bytes the SDK
+ * sends as they are. Reads go through the SDK's Jackson mapper, which uses the deserializer declared
+ * here instead of binding a bean: point reads are parsed token by token from the response bytes,
+ * prices exactly as written.
+ * The document shape is the one of {@link CosmosProductDocument}, with the item's own partition key;
+ * of the system properties only {@code _ts} is read, as the time of writing of documents without
+ * {@code _writtenAt}, and the others such as {@code _rid} are skipped.
+ *
+ * @param writtenAt epoch milliseconds the document was written at, from {@code _writtenAt} or else {@code _ts},
+ *                  or -1 when unknown
+ */
+@JsonSerialize(using = CosmosProductItem.Serializer.class)
+@JsonDeserialize(using = CosmosProductItem.Deserializer.class)
+public record CosmosProductItem(Product product, String partitionKey, long writtenAt) {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String PRICE = "price";
+    private static final String CATEGORY = "category";
+    private static final String PARTITION_KEY = "_partitionKey";
+    private static final String WRITTEN_AT = "_writtenAt";
+    private static final String TIMESTAMP = "_ts";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public CosmosProductItem(Product product, String partitionKey) {
+        this(product, partitionKey, -1);
+    }
+
+    /**
+     * Encodes a product as a Cosmos DB item, ready to be passed to the SDK as a byte array.
+     */
+    public static byte[] encode(Product product) {
+        return encode(product, product.id());
+    }
+
+    /**
+     * Encodes a product as a Cosmos DB item with the given {@code _partitionKey}.
+     */
+    public static byte[] encode(Product product, String partitionKey) {
+        return encode(product, partitionKey, -1);
+    }
+
+    /**
+     * Encodes a product as a Cosmos DB item with the given {@code _partitionKey} and, if not negative,
+     * the epoch milliseconds at which it was written as {@code _writtenAt}, which orders the copies
+     * a move between partitions can leave behind.
+     */
+    public static byte[] encode(Product product, String partitionKey, long writtenAt) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder(JSON._getBufferRecycler());
+        try (JsonGenerator generator = JSON.createGenerator(bytes, JsonEncoding.UTF8)) {
+            write(product, partitionKey, writtenAt, generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] item = bytes.toByteArray();
+        // Hands the buffer back to the thread's recycler; closing the builder does not
+        bytes.release();
+        return item;
+    }
+
+    private static void write(Product product, String partitionKey, long writtenAt, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(ID, product.id());
+        if (product.name() != null) {
+            generator.writeStringField(NAME, product.name());
+        }
+        if (product.price() != null) {
+            generator.writeFieldName(PRICE);
+            generator.writeNumber(product.price());
+        }
+        if (product.category() != null) {
+            generator.writeStringField(CATEGORY, product.category());
+        }
+        generator.writeStringField(PARTITION_KEY, partitionKey);
+        if (writtenAt >= 0) {
+            generator.writeNumberField(WRITTEN_AT, writtenAt);
+        }
+        generator.writeEndObject();
+    }
+
+    static final class Serializer extends JsonSerializer<CosmosProductItem> {
+
+        @Override
+        public void serialize(CosmosProductItem item, JsonGenerator generator, SerializerProvider serializers)
+                throws IOException {
+            write(item.product(), item.partitionKey(), -1, generator);
+        }
+    }
+
+    static final class Deserializer extends JsonDeserializer<CosmosProductItem> {
+
+        @Override
+        public CosmosProductItem deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartObjectToken()) {
+                return (CosmosProductItem) context.handleUnexpectedToken(CosmosProductItem.class, parser);
+            }
+            String id = null;
+            String name = null;
+            BigDecimal price = null;
+            String category = null;
+            String partitionKey = null;
+            long writtenAt = -1;
+            long timestamp = -1;
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case ID -> id = parser.getValueAsString();
+                    case NAME -> name = parser.getValueAsString();
+                    case PRICE -> price = token.isNumeric() ? parser.getDecimalValue() : null;
+                    case CATEGORY -> category = parser.getValueAsString();
+                    case PARTITION_KEY -> partitionKey = parser.getValueAsString();
+                    case WRITTEN_AT -> writtenAt = parser.getValueAsLong(-1);
+                    case TIMESTAMP -> timestamp = parser.getValueAsLong(-1);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (writtenAt < 0 && timestamp >= 0) {
+                writtenAt = timestamp * 1000;
+            }
+            return new CosmosProductItem(new Product(id, name, price, category), partitionKey, writtenAt);
+        }
+    }
+}
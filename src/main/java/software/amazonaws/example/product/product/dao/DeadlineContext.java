@@ -0,0 +1,74 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import java.time.Duration;
+
+/**
+ * Per-request holder for the deadline by which the caller needs an answer.
+ * The web layer sets it before the request is handled; DAOs bound their backend calls
+ * and retries by the time remaining, so that work the caller has given up on is abandoned.
+ * The deadline is bound to the request thread; without one, calls are only bounded by client timeouts.
+ */
+public final class DeadlineContext {
+
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private DeadlineContext() {
+    }
+
+    /**
+     * Sets the deadline to the given time from now.
+     */
+    public static void set(Duration timeout) {
+        deadline.set(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Time left until the deadline, negative once it has passed, or null if the request has no deadline.
+     */
+    public static Duration remaining() {
+        Long at = deadline.get();
+        return at == null ? null : Duration.ofNanos(at - System.nanoTime());
+    }
+
+    public static boolean isExpired() {
+        Long at = deadline.get();
+        return at != null && at - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Throws if the deadline has passed, e.g. before starting another page of results or another retry.
+     *
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public static void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    public static void clear() {
+        deadline.remove();
+    }
+
+    /**
+     * The deadline as a {@link System#nanoTime()} value, or null if the request has no deadline.
+     */
+    static Long deadlineNanos() {
+        return deadline.get();
+    }
+
+    /**
+     * Sets the deadline to a {@link System#nanoTime()} value taken from {@link #deadlineNanos()}, or clears it for null,
+     * e.g. to run work shared by several requests under the latest of their deadlines.
+     */
+    static void setDeadlineNanos(Long at) {
+        if (at == null) {
+            deadline.remove();
+        } else {
+            deadline.set(at);
+        }
+    }
+}
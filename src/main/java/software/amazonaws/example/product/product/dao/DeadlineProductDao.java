@@ -0,0 +1,115 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * ProductDao decorator that enforces the request deadline of {@link DeadlineContext}.
+ * Calls made after the deadline has passed are abandoned without touching the cache tiers or the backend,
+ * e.g. the delete following the existence check of a request that already ran out of time.
+ * Failures of calls that ran past the deadline, such as the backend's own timeouts, are reported
+ * as {@link DeadlineExceededException}. Both are counted in product.deadline.exceeded.
+ */
+public class DeadlineProductDao implements ProductDao {
+
+    public static final String EXCEEDED_METRIC = "product.deadline.exceeded";
+
+    private final ProductDao delegate;
+    private final Counter abandoned;
+    private final Counter timedOut;
+
+    public DeadlineProductDao(ProductDao delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.abandoned = exceeded(meterRegistry, "before-call");
+        this.timedOut = exceeded(meterRegistry, "during-call");
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        return guard(() -> delegate.getProduct(id));
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        return guard(() -> delegate.getProducts(ids));
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        guard(() -> {
+            delegate.putProduct(product);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        guard(() -> {
+            delegate.deleteProduct(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        return guard(() -> delegate.patchProduct(id, patch));
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        return guard(() -> delegate.getAllProduct(fields));
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return guard(() -> delegate.scanProducts(fields, pageSize, continuationToken));
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return guard(() -> delegate.queryProducts(query, fields));
+    }
+
+    private <T> T guard(Supplier<T> call) {
+        if (DeadlineContext.isExpired()) {
+            abandoned.increment();
+            throw new DeadlineExceededException("Request deadline exceeded before the database call");
+        }
+        try {
+            return call.get();
+        } catch (DeadlineExceededException e) {
+            timedOut.increment();
+            throw e;
+        } catch (RuntimeException e) {
+            if (DeadlineContext.isExpired()) {
+                timedOut.increment();
+                throw new DeadlineExceededException("Request deadline exceeded during the database call", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Counter of requests abandoned because their deadline passed, by where it was noticed.
+     */
+    public static Counter exceeded(MeterRegistry meterRegistry, String stage) {
+        return Counter.builder(EXCEEDED_METRIC)
+            .description("Requests abandoned because their deadline passed")
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+}
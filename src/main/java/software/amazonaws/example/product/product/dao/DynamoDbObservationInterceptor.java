@@ -0,0 +1,77 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.observation.ObservationRegistry;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+import java.util.List;
+
+/**
+ * AWS SDK interceptor adding DynamoDB response details to the current DAO observation:
+ * HTTP status code, consumed capacity units and the number of retried attempts.
+ * Replaces the X-Ray TracingInterceptor so both backends are traced the same way.
+ */
+public class DynamoDbObservationInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Integer> ATTEMPTS = new ExecutionAttribute<>("ProductDaoAttempts");
+
+    private final ObservationRegistry observationRegistry;
+
+    public DynamoDbObservationInterceptor(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        executionAttributes.putAttribute(ATTEMPTS, attempts == null ? 1 : attempts + 1);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        ObservedProductDao.annotate(observationRegistry,
+            context.httpResponse().statusCode(), consumedCapacity(context.response()), retries(executionAttributes));
+    }
+
+    /**
+     * Capacity units consumed by the request, or -1 if not reported. Single-table operations report one
+     * ConsumedCapacity, multi-table ones such as BatchGetItem a list of them, one per table.
+     */
+    static double consumedCapacity(SdkResponse response) {
+        Object consumed = response.getValueForField("ConsumedCapacity", Object.class).orElse(null);
+        if (consumed instanceof ConsumedCapacity capacity) {
+            return capacity.capacityUnits() != null ? capacity.capacityUnits() : -1;
+        }
+        if (consumed instanceof List<?> capacities && !capacities.isEmpty()) {
+            double total = 0;
+            for (Object capacity : capacities) {
+                if (capacity instanceof ConsumedCapacity tableCapacity && tableCapacity.capacityUnits() != null) {
+                    total += tableCapacity.capacityUnits();
+                }
+            }
+            return total;
+        }
+        return -1;
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        int statusCode = context.exception() instanceof AwsServiceException serviceException
+            ? serviceException.statusCode()
+            : context.httpResponse().map(response -> response.statusCode()).orElse(0);
+        ObservedProductDao.annotate(observationRegistry, statusCode, -1, retries(executionAttributes));
+    }
+
+    private static int retries(ExecutionAttributes executionAttributes) {
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        return attempts == null ? 0 : Math.max(0, attempts - 1);
+    }
+}
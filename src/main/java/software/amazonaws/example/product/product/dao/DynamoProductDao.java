@@ -3,21 +3,31 @@
 
 package software.amazonaws.example.product.product.dao;
 
-import com.amazonaws.xray.interceptors.TracingInterceptor;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.core.SdkSystemSetting;
 import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,31 +35,49 @@ import java.util.Optional;
 @Component
 public class DynamoProductDao implements ProductDao {
   private static final Logger logger = LoggerFactory.getLogger(DynamoProductDao.class);
+  // Keys a single BatchGetItem request may carry
+  private static final int MAX_BATCH_GET_KEYS = 100;
+  // Rounds of retrying keys left unprocessed by BatchGetItem, with exponential backoff
+  private static final int MAX_BATCH_GET_RETRIES = 5;
   
   // Use externalized configuration instead of environment variables
   private final String productTableName;
+  // Global secondary index keyed on category; blank if the table has none
+  private final String categoryIndexName;
   private final DynamoDbClient dynamoDbClient;
 
+  @Autowired
   public DynamoProductDao(
       @Value("${PRODUCT_TABLE_NAME:ProductsTable}") String productTableName,
-      @Value("${AWS_REGION:us-east-1}") String awsRegion) {
-    this.productTableName = productTableName;
-    this.dynamoDbClient = DynamoDbClient.builder()
+      @Value("${PRODUCT_CATEGORY_INDEX:}") String categoryIndexName,
+      @Value("${AWS_REGION:us-east-1}") String awsRegion,
+      ObservationRegistry observationRegistry) {
+    this(productTableName, categoryIndexName, DynamoDbClient.builder()
       .region(Region.of(awsRegion))
       .overrideConfiguration(ClientOverrideConfiguration.builder()
-        .addExecutionInterceptor(new TracingInterceptor())
+        .addExecutionInterceptor(new DynamoDbObservationInterceptor(observationRegistry))
         .build())
       .httpClient(UrlConnectionHttpClient.builder().build())
-      .build();
+      .build());
     
     logger.info("DynamoProductDao initialized with table: {} in region: {}", productTableName, awsRegion);
   }
 
+  DynamoProductDao(String productTableName, String categoryIndexName, DynamoDbClient dynamoDbClient) {
+    this.productTableName = productTableName;
+    this.categoryIndexName = categoryIndexName;
+    this.dynamoDbClient = dynamoDbClient;
+  }
+
   @Override
   public Optional<Product> getProduct(String id) {
+    // DynamoDB has no session tokens; a client asking for read-your-writes gets a strongly consistent read
     GetItemResponse getItemResponse = dynamoDbClient.getItem(GetItemRequest.builder()
-      .key(Map.of("PK", AttributeValue.builder().s(id).build()))
+      .key(ProductMapper.key(id))
       .tableName(productTableName)
+      .consistentRead(SessionTokenContext.getRequestToken() != null)
+      .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+      .overrideConfiguration(deadline())
       .build());
 
     if (getItemResponse.hasItem()) {
@@ -59,11 +87,65 @@ public class DynamoProductDao implements ProductDao {
     }
   }
 
+  /**
+   * Reads the products with BatchGetItem requests of up to 100 keys. Keys the table could not serve
+   * within its throughput come back unprocessed and are requested again after a backoff.
+   */
+  @Override
+  public Map<String, Product> getProducts(Collection<String> ids) {
+    Map<String, Product> products = new HashMap<>();
+    List<String> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+    boolean consistentRead = SessionTokenContext.getRequestToken() != null;
+    for (int from = 0; from < distinctIds.size(); from += MAX_BATCH_GET_KEYS) {
+      List<Map<String, AttributeValue>> keys = distinctIds
+        .subList(from, Math.min(from + MAX_BATCH_GET_KEYS, distinctIds.size()))
+        .stream()
+        .map(ProductMapper::key)
+        .toList();
+      Map<String, KeysAndAttributes> requestItems = Map.of(productTableName, KeysAndAttributes.builder()
+        .keys(keys)
+        .consistentRead(consistentRead)
+        .build());
+      for (int retries = 0; !requestItems.isEmpty(); retries++) {
+        if (retries > 0) {
+          backoff(retries);
+        }
+        BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+          .requestItems(requestItems)
+          .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+          .overrideConfiguration(deadline())
+          .build());
+        for (Map<String, AttributeValue> item : response.responses().getOrDefault(productTableName, List.of())) {
+          Product product = ProductMapper.productFromDynamoDB(item);
+          products.put(product.id(), product);
+        }
+        requestItems = response.unprocessedKeys();
+      }
+    }
+    return products;
+  }
+
+  private static void backoff(int retries) {
+    if (retries > MAX_BATCH_GET_RETRIES) {
+      throw new RuntimeException("Failed to get products: keys left unprocessed after "
+        + MAX_BATCH_GET_RETRIES + " retries");
+    }
+    DeadlineContext.check();
+    try {
+      Thread.sleep(25L << (retries - 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while getting products", e);
+    }
+  }
+
   @Override
   public void putProduct(Product product) {
     dynamoDbClient.putItem(PutItemRequest.builder()
       .tableName(productTableName)
       .item(ProductMapper.productToDynamoDb(product))
+      .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+      .overrideConfiguration(deadline())
       .build());
   }
 
@@ -71,16 +153,61 @@ public class DynamoProductDao implements ProductDao {
   public void deleteProduct(String id) {
     dynamoDbClient.deleteItem(DeleteItemRequest.builder()
       .tableName(productTableName)
-      .key(Map.of("PK", AttributeValue.builder().s(id).build()))
+      .key(ProductMapper.key(id))
+      .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+      .overrideConfiguration(deadline())
       .build());
   }
 
+  /**
+   * Applies the patch with an UpdateItem request, which only carries the changed attributes
+   * and returns the item as updated. Condition failures do not say which part of the condition failed,
+   * so a patch with an expected price that is rejected takes a consistent read to tell a missing product
+   * from one at another price.
+   */
+  @Override
+  public Optional<Product> patchProduct(String id, ProductPatch patch) {
+    try {
+      UpdateItemResponse response = dynamoDbClient.updateItem(UpdateItemRequest.builder()
+        .tableName(productTableName)
+        .key(ProductMapper.key(id))
+        .updateExpression(ProductMapper.updateExpression(patch))
+        .conditionExpression(ProductMapper.updateConditionExpression(patch))
+        .expressionAttributeNames(ProductMapper.updateAttributeNames(patch))
+        .expressionAttributeValues(ProductMapper.updateAttributeValues(patch))
+        .returnValues(ReturnValue.ALL_NEW)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .overrideConfiguration(deadline())
+        .build());
+      return Optional.of(ProductMapper.productFromDynamoDB(response.attributes()));
+    } catch (ConditionalCheckFailedException e) {
+      if (patch.expectedPrice() != null && dynamoDbClient.getItem(GetItemRequest.builder()
+        .key(ProductMapper.key(id))
+        .tableName(productTableName)
+        .consistentRead(true)
+        .projectionExpression("PK")
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .overrideConfiguration(deadline())
+        .build()).hasItem()) {
+        throw new PreconditionFailedException(id);
+      }
+      return Optional.empty();
+    }
+  }
+
   @Override
-  public Products getAllProduct() {
-    ScanResponse scanResponse = dynamoDbClient.scan(ScanRequest.builder()
+  public Products getAllProduct(ProductFields fields) {
+    ScanRequest.Builder scanRequest = ScanRequest.builder()
       .tableName(productTableName)
-      .limit(20)
-      .build());
+      .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+      .overrideConfiguration(deadline())
+      .limit(20);
+    if (!fields.isAll()) {
+      scanRequest
+        .projectionExpression(ProductMapper.projectionExpression(fields))
+        .expressionAttributeNames(ProductMapper.projectionAttributeNames(fields));
+    }
+    ScanResponse scanResponse = dynamoDbClient.scan(scanRequest.build());
     logger.info("Scan returned: {} item(s)", scanResponse.count());
 
     List<Product> productList = new ArrayList<>();
@@ -92,10 +219,109 @@ public class DynamoProductDao implements ProductDao {
     return new Products(productList);
   }
 
-  public void describeTable() {
+  /**
+   * Scans one page of the table; the continuation token is the id of the last item evaluated.
+   * A page can hold fewer items than the page size, or none, before the end of the table.
+   */
+  @Override
+  public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+    ScanRequest.Builder scanRequest = ScanRequest.builder()
+      .tableName(productTableName)
+      .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+      .overrideConfiguration(deadline())
+      .limit(pageSize);
+    if (!fields.isAll()) {
+      scanRequest
+        .projectionExpression(ProductMapper.projectionExpression(fields))
+        .expressionAttributeNames(ProductMapper.projectionAttributeNames(fields));
+    }
+    if (continuationToken != null) {
+      scanRequest.exclusiveStartKey(ProductMapper.key(continuationToken));
+    }
+    ScanResponse scanResponse = dynamoDbClient.scan(scanRequest.build());
+
+    List<Product> productList = new ArrayList<>(scanResponse.count());
+    for (Map<String, AttributeValue> item : scanResponse.items()) {
+      productList.add(ProductMapper.productFromDynamoDB(item));
+    }
+    String next = scanResponse.hasLastEvaluatedKey() && !scanResponse.lastEvaluatedKey().isEmpty()
+      ? ProductMapper.id(scanResponse.lastEvaluatedKey())
+      : null;
+    return new ProductPage(productList, next);
+  }
+
+  @Override
+  public Products queryProducts(ProductQuery query, ProductFields fields) {
+    // A category is read from the category index; without one the whole table is scanned.
+    // Filtering, ordering and the limit are applied here
+    Iterable<Map<String, AttributeValue>> items;
+    if (query.category() != null && !categoryIndexName.isBlank()) {
+      items = dynamoDbClient.queryPaginator(QueryRequest.builder()
+        .tableName(productTableName)
+        .indexName(categoryIndexName)
+        .keyConditionExpression(ProductMapper.categoryKeyCondition())
+        .expressionAttributeNames(ProductMapper.categoryAttributeNames())
+        .expressionAttributeValues(ProductMapper.categoryAttributeValues(query.category()))
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .overrideConfiguration(deadline())
+        .build()).items();
+    } else {
+      items = dynamoDbClient.scanPaginator(ScanRequest.builder()
+        .tableName(productTableName)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .overrideConfiguration(deadline())
+        .build()).items();
+    }
+    List<Product> productList = new ArrayList<>();
+    for (Map<String, AttributeValue> item : items) {
+      // Pages are fetched as the items are iterated; stop paying for them once the caller has given up
+      DeadlineContext.check();
+      Product product = ProductMapper.productFromDynamoDB(item);
+      if (query.matches(product)) {
+        productList.add(product);
+      }
+    }
+    logger.info("Query matched: {} item(s)", productList.size());
+
+    if (query.comparator() != null) {
+      productList.sort(query.comparator());
+    }
+    if (query.limit() != null && productList.size() > query.limit()) {
+      productList = new ArrayList<>(productList.subList(0, query.limit()));
+    }
+    // Filtering needs every attribute, so the projection is applied after the scan
+    return fields.project(new Products(productList));
+  }
+
+  /**
+   * Bounds a request, retries included, by the time left until the request deadline; null without a deadline.
+   */
+  private static AwsRequestOverrideConfiguration deadline() {
+    Duration remaining = DeadlineContext.remaining();
+    if (remaining == null) {
+      return null;
+    }
+    DeadlineContext.check();
+    return AwsRequestOverrideConfiguration.builder()
+      .apiCallTimeout(remaining)
+      .build();
+  }
+
+  /**
+   * Describes the product table, e.g. for health checks.
+   *
+   * @return the table's status, such as ACTIVE or UPDATING
+   */
+  public String describeTable() {
     DescribeTableResponse response = dynamoDbClient.describeTable(DescribeTableRequest.builder()
       .tableName(productTableName)
+      .overrideConfiguration(deadline())
       .build());
+    return response.table().tableStatusAsString();
+  }
+
+  public String getProductTableName() {
+    return productTableName;
   }
 
 }
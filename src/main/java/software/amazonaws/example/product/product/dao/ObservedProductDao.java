@@ -0,0 +1,138 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import software.amazonaws.example.product.product.profiling.DaoCallEvent;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * ProductDao decorator that wraps every database call of a backend in a "product.dao" observation,
+ * which becomes a span when tracing is enabled and a timer otherwise.
+ * The backend DAOs add what only they know, such as status code, request charge and retries,
+ * to the current observation through {@link #annotate}.
+ * Each call is also recorded as a Flight Recorder {@link DaoCallEvent} while a recording is running.
+ */
+public class ObservedProductDao implements ProductDao {
+
+    public static final String OBSERVATION_NAME = "product.dao";
+
+    private static final String STATUS_CODE = "db.response.status_code";
+    private static final String REQUEST_CHARGE = "db.request_charge";
+    private static final String RETRIES = "db.retries";
+
+    private final ProductDao delegate;
+    private final String system;
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * @param system the backend, as the OpenTelemetry db.system attribute, e.g. "cosmosdb" or "dynamodb"
+     */
+    public ObservedProductDao(ProductDao delegate, String system, ObservationRegistry observationRegistry) {
+        this.delegate = delegate;
+        this.system = system;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        return observe("get", id, () -> delegate.getProduct(id));
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        return observe("get_many", null, () -> delegate.getProducts(ids));
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        observe("put", product.id(), () -> {
+            delegate.putProduct(product);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        observe("delete", id, () -> {
+            delegate.deleteProduct(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        return observe("patch", id, () -> delegate.patchProduct(id, patch));
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        return observe("list", null, () -> delegate.getAllProduct(fields));
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return observe("scan", null, () -> delegate.scanProducts(fields, pageSize, continuationToken));
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return observe("query", null, () -> delegate.queryProducts(query, fields));
+    }
+
+    private <T> T observe(String operation, String id, Supplier<T> call) {
+        DaoCallEvent event = DaoCallEvent.begin(system, operation, id);
+        Throwable failure = null;
+        try {
+            return Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName(system + " " + operation)
+                .lowCardinalityKeyValue("db.system", system)
+                .lowCardinalityKeyValue("db.operation", operation)
+                .observe(call);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            DaoCallEvent.end(event, failure);
+        }
+    }
+
+    /**
+     * Records backend response details on the observation and Flight Recorder event of the DAO call in progress, if any.
+     * A call may take several backend requests, e.g. one per result page, so request charges and retries
+     * are summed over the call. They are high-cardinality key values: on the span but not on the timer's tags.
+     *
+     * @param statusCode the status code of the request
+     * @param requestCharge request units (Cosmos DB) or consumed capacity units (DynamoDB), negative if unknown
+     * @param retries the number of attempts after the first
+     */
+    public static void annotate(ObservationRegistry observationRegistry, int statusCode, double requestCharge, int retries) {
+        DaoCallEvent.annotateCurrent(statusCode, requestCharge, retries);
+        Observation observation = observationRegistry.getCurrentObservation();
+        if (observation == null) {
+            return;
+        }
+        Observation.Context context = observation.getContext();
+        observation.highCardinalityKeyValue(STATUS_CODE, String.valueOf(statusCode));
+        if (requestCharge >= 0) {
+            double totalCharge = context.getOrDefault(REQUEST_CHARGE, 0.0) + requestCharge;
+            context.put(REQUEST_CHARGE, totalCharge);
+            observation.highCardinalityKeyValue(REQUEST_CHARGE, String.valueOf(totalCharge));
+        }
+        int totalRetries = context.getOrDefault(RETRIES, 0) + retries;
+        context.put(RETRIES, totalRetries);
+        observation.highCardinalityKeyValue(RETRIES, String.valueOf(totalRetries));
+    }
+}
@@ -4,16 +4,79 @@
 package software.amazonaws.example.product.product.dao;
 
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ProductDao {
   Optional<Product> getProduct(String id);
 
+  /**
+   * Reads several products at once. Backends override this with a single batch request;
+   * this fallback reads them one by one.
+   *
+   * @return the products found, by id; ids that do not exist are absent
+   */
+  default Map<String, Product> getProducts(Collection<String> ids) {
+    Map<String, Product> products = new HashMap<>();
+    for (String id : ids) {
+      getProduct(id).ifPresent(product -> products.put(id, product));
+    }
+    return products;
+  }
+
   void putProduct(Product product);
 
   void deleteProduct(String id);
 
-  Products getAllProduct();
+  /**
+   * Sets the fields present in the patch on an existing product, if it meets the patch's condition.
+   * Backends override this with a server-side partial update; this fallback reads the product and
+   * writes it back whole, which unlike those is not atomic.
+   *
+   * @return the product as updated, or empty if it does not exist
+   * @throws PreconditionFailedException if the product does not meet the patch's condition
+   */
+  default Optional<Product> patchProduct(String id, ProductPatch patch) {
+    Optional<Product> existing = getProduct(id);
+    if (existing.isEmpty()) {
+      return Optional.empty();
+    }
+    if (!patch.matches(existing.get())) {
+      throw new PreconditionFailedException(id);
+    }
+    Product patched = patch.applyTo(existing.get());
+    putProduct(patched);
+    return Optional.of(patched);
+  }
+
+  default Products getAllProduct() {
+    return getAllProduct(ProductFields.ALL);
+  }
+
+  Products getAllProduct(ProductFields fields);
+
+  /**
+   * Reads one page of a scan of every product; pass the page's continuation token back to read the next.
+   * Unlike getAllProduct this covers the whole catalog, however large. Backends override this with a
+   * paged scan; this fallback returns all of getAllProduct as a single page.
+   *
+   * @param continuationToken token of the previous page, or null to start the scan
+   */
+  default ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+    return new ProductPage(getAllProduct(fields).products(), null);
+  }
+
+  default Products queryProducts(ProductQuery query) {
+    return queryProducts(query, ProductFields.ALL);
+  }
+
+  Products queryProducts(ProductQuery query, ProductFields fields);
 }
@@ -5,28 +5,187 @@ package software.amazonaws.example.product.product.dao;
 
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPatch;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class ProductMapper {
   private static final String PK = "PK";
   private static final String NAME = "name";
   private static final String PRICE = "price";
+  private static final String CATEGORY = "category";
+  private static final String EXPECTED_PRICE = ":expectedPrice";
+
+  // Longest number string whose digits always fit in a long
+  private static final int MAX_FAST_NUMBER_LENGTH = 18;
+
+  // There are only a handful of field sets, so their expressions are built once
+  private static final Map<ProductFields, String> PROJECTION_EXPRESSIONS = new ConcurrentHashMap<>();
+  private static final Map<ProductFields, Map<String, String>> PROJECTION_ATTRIBUTE_NAMES = new ConcurrentHashMap<>();
 
   public static Product productFromDynamoDB(Map<String, AttributeValue> items) {
+    // Attributes may be missing when the item was read with a projection expression
+    AttributeValue pk = items.get(PK);
+    AttributeValue name = items.get(NAME);
+    AttributeValue price = items.get(PRICE);
+    AttributeValue category = items.get(CATEGORY);
     return new Product(
-      items.get(PK).s(),
-      items.get(NAME).s(),
-      new BigDecimal(items.get(PRICE).n())
+      pk == null ? null : pk.s(),
+      name == null ? null : name.s(),
+      price == null ? null : parseNumber(price.n()),
+      category == null ? null : category.s()
     );
   }
 
   public static Map<String, AttributeValue> productToDynamoDb(Product product) {
+    if (product.category() == null) {
+      // Uncategorized products have no category attribute, keeping them out of the sparse category index
+      return Map.of(
+        PK, AttributeValue.fromS(product.id()),
+        NAME, AttributeValue.fromS(product.name()),
+        PRICE, AttributeValue.fromN(product.price().toString())
+      );
+    }
     return Map.of(
-      PK, AttributeValue.builder().s(product.id()).build(),
-      NAME, AttributeValue.builder().s(product.name()).build(),
-      PRICE, AttributeValue.builder().n(product.price().toString()).build()
+      PK, AttributeValue.fromS(product.id()),
+      NAME, AttributeValue.fromS(product.name()),
+      PRICE, AttributeValue.fromN(product.price().toString()),
+      CATEGORY, AttributeValue.fromS(product.category())
     );
   }
+
+  /**
+   * Key condition of a query on the category index; see {@link #categoryAttributeNames()} and
+   * {@link #categoryAttributeValues(String)}.
+   */
+  public static String categoryKeyCondition() {
+    return "#" + CATEGORY + " = :" + CATEGORY;
+  }
+
+  public static Map<String, String> categoryAttributeNames() {
+    return Map.of("#" + CATEGORY, CATEGORY);
+  }
+
+  public static Map<String, AttributeValue> categoryAttributeValues(String category) {
+    return Map.of(":" + CATEGORY, AttributeValue.fromS(category));
+  }
+
+  public static Map<String, AttributeValue> key(String id) {
+    return Map.of(PK, AttributeValue.fromS(id));
+  }
+
+  public static String id(Map<String, AttributeValue> key) {
+    return key.get(PK).s();
+  }
+
+  /**
+   * Update expression setting the fields present in the patch, e.g. "SET #price = :price".
+   */
+  public static String updateExpression(ProductPatch patch) {
+    List<String> assignments = new ArrayList<>(2);
+    if (patch.name() != null) {
+      assignments.add("#" + NAME + " = :" + NAME);
+    }
+    if (patch.price() != null) {
+      assignments.add("#" + PRICE + " = :" + PRICE);
+    }
+    return "SET " + String.join(", ", assignments);
+  }
+
+  /**
+   * Condition for a patch: the item must exist, so that an update does not create a partial item,
+   * and have the expected price when the patch carries one.
+   */
+  public static String updateConditionExpression(ProductPatch patch) {
+    String exists = "attribute_exists(#" + PK + ")";
+    return patch.expectedPrice() == null ? exists : exists + " AND #" + PRICE + " = " + EXPECTED_PRICE;
+  }
+
+  // DynamoDB rejects placeholders the expressions do not use, so only those of the patched fields are added
+  public static Map<String, String> updateAttributeNames(ProductPatch patch) {
+    Map<String, String> names = new HashMap<>();
+    names.put("#" + PK, PK);
+    if (patch.name() != null) {
+      names.put("#" + NAME, NAME);
+    }
+    if (patch.price() != null || patch.expectedPrice() != null) {
+      names.put("#" + PRICE, PRICE);
+    }
+    return names;
+  }
+
+  public static Map<String, AttributeValue> updateAttributeValues(ProductPatch patch) {
+    Map<String, AttributeValue> values = new HashMap<>();
+    if (patch.name() != null) {
+      values.put(":" + NAME, AttributeValue.fromS(patch.name()));
+    }
+    if (patch.price() != null) {
+      values.put(":" + PRICE, AttributeValue.fromN(patch.price().toString()));
+    }
+    if (patch.expectedPrice() != null) {
+      values.put(EXPECTED_PRICE, AttributeValue.fromN(patch.expectedPrice().toString()));
+    }
+    return values;
+  }
+
+  /**
+   * Parses a DynamoDB number. Plain decimals of up to 18 characters, which covers prices, are
+   * accumulated into a long without the char array copies of the BigDecimal string constructor;
+   * the result is equal to that constructor's, scale included.
+   */
+  static BigDecimal parseNumber(String n) {
+    int length = n.length();
+    if (length > MAX_FAST_NUMBER_LENGTH) {
+      return new BigDecimal(n);
+    }
+    int i = length > 0 && n.charAt(0) == '-' ? 1 : 0;
+    boolean negative = i == 1;
+    long unscaled = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < length; i++) {
+      char c = n.charAt(i);
+      if (c >= '0' && c <= '9') {
+        unscaled = unscaled * 10 + (c - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        // Exponent, sign or anything unexpected
+        return new BigDecimal(n);
+      }
+    }
+    if (digits == 0) {
+      return new BigDecimal(n);
+    }
+    return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+  }
+
+  public static String projectionExpression(ProductFields fields) {
+    return PROJECTION_EXPRESSIONS.computeIfAbsent(fields, f -> f.names().stream()
+      .sorted()
+      .map(field -> "#" + field)
+      .collect(Collectors.joining(", ")));
+  }
+
+  // "name" is a DynamoDB reserved word, so every projected attribute goes through a placeholder
+  public static Map<String, String> projectionAttributeNames(ProductFields fields) {
+    return PROJECTION_ATTRIBUTE_NAMES.computeIfAbsent(fields, f -> {
+      Map<String, String> names = new HashMap<>();
+      for (String field : f.names()) {
+        names.put("#" + field, ProductFields.ID.equals(field) ? PK : field);
+      }
+      return Map.copyOf(names);
+    });
+  }
 }
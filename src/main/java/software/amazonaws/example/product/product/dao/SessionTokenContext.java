@@ -0,0 +1,48 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+/**
+ * Per-request holder for backend session tokens.
+ * The web layer stores the token presented by the client before the request is handled,
+ * and DAOs record the token returned by the backend after a write so it can be echoed
+ * back to the client. Both values are bound to the request thread.
+ */
+public final class SessionTokenContext {
+
+    private static final ThreadLocal<String> requestToken = new ThreadLocal<>();
+    private static final ThreadLocal<String> responseToken = new ThreadLocal<>();
+
+    private SessionTokenContext() {
+    }
+
+    public static String getRequestToken() {
+        return requestToken.get();
+    }
+
+    public static void setRequestToken(String token) {
+        if (token == null || token.isBlank()) {
+            requestToken.remove();
+        } else {
+            requestToken.set(token);
+        }
+    }
+
+    public static String getResponseToken() {
+        return responseToken.get();
+    }
+
+    public static void setResponseToken(String token) {
+        if (token == null || token.isBlank()) {
+            responseToken.remove();
+        } else {
+            responseToken.set(token);
+        }
+    }
+
+    public static void clear() {
+        requestToken.remove();
+        responseToken.remove();
+    }
+}
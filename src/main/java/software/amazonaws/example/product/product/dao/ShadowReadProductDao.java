@@ -0,0 +1,304 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * ProductDao that answers from a primary backend and replays a sample of reads against a shadow backend.
+ * Used while migrating between DynamoDB and Cosmos DB to compare the two under live traffic:
+ * shadow reads run on bounded single-thread lanes off the request thread and are dropped rather than queued
+ * when a lane falls behind, so the primary path only pays for sampling and a queue offer.
+ * Latency is recorded per backend and operation, and shadow results are compared with the primary ones,
+ * except for listings: DynamoDB returns only the first page of a scan, so they would never match.
+ * Writes can optionally be mirrored to the shadow backend, asynchronously and best effort. Operations on
+ * a product always run on the same lane, so mirrored writes reach the shadow in the order they were made.
+ */
+public class ShadowReadProductDao implements ProductDao, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShadowReadProductDao.class);
+
+    enum Operation {
+        GET, GET_MANY, LIST, QUERY, PUT, PATCH, DELETE
+    }
+
+    private final ProductDao primary;
+    private final ProductDao shadow;
+    private final double sampleRate;
+    private final boolean mirrorWrites;
+    private final ThreadPoolExecutor[] lanes;
+
+    private final Map<Operation, Timer> primaryTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> shadowTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> matches = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> mismatches = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> errors = new EnumMap<>(Operation.class);
+    private final Counter dropped;
+
+    public ShadowReadProductDao(ProductDao primary, String primaryName,
+                                ProductDao shadow, String shadowName,
+                                double sampleRate, boolean mirrorWrites,
+                                int threads, int queueCapacity,
+                                MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.shadow = shadow;
+        this.sampleRate = sampleRate;
+        this.mirrorWrites = mirrorWrites;
+        this.lanes = new ThreadPoolExecutor[threads];
+        ThreadFactory threadFactory = daemonThreads();
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity / threads)), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        for (Operation operation : Operation.values()) {
+            primaryTimers.put(operation, timer(meterRegistry, primaryName, "primary", operation));
+            shadowTimers.put(operation, timer(meterRegistry, shadowName, "shadow", operation));
+            matches.put(operation, comparisons(meterRegistry, operation, "match"));
+            mismatches.put(operation, comparisons(meterRegistry, operation, "mismatch"));
+            errors.put(operation, comparisons(meterRegistry, operation, "error"));
+        }
+        this.dropped = Counter.builder("product.dao.shadow.dropped")
+            .description("Shadow operations dropped because their shadow lane was saturated")
+            .register(meterRegistry);
+
+        logger.info("Shadow reads enabled: primary {}, shadow {}, sample rate {}, mirrored writes {}",
+            primaryName, shadowName, sampleRate, mirrorWrites);
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        Optional<Product> result = primaryTimers.get(Operation.GET).record(() -> primary.getProduct(id));
+        if (sampled()) {
+            shadowRead(Operation.GET, id, () -> shadow.getProduct(id),
+                shadowResult -> sameProduct(result.orElse(null), shadowResult.orElse(null)));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        Map<String, Product> result = primaryTimers.get(Operation.GET_MANY).record(() -> primary.getProducts(ids));
+        if (sampled()) {
+            shadowRead(Operation.GET_MANY, ids, () -> shadow.getProducts(ids),
+                shadowResult -> sameProducts(List.copyOf(result.values()), List.copyOf(shadowResult.values()), false));
+        }
+        return result;
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        primaryTimers.get(Operation.PUT).record(() -> primary.putProduct(product));
+        if (mirrorWrites) {
+            mirror(Operation.PUT, product.id(), () -> shadow.putProduct(product));
+        }
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        Optional<Product> result = primaryTimers.get(Operation.PATCH).record(() -> primary.patchProduct(id, patch));
+        if (mirrorWrites && result.isPresent()) {
+            // The shadow may lag behind the primary, so the mirrored patch is not conditional
+            ProductPatch mirrored = new ProductPatch(patch.name(), patch.price(), null);
+            mirror(Operation.PATCH, id, () -> shadow.patchProduct(id, mirrored));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        primaryTimers.get(Operation.DELETE).record(() -> primary.deleteProduct(id));
+        if (mirrorWrites) {
+            mirror(Operation.DELETE, id, () -> shadow.deleteProduct(id));
+        }
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        Products result = primaryTimers.get(Operation.LIST).record(() -> primary.getAllProduct(fields));
+        if (sampled()) {
+            // Only timed: DynamoDB returns the first page of its scan, which differs from a Cosmos DB listing
+            shadowRead(Operation.LIST, fields, () -> shadow.getAllProduct(fields), null);
+        }
+        return result;
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return primary.scanProducts(fields, pageSize, continuationToken);
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        Products result = primaryTimers.get(Operation.QUERY).record(() -> primary.queryProducts(query, fields));
+        // An unordered query with a limit may legitimately return a different subset from each backend
+        boolean ordered = query.sort() != ProductQuery.Sort.NONE;
+        if ((ordered || query.limit() == null) && sampled()) {
+            shadowRead(Operation.QUERY, query, () -> shadow.queryProducts(query, fields),
+                shadowResult -> sameProducts(result.products(), shadowResult.products(), ordered));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (ThreadPoolExecutor lane : lanes) {
+                if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    lane.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Replays a read against the shadow, comparing its result with the primary one unless matchesPrimary is null.
+     */
+    private <T> void shadowRead(Operation operation, Object request, Supplier<T> read, Predicate<T> matchesPrimary) {
+        submit(request, () -> {
+            try {
+                T shadowResult = shadowTimers.get(operation).record(read);
+                if (matchesPrimary == null) {
+                    return;
+                }
+                if (matchesPrimary.test(shadowResult)) {
+                    matches.get(operation).increment();
+                } else {
+                    mismatches.get(operation).increment();
+                    logger.warn("Shadow {} diverged from primary for {}", operation, request);
+                }
+            } catch (RuntimeException e) {
+                errors.get(operation).increment();
+                logger.warn("Shadow {} failed for {}", operation, request, e);
+            }
+        });
+    }
+
+    private void mirror(Operation operation, String id, Runnable write) {
+        submit(id, () -> {
+            try {
+                shadowTimers.get(operation).record(write);
+            } catch (RuntimeException e) {
+                errors.get(operation).increment();
+                logger.warn("Mirrored {} failed", operation, e);
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the lane of its key, so that the tasks for a product run one at a time in order.
+     */
+    private void submit(Object key, Runnable task) {
+        try {
+            lanes[Math.floorMod(Objects.hashCode(key), lanes.length)].execute(task);
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Compares products field by field, prices by value so that e.g. 29.9 and 29.90 are equal:
+     * the backends do not preserve the scale of a decimal in the same way.
+     */
+    static boolean sameProduct(Product a, Product b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.id(), b.id())
+            && Objects.equals(a.name(), b.name())
+            && Objects.equals(a.category(), b.category())
+            && (a.price() == null ? b.price() == null : b.price() != null && a.price().compareTo(b.price()) == 0);
+    }
+
+    static boolean sameProducts(List<Product> a, List<Product> b, boolean ordered) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        if (ordered) {
+            for (int i = 0; i < a.size(); i++) {
+                if (!sameProduct(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Map<String, Product> byId = new HashMap<>();
+        for (Product product : a) {
+            byId.put(product.id(), product);
+        }
+        for (Product product : b) {
+            if (!sameProduct(byId.remove(product.id()), product)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String backend, String role, Operation operation) {
+        return Timer.builder("product.dao.requests")
+            .description("Latency of product database operations per backend")
+            .tag("backend", backend)
+            .tag("role", role)
+            .tag("operation", operation.name().toLowerCase())
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static Counter comparisons(MeterRegistry meterRegistry, Operation operation, String outcome) {
+        return Counter.builder("product.dao.shadow.comparisons")
+            .description("Shadow operations by outcome; reads are compared with the primary backend")
+            .tag("operation", operation.name().toLowerCase())
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "shadow-dao-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
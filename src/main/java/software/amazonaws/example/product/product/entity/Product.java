@@ -5,5 +5,13 @@ package software.amazonaws.example.product.product.entity;
 
 import java.math.BigDecimal;
 
-public record Product(String id, String name, BigDecimal price) {
+/**
+ * A product. The category is optional; listings can be filtered on it, and with category
+ * partitioning it is the partition key of the product in Cosmos DB.
+ */
+public record Product(String id, String name, BigDecimal price, String category) {
+
+    public Product(String id, String name, BigDecimal price) {
+        this(id, name, price, null);
+    }
 }
@@ -0,0 +1,76 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.entity;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Set of product fields requested by a client, e.g. {@code ?fields=id,price}.
+ * Fields left out are returned as null and omitted from the JSON response.
+ */
+public record ProductFields(Set<String> names) {
+
+    public static final String ID = "id";
+    public static final String NAME = "name";
+    public static final String PRICE = "price";
+    public static final String CATEGORY = "category";
+
+    private static final Set<String> ALL_NAMES = Set.of(ID, NAME, PRICE, CATEGORY);
+
+    public static final ProductFields ALL = new ProductFields(ALL_NAMES);
+
+    public ProductFields {
+        names = Set.copyOf(names);
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be requested");
+        }
+        for (String name : names) {
+            if (!ALL_NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown product field: " + name);
+            }
+        }
+    }
+
+    /**
+     * Parses a comma separated field list; a missing list selects all fields.
+     */
+    public static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        return new ProductFields(Arrays.stream(fields.split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .collect(Collectors.toSet()));
+    }
+
+    public boolean isAll() {
+        return names.size() == ALL_NAMES.size();
+    }
+
+    public boolean includes(String name) {
+        return names.contains(name);
+    }
+
+    public Product project(Product product) {
+        if (isAll()) {
+            return product;
+        }
+        return new Product(
+            includes(ID) ? product.id() : null,
+            includes(NAME) ? product.name() : null,
+            includes(PRICE) ? product.price() : null,
+            includes(CATEGORY) ? product.category() : null
+        );
+    }
+
+    public Products project(Products products) {
+        if (isAll()) {
+            return products;
+        }
+        return new Products(products.products().stream().map(this::project).toList());
+    }
+}
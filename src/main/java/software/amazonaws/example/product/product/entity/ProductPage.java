@@ -0,0 +1,12 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.entity;
+
+import java.util.List;
+
+/**
+ * One page of a scan of all products, with the token to continue the scan after it; null after the last page.
+ */
+public record ProductPage(List<Product> products, String continuationToken) {
+}
@@ -0,0 +1,38 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Partial update of a product: the fields that are present are set, the others are left as they are.
+ * The category is not patched: with category partitioning it decides where the product is stored,
+ * so it is changed by replacing the product.
+ * An expected price makes the update conditional on the product's current price,
+ * e.g. so that concurrent repricings do not silently overwrite each other.
+ */
+public record ProductPatch(String name, BigDecimal price, BigDecimal expectedPrice) {
+
+    /**
+     * Whether the patch sets no field; a condition alone changes nothing.
+     */
+    public boolean isEmpty() {
+        return name == null && price == null;
+    }
+
+    /**
+     * Whether the product meets the patch's condition. Prices are compared by value, e.g. 29.9 equals 29.90.
+     */
+    public boolean matches(Product product) {
+        return expectedPrice == null
+            || (product.price() != null && product.price().compareTo(expectedPrice) == 0);
+    }
+
+    public Product applyTo(Product product) {
+        return new Product(product.id(),
+            name != null ? name : product.name(),
+            price != null ? price : product.price(),
+            product.category());
+    }
+}
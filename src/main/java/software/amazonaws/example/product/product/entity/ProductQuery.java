@@ -0,0 +1,77 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.entity;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Search criteria for product listings.
+ * All criteria are optional; a null limit means no limit. The category is matched exactly.
+ */
+public record ProductQuery(String namePrefix, BigDecimal minPrice, BigDecimal maxPrice, Sort sort, Integer limit,
+                           String category) {
+
+    public enum Sort {
+        NONE, PRICE, NAME;
+
+        public static Sort parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return NONE;
+            }
+            return Sort.valueOf(value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public ProductQuery {
+        if (sort == null) {
+            sort = Sort.NONE;
+        }
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+    }
+
+    public ProductQuery(String namePrefix, BigDecimal minPrice, BigDecimal maxPrice, Sort sort, Integer limit) {
+        this(namePrefix, minPrice, maxPrice, sort, limit, null);
+    }
+
+    public boolean matches(Product product) {
+        if (category != null && !category.equals(product.category())) {
+            return false;
+        }
+        if (namePrefix != null
+                && (product.name() == null || !normalize(product.name()).startsWith(normalize(namePrefix)))) {
+            return false;
+        }
+        if (minPrice != null && (product.price() == null || product.price().compareTo(minPrice) < 0)) {
+            return false;
+        }
+        return maxPrice == null || (product.price() != null && product.price().compareTo(maxPrice) <= 0);
+    }
+
+    /**
+     * Ordering requested by this query, or null if the order is unspecified.
+     */
+    public Comparator<Product> comparator() {
+        return switch (sort) {
+            case PRICE -> Comparator.comparing(Product::price, Comparator.nullsLast(Comparator.naturalOrder()));
+            case NAME -> Comparator.comparing(
+                (Product product) -> product.name() == null ? null : normalize(product.name()),
+                Comparator.nullsLast(Comparator.naturalOrder()));
+            case NONE -> null;
+        };
+    }
+
+    /**
+     * Normalizes a product name for case-insensitive prefix matching.
+     */
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.grpc;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.service.ProductService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link ProductGrpcService} in the application's process on its own port (product.grpc.port),
+ * next to the HTTP server. It starts with the application context and, on shutdown, stops accepting calls
+ * and lets calls in flight complete for the grace period before cancelling them.
+ */
+@Component
+@ConditionalOnProperty(name = "product.grpc.enabled", havingValue = "true")
+public class ProductGrpcServer implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ProductGrpcServer.class);
+
+    private final ProductConfigurationProperties.Grpc config;
+    private final Server server;
+    private volatile boolean running;
+
+    public ProductGrpcServer(ProductConfigurationProperties productConfig, ProductService productService) {
+        this.config = productConfig.getGrpc();
+        this.server = ServerBuilder.forPort(config.getPort())
+            .addService(new ProductGrpcService(productService, config.getListPageSize(), productConfig.getDeadline()))
+            .maxInboundMessageSize(config.getMaxInboundMessageSize())
+            .build();
+    }
+
+    @Override
+    public void start() {
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the gRPC server on port " + config.getPort(), e);
+        }
+        running = true;
+        logger.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(config.getShutdownGracePeriod().toMillis(), TimeUnit.MILLISECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+}
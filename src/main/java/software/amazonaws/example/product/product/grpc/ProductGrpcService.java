@@ -0,0 +1,194 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+import software.amazonaws.example.product.product.dao.DeadlineExceededException;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.proto.BatchGetProductsRequest;
+import software.amazonaws.example.product.product.proto.DeleteProductRequest;
+import software.amazonaws.example.product.product.proto.GetProductRequest;
+import software.amazonaws.example.product.product.proto.ListProductsRequest;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+import software.amazonaws.example.product.product.proto.ProductServiceGrpc;
+import software.amazonaws.example.product.product.service.ProductService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * gRPC implementation of product.v1.ProductService over the same {@link ProductService} as the REST API,
+ * so reads go through the same caches and writes publish the same change events.
+ *
+ * <p>The caller's gRPC deadline becomes the request deadline of {@link DeadlineContext}, bounding the
+ * backend calls as the X-Request-Deadline header does for REST; with product.deadline.enabled, calls
+ * without one get the REST defaults. List streams the catalog in pages read one at a time from
+ * {@link ProductService#scanProducts}, each under the listing timeout, and only reads and sends a page
+ * when the transport is ready for it, so a slow caller holds back the stream instead of having the whole
+ * catalog buffered for it.
+ */
+public class ProductGrpcService extends ProductServiceGrpc.ProductServiceImplBase {
+    private static final Logger logger = LoggerFactory.getLogger(ProductGrpcService.class);
+
+    private final ProductService productService;
+    private final int defaultPageSize;
+    private final ProductConfigurationProperties.Deadline deadline;
+
+    public ProductGrpcService(ProductService productService, int defaultPageSize,
+                              ProductConfigurationProperties.Deadline deadline) {
+        this.productService = productService;
+        this.defaultPageSize = defaultPageSize;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void get(GetProductRequest request, StreamObserver<ProductMessage> responseObserver) {
+        unary(responseObserver, deadline.getDefaultTimeout(), () -> productService.getProductById(request.getId())
+            .map(ProductProtoMapper::toMessage)
+            .orElseThrow(() -> notFound(request.getId())));
+    }
+
+    @Override
+    public void batchGet(BatchGetProductsRequest request, StreamObserver<ProductListMessage> responseObserver) {
+        unary(responseObserver, deadline.getDefaultTimeout(), () -> {
+            ProductListMessage.Builder response = ProductListMessage.newBuilder();
+            for (Product product : productService.getProductsByIds(request.getIdsList()).values()) {
+                response.addProducts(ProductProtoMapper.toMessage(product));
+            }
+            return response.build();
+        });
+    }
+
+    @Override
+    public void put(ProductMessage request, StreamObserver<Empty> responseObserver) {
+        unary(responseObserver, deadline.getDefaultTimeout(), () -> {
+            if (!request.hasId() || request.getId().isEmpty()) {
+                throw Status.INVALID_ARGUMENT.withDescription("Product ID is required").asRuntimeException();
+            }
+            productService.createOrUpdateProduct(ProductProtoMapper.fromMessage(request));
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public void delete(DeleteProductRequest request, StreamObserver<Empty> responseObserver) {
+        unary(responseObserver, deadline.getDefaultTimeout(), () -> {
+            if (!productService.deleteProduct(request.getId())) {
+                throw notFound(request.getId());
+            }
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public void list(ListProductsRequest request, StreamObserver<ProductListMessage> responseObserver) {
+        ServerCallStreamObserver<ProductListMessage> observer =
+            (ServerCallStreamObserver<ProductListMessage>) responseObserver;
+        int pageSize = request.getPageSize() > 0 ? request.getPageSize() : defaultPageSize;
+
+        // Runs on the call's serialized executor, both now and whenever the transport becomes ready again
+        Runnable sendPages = new Runnable() {
+            private List<Product> products = List.of();
+            private int next;
+            private String continuationToken;
+            private boolean read;
+            private boolean completed;
+
+            @Override
+            public void run() {
+                try {
+                    while (!completed && !observer.isCancelled()) {
+                        if (next < products.size()) {
+                            if (!observer.isReady()) {
+                                return;
+                            }
+                            int end = Math.min(next + pageSize, products.size());
+                            observer.onNext(ProductProtoMapper.toMessage(new Products(products.subList(next, end))));
+                            next = end;
+                        } else if (read && continuationToken == null) {
+                            completed = true;
+                            observer.onCompleted();
+                        } else if (observer.isReady()) {
+                            ProductPage page = withDeadline(deadline.getListingTimeout(),
+                                () -> productService.scanProducts(pageSize, continuationToken));
+                            products = page.products();
+                            next = 0;
+                            continuationToken = page.continuationToken();
+                            read = true;
+                        } else {
+                            return;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    completed = true;
+                    observer.onError(toStatus(e));
+                }
+            }
+        };
+        observer.setOnCancelHandler(() -> logger.debug("List cancelled by the caller"));
+        observer.setOnReadyHandler(sendPages);
+        sendPages.run();
+    }
+
+    private <T> void unary(StreamObserver<T> observer, Duration defaultTimeout, Supplier<T> call) {
+        T response;
+        try {
+            response = withDeadline(defaultTimeout, call);
+        } catch (RuntimeException e) {
+            observer.onError(toStatus(e));
+            return;
+        }
+        observer.onNext(response);
+        observer.onCompleted();
+    }
+
+    /**
+     * Runs the call under the caller's deadline, or the default timeout when request deadlines are enabled.
+     */
+    private <T> T withDeadline(Duration defaultTimeout, Supplier<T> call) {
+        Deadline callDeadline = Context.current().getDeadline();
+        if (callDeadline != null) {
+            Duration remaining = Duration.ofNanos(callDeadline.timeRemaining(TimeUnit.NANOSECONDS));
+            DeadlineContext.set(remaining.compareTo(deadline.getMaxTimeout()) > 0 ? deadline.getMaxTimeout() : remaining);
+        } else if (deadline.isEnabled()) {
+            DeadlineContext.set(defaultTimeout);
+        }
+        try {
+            return call.get();
+        } finally {
+            DeadlineContext.clear();
+        }
+    }
+
+    private static StatusRuntimeException toStatus(RuntimeException e) {
+        if (e instanceof StatusRuntimeException status) {
+            return status;
+        }
+        if (e instanceof DeadlineExceededException) {
+            return Status.DEADLINE_EXCEEDED.withDescription(e.getMessage()).asRuntimeException();
+        }
+        logger.error("gRPC call failed", e);
+        return Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+    }
+
+    private static StatusRuntimeException notFound(String id) {
+        return Status.NOT_FOUND.withDescription("Product with id = " + id + " not found").asRuntimeException();
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * HealthIndicator that checks a backend on its own thread at a fixed interval and answers
+ * health requests from the last result, so that frequent probes on every replica neither add load
+ * to the backend nor wait for it, and a slow backend cannot make the probes time out.
+ *
+ * <p>Each check runs under a request deadline of the check timeout, which the DAOs turn into
+ * client-side timeouts. A failing backend is reported DOWN only after several consecutive failed checks,
+ * so a single slow or throttled request does not take the replica out of rotation. A result older than
+ * a few intervals means the checks themselves are stuck; it is reported UNKNOWN, which no longer vouches
+ * for the backend but, unlike DOWN, does not fail the health group.
+ */
+public class CachedHealthIndicator implements HealthIndicator, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CachedHealthIndicator.class);
+
+    /**
+     * A check of a backend, returning details to report, e.g. the table checked.
+     * Throws if the backend is unhealthy.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        Map<String, Object> check() throws Exception;
+    }
+
+    private record Result(Status status, Map<String, Object> details, Instant checkedAt, long checkedAtNanos) {
+    }
+
+    private final String name;
+    private final Probe probe;
+    private final Duration timeout;
+    private final long staleAfterNanos;
+    private final int failureThreshold;
+    private final LongSupplier nanoClock;
+    private ScheduledExecutorService executor;
+
+    private volatile Result result;
+    // Only updated by the checking thread
+    private int consecutiveFailures;
+
+    /**
+     * Starts checking right away and then every interval.
+     */
+    public CachedHealthIndicator(String name, Probe probe, Duration interval, Duration timeout, int failureThreshold) {
+        this(name, probe, timeout, interval.multipliedBy(3).plus(timeout), failureThreshold, System::nanoTime);
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "health-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refresh, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    CachedHealthIndicator(String name, Probe probe, Duration timeout, Duration staleAfter, int failureThreshold,
+                          LongSupplier nanoClock) {
+        this.name = name;
+        this.probe = probe;
+        this.timeout = timeout;
+        this.staleAfterNanos = staleAfter.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Health health() {
+        Result last = result;
+        if (last == null) {
+            return Health.unknown().withDetail("reason", "Not checked yet").build();
+        }
+        long ageNanos = nanoClock.getAsLong() - last.checkedAtNanos();
+        Health.Builder health = ageNanos > staleAfterNanos
+            ? Health.unknown().withDetail("stale", true).withDetail("lastStatus", last.status().getCode())
+            : Health.status(last.status());
+        return health
+            .withDetails(last.details())
+            .withDetail("checkedAt", last.checkedAt().toString())
+            .withDetail("ageMs", TimeUnit.NANOSECONDS.toMillis(ageNanos))
+            .build();
+    }
+
+    /**
+     * Checks the backend and caches the result.
+     */
+    void refresh() {
+        long start = nanoClock.getAsLong();
+        Map<String, Object> details = new LinkedHashMap<>();
+        Status status;
+        DeadlineContext.set(timeout);
+        try {
+            details.putAll(probe.check());
+            consecutiveFailures = 0;
+            status = Status.UP;
+        } catch (Exception e) {
+            consecutiveFailures++;
+            details.put("error", e.getClass().getName() + ": " + e.getMessage());
+            status = consecutiveFailures >= failureThreshold ? Status.DOWN : Status.UP;
+            if (consecutiveFailures == 1) {
+                logger.warn("Health check {} failed", name, e);
+            } else {
+                logger.warn("Health check {} failed ({} in a row): {}", name, consecutiveFailures, e.toString());
+            }
+        } finally {
+            DeadlineContext.clear();
+        }
+        long end = nanoClock.getAsLong();
+        details.put("consecutiveFailures", consecutiveFailures);
+        details.put("latencyMs", TimeUnit.NANOSECONDS.toMillis(end - start));
+        result = new Result(status, details, Instant.now(), end);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
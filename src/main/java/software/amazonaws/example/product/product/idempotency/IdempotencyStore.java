@@ -0,0 +1,196 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Records the responses of writes sent with an Idempotency-Key header so that client retries
+ * are answered without writing to the database again.
+ * The first request with a key executes and its response is kept until the TTL expires; duplicates
+ * get that response, and duplicates arriving while the first is still running wait for it.
+ * Server errors are not kept, so a retry after one executes again. A key reused for a different
+ * request is rejected with 422. Keys are recorded per replica: a retry routed to another replica
+ * executes again, which is safe for an upsert but costs a write. When the store is full, expired keys are
+ * purged at most once a second to make room, so a burst of new keys does not scan the store on every request.
+ */
+@Component
+@ConditionalOnProperty(value = "product.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyStore {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long waitTimeoutNanos;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong nextPurgeAt;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter mismatched;
+    private final Counter conflicted;
+    private final Counter unrecorded;
+
+    @Autowired
+    public IdempotencyStore(ProductConfigurationProperties productConfig, MeterRegistry meterRegistry) {
+        this(productConfig.getIdempotency(), meterRegistry, System::nanoTime);
+    }
+
+    IdempotencyStore(ProductConfigurationProperties.Idempotency config, MeterRegistry meterRegistry,
+                     LongSupplier nanoTime) {
+        this.maxEntries = config.getMaxEntries();
+        this.ttlNanos = config.getTtl().toNanos();
+        this.waitTimeoutNanos = config.getWaitTimeout().toNanos();
+        this.nanoTime = nanoTime;
+        this.nextPurgeAt = new AtomicLong(nanoTime.getAsLong());
+
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.mismatched = requests(meterRegistry, "mismatched");
+        this.conflicted = requests(meterRegistry, "conflicted");
+        this.unrecorded = requests(meterRegistry, "unrecorded");
+        Gauge.builder("product.idempotency.entries", entries, Map::size)
+            .description("Idempotency keys recorded")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Executes a write once per idempotency key.
+     *
+     * @param key the client's idempotency key
+     * @param fingerprint identifies the request, e.g. method, path and body, to detect a key being reused
+     * @param request performs the write and builds its response
+     * @return the response of the first request with the key
+     */
+    public ResponseEntity<String> execute(String key, String fingerprint, Supplier<ResponseEntity<String>> request) {
+        Entry entry = new Entry(fingerprint);
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing != null && existing.isExpired(nanoTime.getAsLong())) {
+            existing = entries.replace(key, existing, entry) ? null : entries.putIfAbsent(key, entry);
+        }
+        if (existing != null) {
+            return duplicate(existing, fingerprint);
+        }
+        if (entries.size() > maxEntries) {
+            purgeExpiredWhenDue();
+            if (entries.size() > maxEntries) {
+                // Full of live keys: execute without recording rather than reject the write
+                entries.remove(key, entry);
+                entry.response.cancel(false);
+                unrecorded.increment();
+                return request.get();
+            }
+        }
+
+        executed.increment();
+        ResponseEntity<String> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            entries.remove(key, entry);
+        } else {
+            entry.expiresAt = nanoTime.getAsLong() + ttlNanos;
+        }
+        entry.response.complete(response);
+        return response;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    void purgeExpired() {
+        long now = nanoTime.getAsLong();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    /**
+     * Purges expired keys unless that was done less than a second ago, by this or another thread.
+     */
+    private void purgeExpiredWhenDue() {
+        long now = nanoTime.getAsLong();
+        long due = nextPurgeAt.get();
+        if (now - due >= 0 && nextPurgeAt.compareAndSet(due, now + PURGE_INTERVAL_NANOS)) {
+            purgeExpired();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private ResponseEntity<String> duplicate(Entry original, String fingerprint) {
+        if (!original.fingerprint.equals(fingerprint)) {
+            mismatched.increment();
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+        }
+        try {
+            ResponseEntity<String> response = original.response.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+            replayed.increment();
+            return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+            conflicted.increment();
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("A request with this " + IDEMPOTENCY_KEY_HEADER + " did not complete, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            conflicted.increment();
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("product.idempotency.requests")
+            .description("Writes sent with an idempotency key by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<String>> response = new CompletableFuture<>();
+        // Set once the response is recorded; in-flight entries never expire
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != Long.MAX_VALUE && expiresAt - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import com.azure.cosmos.CosmosClient;
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.CosmosDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosChangeFeedRequestOptions;
+import com.azure.cosmos.models.CosmosContainerProperties;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchOperations;
+import com.azure.cosmos.models.FeedRange;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation channel over a Cosmos DB container that every replica reads the change feed of.
+ * Each product change writes a document keyed by the product id, so the feed carries the latest
+ * invalidation per product; the container's default TTL removes old ones. The write only replaces
+ * a document with a lower version, so a late write from another replica cannot roll it back.
+ * A dedicated container is used rather than the product container's own change feed because
+ * the latest-version change feed does not report deletes.
+ *
+ * <p>Replicas read the feed from the time they start, holding their position in memory like the
+ * {@link software.amazonaws.example.product.product.catalog.CosmosChangeFeedProjector}, on a thread of
+ * their own so that long scheduled tasks, such as full scans, do not delay invalidations.
+ * Writes are sent off the request thread; when the queue is full, invalidations are dropped
+ * and the cache TTLs bound the staleness. Queued writes are given a few seconds to finish on shutdown.
+ */
+@Component
+@ConditionalOnProperty(name = "product.invalidation.channel", havingValue = "cosmos")
+public class CosmosInvalidationChannel implements InvalidationChannel, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CosmosInvalidationChannel.class);
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final CosmosContainer container;
+    private final ExecutorService publisher;
+    private final ScheduledExecutorService poller;
+    private final List<Consumer<ProductInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter dropped;
+
+    private volatile String continuationToken;
+
+    public CosmosInvalidationChannel(CosmosClient cosmosClient,
+                                     AzureConfigurationProperties azureConfig,
+                                     ProductConfigurationProperties productConfig,
+                                     MeterRegistry meterRegistry) {
+        ProductConfigurationProperties.Invalidation config = productConfig.getInvalidation();
+        CosmosDatabase database = cosmosClient.getDatabase(azureConfig.getCosmos().getDatabaseName());
+        CosmosContainerProperties properties = new CosmosContainerProperties(config.getContainer(), "/id");
+        properties.setDefaultTimeToLiveInSeconds((int) config.getTtl().toSeconds());
+        database.createContainerIfNotExists(properties);
+        this.container = database.getContainer(config.getContainer());
+        this.publisher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()), task -> {
+                Thread thread = new Thread(task, "invalidation-publisher");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.poller = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "invalidation-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("product.invalidation.dropped")
+            .description("Invalidations not sent to other replicas because the publish queue was full")
+            .register(meterRegistry);
+        long pollInterval = config.getPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        logger.info("Cache invalidations fanned out through Cosmos DB container {}", config.getContainer());
+    }
+
+    @Override
+    public void publish(ProductInvalidation invalidation) {
+        try {
+            publisher.execute(() -> {
+                try {
+                    write(invalidation);
+                } catch (CosmosException e) {
+                    logger.warn("Could not publish invalidation of product {}", invalidation.id(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ProductInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Stores the invalidation unless the document of the product already holds a higher version.
+     */
+    void write(ProductInvalidation invalidation) {
+        try {
+            patchIfNewer(invalidation);
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+            try {
+                container.createItem(InvalidationDocument.from(invalidation), new PartitionKey(invalidation.id()),
+                    new CosmosItemRequestOptions());
+            } catch (CosmosException conflict) {
+                if (conflict.getStatusCode() != 409) {
+                    throw conflict;
+                }
+                // Created by another replica meanwhile
+                patchIfNewer(invalidation);
+            }
+        }
+    }
+
+    private void patchIfNewer(ProductInvalidation invalidation) {
+        CosmosPatchItemRequestOptions options = new CosmosPatchItemRequestOptions();
+        // Written as a plain number literal; the version is a long, never client text
+        options.setFilterPredicate("FROM c WHERE c.version < " + invalidation.version());
+        try {
+            container.patchItem(invalidation.id(), new PartitionKey(invalidation.id()),
+                CosmosPatchOperations.create()
+                    .set("/version", invalidation.version())
+                    .set("/deleted", invalidation.deleted())
+                    .set("/origin", invalidation.origin()),
+                options, InvalidationDocument.class);
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 412) {
+                throw e;
+            }
+            logger.debug("Invalidation of product {} superseded by a newer one", invalidation.id());
+        }
+    }
+
+    void poll() {
+        try {
+            CosmosChangeFeedRequestOptions options = continuationToken == null
+                ? CosmosChangeFeedRequestOptions.createForProcessingFromNow(FeedRange.forFullRange())
+                : CosmosChangeFeedRequestOptions.createForProcessingFromContinuation(continuationToken);
+            for (FeedResponse<InvalidationDocument> page :
+                    container.queryChangeFeed(options, InvalidationDocument.class).iterableByPage()) {
+                for (InvalidationDocument document : page.getResults()) {
+                    ProductInvalidation invalidation = document.toInvalidation();
+                    subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+                }
+                continuationToken = page.getContinuationToken();
+                if (page.getResults().isEmpty()) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Caught whatever it is, as an exception would cancel the polls that follow
+            logger.warn("Invalidation change feed poll failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        poller.shutdownNow();
+        publisher.shutdown();
+        if (!publisher.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("Dropped {} invalidations not sent within {} of shutdown",
+                publisher.shutdownNow().size(), CLOSE_TIMEOUT);
+        }
+    }
+
+    /**
+     * Invalidation as stored in Cosmos DB; one document per product, overwritten on each change.
+     */
+    public static class InvalidationDocument {
+        private String id;
+        private long version;
+        private boolean deleted;
+        private String origin;
+
+        public InvalidationDocument() {
+        }
+
+        static InvalidationDocument from(ProductInvalidation invalidation) {
+            InvalidationDocument document = new InvalidationDocument();
+            document.id = invalidation.id();
+            document.version = invalidation.version();
+            document.deleted = invalidation.deleted();
+            document.origin = invalidation.origin();
+            return document;
+        }
+
+        ProductInvalidation toInvalidation() {
+            return new ProductInvalidation(id, version, deleted, origin);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public void setDeleted(boolean deleted) {
+            this.deleted = deleted;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public void setOrigin(String origin) {
+            this.origin = origin;
+        }
+    }
+}
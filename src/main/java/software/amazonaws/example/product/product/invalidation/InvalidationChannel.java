@@ -0,0 +1,22 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport fanning product invalidations out to every replica.
+ * Delivery is at least once and possibly out of order; receivers deduplicate by version.
+ * A replica may receive its own invalidations back.
+ */
+public interface InvalidationChannel {
+
+    /**
+     * Sends an invalidation to all replicas. Must not throw: the write it reports has already succeeded,
+     * and cache TTLs bound the staleness of a lost invalidation.
+     */
+    void publish(ProductInvalidation invalidation);
+
+    void subscribe(Consumer<ProductInvalidation> subscriber);
+}
@@ -0,0 +1,33 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process invalidation channel that delivers synchronously to its subscribers.
+ * The default for a single replica, where there is nobody else to notify, and a stand-in
+ * for a shared channel in tests with several replicas in one JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "product.invalidation.channel", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationChannel implements InvalidationChannel {
+
+    private final List<Consumer<ProductInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ProductInvalidation invalidation) {
+        subscribers.forEach(subscriber -> subscriber.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<ProductInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,15 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+/**
+ * Notice sent to the other replicas that a product changed and their cached copies are stale.
+ *
+ * @param id the id of the changed product
+ * @param version hybrid logical clock timestamp of the change, increasing per product across replicas
+ * @param deleted whether the product was deleted
+ * @param origin the replica that made the change
+ */
+public record ProductInvalidation(String id, long version, boolean deleted, String origin) {
+}
@@ -0,0 +1,154 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the product caches of all replicas consistent with writes made on any of them.
+ * Product changes made on this replica are stamped with a version and sent over the
+ * {@link InvalidationChannel}; changes received from other replicas are republished locally as
+ * remote {@link ProductChangedEvent}s, on which each cache evicts the product.
+ *
+ * <p>Versions come from a hybrid logical clock: wall-clock based, but never behind any version
+ * seen from another replica, so they increase per product across replicas despite clock skew.
+ * Invalidations not newer than the last one seen for a product are ignored, so redelivered or
+ * reordered notices cannot evict entries cached after a later change.
+ * Read-through caches use {@link #sequence()} and {@link #invalidatedSince} to avoid caching a value
+ * read before an invalidation that arrived while the read was in flight.
+ */
+@Component
+public class ProductInvalidations {
+
+    private final InvalidationChannel channel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LongSupplier currentTimeMillis;
+    private final String origin = UUID.randomUUID().toString();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Mark> marks = new ConcurrentHashMap<>();
+    private volatile long purgedBelow;
+    private long sequenceAtLastPurge;
+
+    private final Counter published;
+    private final Counter received;
+    private final Counter ignored;
+
+    @Autowired
+    public ProductInvalidations(InvalidationChannel channel, ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) {
+        this(channel, eventPublisher, meterRegistry, System::currentTimeMillis);
+    }
+
+    ProductInvalidations(InvalidationChannel channel, ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry, LongSupplier currentTimeMillis) {
+        this.channel = channel;
+        this.eventPublisher = eventPublisher;
+        this.currentTimeMillis = currentTimeMillis;
+        this.published = events(meterRegistry, "published");
+        this.received = events(meterRegistry, "received");
+        this.ignored = events(meterRegistry, "ignored");
+        channel.subscribe(this::receive);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        long version = nextVersion();
+        mark(event.id(), version);
+        channel.publish(new ProductInvalidation(event.id(), version, event.deleted(), origin));
+        published.increment();
+    }
+
+    void receive(ProductInvalidation invalidation) {
+        if (origin.equals(invalidation.origin())) {
+            return;
+        }
+        clock.accumulateAndGet(invalidation.version(), Math::max);
+        Mark last = marks.get(invalidation.id());
+        if (last != null && last.version() >= invalidation.version()) {
+            ignored.increment();
+            return;
+        }
+        mark(invalidation.id(), invalidation.version());
+        received.increment();
+        eventPublisher.publishEvent(new ProductChangedEvent(invalidation.id(), invalidation.deleted(), true));
+    }
+
+    /**
+     * Marks a product written on this replica as soon as the backend write returns, ahead of its change event,
+     * so a read-through cache does not store a value read before the write over the one it wrote through.
+     */
+    public void markWritten(String id) {
+        marks.merge(id, new Mark(0, sequence.incrementAndGet()),
+            (previous, next) -> new Mark(previous.version(), next.sequence()));
+    }
+
+    /**
+     * Current invalidation sequence; capture it before reading from the backend.
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Whether the product was invalidated after the given sequence was captured, in which case
+     * a value read since then may be stale and must not be cached. Conservatively true for
+     * sequences older than the tracked window.
+     */
+    public boolean invalidatedSince(String id, long sequence) {
+        if (sequence < purgedBelow) {
+            return true;
+        }
+        Mark mark = marks.get(id);
+        return mark != null && mark.sequence() > sequence;
+    }
+
+    /**
+     * Forgets invalidations more than a purge interval old, keeping memory bounded.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    synchronized void purge() {
+        long below = sequenceAtLastPurge;
+        purgedBelow = below;
+        marks.values().removeIf(mark -> mark.sequence() < below);
+        sequenceAtLastPurge = sequence.get();
+    }
+
+    private long nextVersion() {
+        long physical = currentTimeMillis.getAsLong() << 16;
+        return clock.accumulateAndGet(physical, (last, now) -> Math.max(last + 1, now));
+    }
+
+    private void mark(String id, long version) {
+        marks.merge(id, new Mark(version, sequence.incrementAndGet()),
+            (previous, next) -> new Mark(Math.max(previous.version(), next.version()), next.sequence()));
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("product.invalidation.events")
+            .description("Product invalidations sent to and received from other replicas")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+
+    private record Mark(long version, long sequence) {
+    }
+}
@@ -0,0 +1,68 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.peer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns product ids to replicas by consistent hashing. Each replica is placed on a ring of 64-bit hashes
+ * at many points, and an id belongs to the replica at the first point at or after the id's hash.
+ * When a replica joins or leaves, only the ids between its points and their predecessors change owner,
+ * about 1/N of them, so the other replicas keep most of their cached products. The ring is immutable.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> members;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    /**
+     * @param members the replicas, e.g. their base URLs; every replica must see the same names
+     * @param pointsPerMember points per replica; more spread the ids more evenly
+     */
+    public ConsistentHashRing(Collection<String> members, int pointsPerMember) {
+        this.members = members.stream().distinct().sorted().toList();
+        for (String member : this.members) {
+            for (int i = 0; i < pointsPerMember; i++) {
+                points.putIfAbsent(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    /**
+     * The replica owning the id, or null if the ring is empty.
+     */
+    public String ownerOf(String id) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(id));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer so that similar
+     * keys, such as sequential ids, land far apart on the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
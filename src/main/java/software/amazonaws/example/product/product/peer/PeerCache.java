@@ -0,0 +1,493 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.peer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.controller.ProductProtobufHttpMessageConverter;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Product cache sharded across the replicas, so that each product is read from the database by one replica
+ * rather than by every replica that serves it. Each id is owned by one replica, chosen by consistent hashing
+ * over the current replicas; see {@link PeerCachingProductDao} for how reads are routed.
+ *
+ * <p>This class holds the shared state: the membership, listed statically or resolved from a DNS name
+ * that returns every replica's address, the products cached for owned ids, local copies of hot products
+ * owned elsewhere, and the client asking owners over their internal endpoint. An owner that fails to
+ * answer is bypassed for a while. Products changed on this replica are evicted here and at their owner;
+ * products changed elsewhere are evicted as their invalidations arrive, and owned entries expire after
+ * a TTL, hot copies after a short one.
+ *
+ * <p>Several instances on one machine form a cluster with a static list, e.g. peers
+ * http://localhost:8080/api,http://localhost:8081/api and self set to each instance's own URL.
+ * The replicas must share a secret, as the internal endpoint serves and evicts any product; the application
+ * does not start with the peer cache enabled and no secret.
+ */
+@Component
+@ConditionalOnProperty(name = "product.cache.peer.enabled", havingValue = "true")
+public class PeerCache {
+    private static final Logger logger = LoggerFactory.getLogger(PeerCache.class);
+
+    public static final String PATH = "/internal/peer-cache/products/";
+    public static final String BATCH_PATH = "/internal/peer-cache/products";
+    public static final String SECRET_HEADER = "X-Peer-Secret";
+
+    // Ids whose reads are counted per hot window, bounding the counters' memory under many distinct ids
+    private static final int MAX_COUNTED_IDS = 100_000;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final ProductConfigurationProperties.Peer config;
+    private final int serverPort;
+    private final String contextPath;
+    private final HttpClient httpClient;
+    private final long ttlNanos;
+    private final long hotTtlNanos;
+    private final String secret;
+
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 0);
+    private volatile String self;
+    private volatile PeerCachingProductDao servingDao;
+
+    private final Map<String, Entry> owned = new ConcurrentHashMap<>();
+    private final Map<String, Entry> hot = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> remoteReads = new ConcurrentHashMap<>();
+    private final Map<String, Long> suspendedUntil = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter ownedHits;
+    private final Counter ownedMisses;
+    private final Counter hotHits;
+    private final Counter peerReads;
+    private final Counter peerFailures;
+
+    @Autowired
+    public PeerCache(ProductConfigurationProperties productConfig,
+                     @Value("${server.port:8080}") int serverPort,
+                     @Value("${server.servlet.context-path:}") String contextPath,
+                     MeterRegistry meterRegistry) {
+        this.config = productConfig.getCache().getPeer();
+        this.serverPort = serverPort;
+        this.contextPath = contextPath;
+        this.ttlNanos = config.getTtl().toNanos();
+        this.hotTtlNanos = config.getHotTtl().toNanos();
+        this.secret = blankToNull(config.getSecret());
+        if (secret == null) {
+            throw new IllegalStateException("product.cache.peer.secret must be set when the peer cache is enabled");
+        }
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(config.getTimeout())
+            .build();
+        this.ownedHits = lookups(meterRegistry, "owned-hit");
+        this.ownedMisses = lookups(meterRegistry, "owned-miss");
+        this.hotHits = lookups(meterRegistry, "hot-hit");
+        this.peerReads = lookups(meterRegistry, "peer");
+        this.peerFailures = lookups(meterRegistry, "peer-failure");
+        Gauge.builder("product.cache.peer.members", this, cache -> cache.ring.members().size())
+            .description("Replicas sharing the peer cache")
+            .register(meterRegistry);
+        refreshMembers();
+    }
+
+    /**
+     * Sets the DAO answering the internal endpoint from this replica's share of the products.
+     */
+    public void serveFrom(PeerCachingProductDao dao) {
+        this.servingDao = dao;
+    }
+
+    /**
+     * Answers another replica asking for a product this replica owns.
+     *
+     * @throws IllegalStateException if the DAOs are not assembled yet
+     */
+    public Optional<Product> serve(String id) {
+        PeerCachingProductDao dao = servingDao;
+        if (dao == null) {
+            throw new IllegalStateException("Peer cache is not serving yet");
+        }
+        return dao.getOwned(id);
+    }
+
+    /**
+     * Answers another replica asking for several products this replica owns; those that do not exist are left out.
+     *
+     * @throws IllegalStateException if the DAOs are not assembled yet
+     */
+    public Map<String, Product> serve(Collection<String> ids) {
+        PeerCachingProductDao dao = servingDao;
+        if (dao == null) {
+            throw new IllegalStateException("Peer cache is not serving yet");
+        }
+        return dao.getOwned(ids);
+    }
+
+    public boolean isAuthorized(String secret) {
+        return secret != null && MessageDigest.isEqual(
+            this.secret.getBytes(StandardCharsets.UTF_8), secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The replica owning the id, or null if this replica owns it or is alone.
+     */
+    public String remoteOwnerOf(String id) {
+        String owner = ring.ownerOf(id);
+        return owner == null || owner.equals(self) ? null : owner;
+    }
+
+    /**
+     * Current eviction generation; capture it before reading, and pass it when caching the result
+     * so that a value read before a concurrent eviction is not cached.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<Product> getOwned(String id) {
+        Entry entry = owned.get(id);
+        if (entry == null || isExpired(entry, ttlNanos)) {
+            ownedMisses.increment();
+            return Optional.empty();
+        }
+        ownedHits.increment();
+        return Optional.of(entry.product());
+    }
+
+    /**
+     * Caches a product read from the database, if this replica owns it and nothing was evicted since the read began.
+     */
+    public void putOwned(Product product, long readGeneration) {
+        if (remoteOwnerOf(product.id()) == null && self != null) {
+            put(owned, config.getMaxEntries(), product, readGeneration);
+        }
+    }
+
+    /**
+     * The local copy of a hot product owned elsewhere, or empty if there is none.
+     */
+    public Optional<Product> getHot(String id) {
+        Entry entry = hot.get(id);
+        if (entry == null || isExpired(entry, hotTtlNanos)) {
+            return Optional.empty();
+        }
+        hotHits.increment();
+        return Optional.of(entry.product());
+    }
+
+    /**
+     * Counts a read of a product owned elsewhere and keeps a local copy once it is read often enough.
+     */
+    public void recordRemoteRead(String id, Optional<Product> product, long readGeneration) {
+        AtomicInteger reads = remoteReads.size() < MAX_COUNTED_IDS
+            ? remoteReads.computeIfAbsent(id, key -> new AtomicInteger())
+            : remoteReads.get(id);
+        if (reads != null && reads.incrementAndGet() >= config.getHotThreshold() && product.isPresent()) {
+            put(hot, config.getMaxHotEntries(), product.get(), readGeneration);
+        }
+    }
+
+    /**
+     * Asks the owner for a product.
+     *
+     * @return the owner's answer, the product or empty if it does not exist,
+     *         or empty if the owner could not answer in time
+     */
+    public Optional<Optional<Product>> fetch(String owner, String id) {
+        if (isSuspended(owner)) {
+            peerFailures.increment();
+            return Optional.empty();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(owner + PATH + encodePathSegment(id)))
+            .timeout(timeout())
+            .header(HttpHeaders.ACCEPT, ProductProtobufHttpMessageConverter.PROTOBUF.toString())
+            .header(SECRET_HEADER, secret)
+            .GET();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 200) {
+                peerReads.increment();
+                Product product = ProductProtoMapper.fromMessage(ProductMessage.parseFrom(response.body()));
+                return Optional.of(Optional.of(product));
+            }
+            if (response.statusCode() == 404) {
+                peerReads.increment();
+                return Optional.of(Optional.empty());
+            }
+            logger.warn("Peer {} answered {} for product {}", owner, response.statusCode(), id);
+        } catch (InvalidProtocolBufferException e) {
+            logger.warn("Peer {} sent an invalid product {}", owner, id, e);
+        } catch (IOException e) {
+            logger.warn("Peer {} did not answer for product {}: {}", owner, id, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            peerFailures.increment();
+            return Optional.empty();
+        }
+        suspend(owner);
+        return Optional.empty();
+    }
+
+    /**
+     * Asks the owner for several products in one request, without waiting for the answer, so that
+     * several owners can be asked at once.
+     *
+     * @return the owner's answer, the products that exist, or empty if the owner could not answer in time
+     */
+    public CompletableFuture<Optional<Map<String, Product>>> fetchAll(String owner, Collection<String> ids) {
+        if (isSuspended(owner)) {
+            peerFailures.increment();
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        byte[] body;
+        try {
+            body = JSON.writeValueAsBytes(ids);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(owner + BATCH_PATH))
+            .timeout(timeout())
+            .header(HttpHeaders.ACCEPT, ProductProtobufHttpMessageConverter.PROTOBUF.toString())
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .header(SECRET_HEADER, secret)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .handle((response, failure) -> {
+                if (failure != null) {
+                    logger.warn("Peer {} did not answer for {} products: {}", owner, ids.size(), failure.toString());
+                } else if (response.statusCode() != 200) {
+                    logger.warn("Peer {} answered {} for {} products", owner, response.statusCode(), ids.size());
+                } else {
+                    try {
+                        Map<String, Product> products = new HashMap<>();
+                        for (ProductMessage message : ProductListMessage.parseFrom(response.body()).getProductsList()) {
+                            Product product = ProductProtoMapper.fromMessage(message);
+                            products.put(product.id(), product);
+                        }
+                        peerReads.increment(ids.size());
+                        return Optional.of(products);
+                    } catch (InvalidProtocolBufferException e) {
+                        logger.warn("Peer {} sent invalid products", owner, e);
+                    }
+                }
+                suspend(owner);
+                return Optional.empty();
+            });
+    }
+
+    private boolean isSuspended(String owner) {
+        Long suspended = suspendedUntil.get(owner);
+        if (suspended == null) {
+            return false;
+        }
+        if (suspended - System.nanoTime() > 0) {
+            return true;
+        }
+        suspendedUntil.remove(owner, suspended);
+        return false;
+    }
+
+    private void suspend(String owner) {
+        peerFailures.increment();
+        suspendedUntil.put(owner, System.nanoTime() + config.getSuspendDuration().toNanos());
+    }
+
+    /**
+     * Drops a product from this replica's caches, e.g. when its owner is told of a write elsewhere.
+     */
+    public void evict(String id) {
+        generation.incrementAndGet();
+        owned.remove(id);
+        hot.remove(id);
+    }
+
+    /**
+     * Evicts changed products; products written on this replica are also evicted at their owner, best effort.
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.id());
+        if (event.remote()) {
+            return;
+        }
+        String owner = remoteOwnerOf(event.id());
+        if (owner == null) {
+            return;
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(owner + PATH + encodePathSegment(event.id())))
+            .timeout(config.getTimeout())
+            .header(SECRET_HEADER, secret)
+            .DELETE();
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+            .exceptionally(e -> {
+                logger.warn("Could not evict product {} at peer {}: {}", event.id(), owner, e.toString());
+                return null;
+            });
+    }
+
+    /**
+     * Re-reads the membership and rebuilds the ring when it changed, dropping products this replica no longer owns.
+     */
+    @Scheduled(fixedDelayString = "${product.cache.peer.refresh-interval:PT10S}")
+    public void refreshMembers() {
+        List<String> members;
+        String newSelf;
+        if (blankToNull(config.getDnsName()) != null) {
+            members = new ArrayList<>();
+            newSelf = null;
+            try {
+                for (InetAddress address : InetAddress.getAllByName(config.getDnsName())) {
+                    String url = baseUrl(address);
+                    members.add(url);
+                    if (isLocal(address)) {
+                        newSelf = url;
+                    }
+                }
+            } catch (UnknownHostException e) {
+                logger.warn("Could not resolve peers from {}, keeping {}", config.getDnsName(), ring.members(), e);
+                return;
+            }
+        } else {
+            members = config.getPeers().stream().filter(peer -> !peer.isBlank()).toList();
+            newSelf = blankToNull(config.getSelf());
+        }
+        ConsistentHashRing newRing = new ConsistentHashRing(members, config.getPointsPerPeer());
+        if (newRing.members().equals(ring.members()) && Objects.equals(newSelf, self)) {
+            return;
+        }
+        if (newSelf == null || !newRing.members().contains(newSelf)) {
+            logger.warn("This replica ({}) is not among the peers {}; it will not own any products", newSelf, newRing.members());
+        }
+        self = newSelf;
+        ring = newRing;
+        generation.incrementAndGet();
+        owned.keySet().removeIf(id -> remoteOwnerOf(id) != null);
+        hot.keySet().removeIf(id -> remoteOwnerOf(id) == null);
+        suspendedUntil.keySet().retainAll(newRing.members());
+        logger.info("Peer cache members: {}, this replica: {}", newRing.members(), newSelf);
+    }
+
+    /**
+     * Starts a new window for counting reads of products owned elsewhere.
+     */
+    @Scheduled(fixedDelayString = "${product.cache.peer.hot-window:PT1S}")
+    public void resetReadCounts() {
+        remoteReads.clear();
+    }
+
+    private void put(Map<String, Entry> entries, int maxEntries, Product product, long readGeneration) {
+        if (readGeneration != generation.get()) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            Iterator<String> ids = entries.keySet().iterator();
+            if (ids.hasNext()) {
+                entries.remove(ids.next());
+            }
+        }
+        Entry entry = new Entry(product, System.nanoTime());
+        entries.put(product.id(), entry);
+        if (readGeneration != generation.get()) {
+            entries.remove(product.id(), entry);
+        }
+    }
+
+    /**
+     * Time to wait for an owner: the configured timeout, or less if the request deadline is sooner.
+     */
+    private Duration timeout() {
+        Duration remaining = DeadlineContext.remaining();
+        if (remaining != null && remaining.compareTo(config.getTimeout()) < 0) {
+            return remaining.isNegative() || remaining.isZero() ? Duration.ofMillis(1) : remaining;
+        }
+        return config.getTimeout();
+    }
+
+    private String baseUrl(InetAddress address) {
+        String host = address instanceof Inet6Address
+            ? "[" + address.getHostAddress() + "]"
+            : address.getHostAddress();
+        return "http://" + host + ":" + serverPort + contextPath;
+    }
+
+    private static boolean isLocal(InetAddress address) {
+        try {
+            return address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+
+    private static String encodePathSegment(String id) {
+        return URLEncoder.encode(id, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static boolean isExpired(Entry entry, long ttlNanos) {
+        return System.nanoTime() - entry.createdAtNanos() >= ttlNanos;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("product.cache.peer.lookups")
+            .description("Peer cache lookups by where they were answered")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private record Entry(Product product, long createdAtNanos) {
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.peer;
+
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ProductDao decorator that reads products through the replica owning them in the {@link PeerCache}.
+ * Products this replica owns are read from its share of the cache and, on a miss, from the backend.
+ * Products owned elsewhere are asked of their owner, unless they are hot enough to have a local copy;
+ * if the owner cannot answer in time, the backend is read directly. Batch reads ask each owner for its
+ * products in one request, all owners at once, and read everything left over from the backend in one call.
+ * Reads carrying a session token and all writes go to the backend.
+ */
+public class PeerCachingProductDao implements ProductDao {
+
+    private final ProductDao delegate;
+    private final PeerCache peerCache;
+
+    public PeerCachingProductDao(ProductDao delegate, PeerCache peerCache) {
+        this.delegate = delegate;
+        this.peerCache = peerCache;
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        if (SessionTokenContext.getRequestToken() != null) {
+            return delegate.getProduct(id);
+        }
+        String owner = peerCache.remoteOwnerOf(id);
+        if (owner == null) {
+            return getOwned(id);
+        }
+
+        Optional<Product> hot = peerCache.getHot(id);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        long generation = peerCache.generation();
+        Optional<Optional<Product>> answer = peerCache.fetch(owner, id);
+        if (answer.isEmpty()) {
+            return delegate.getProduct(id);
+        }
+        peerCache.recordRemoteRead(id, answer.get(), generation);
+        return answer.get();
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        if (SessionTokenContext.getRequestToken() != null) {
+            return delegate.getProducts(ids);
+        }
+        Map<String, Product> products = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        Map<String, List<String>> remoteIds = new LinkedHashMap<>();
+        for (String id : ids) {
+            String owner = peerCache.remoteOwnerOf(id);
+            Optional<Product> product;
+            if (owner == null) {
+                product = peerCache.getOwned(id);
+                if (product.isEmpty()) {
+                    misses.add(id);
+                }
+            } else {
+                product = peerCache.getHot(id);
+                if (product.isEmpty()) {
+                    remoteIds.computeIfAbsent(owner, key -> new ArrayList<>()).add(id);
+                }
+            }
+            product.ifPresent(p -> products.put(id, p));
+        }
+
+        long remoteGeneration = peerCache.generation();
+        Map<String, CompletableFuture<Optional<Map<String, Product>>>> answers = new LinkedHashMap<>();
+        remoteIds.forEach((owner, ownerIds) -> answers.put(owner, peerCache.fetchAll(owner, ownerIds)));
+        answers.forEach((owner, answer) -> {
+            Optional<Map<String, Product>> found = answer.join();
+            if (found.isEmpty()) {
+                misses.addAll(remoteIds.get(owner));
+                return;
+            }
+            for (String id : remoteIds.get(owner)) {
+                Optional<Product> product = Optional.ofNullable(found.get().get(id));
+                peerCache.recordRemoteRead(id, product, remoteGeneration);
+                product.ifPresent(p -> products.put(id, p));
+            }
+        });
+        if (misses.isEmpty()) {
+            return products;
+        }
+
+        long generation = peerCache.generation();
+        Map<String, Product> found = delegate.getProducts(misses);
+        // Only owned products are cached; the others were read here because their owner could not answer
+        found.values().forEach(product -> peerCache.putOwned(product, generation));
+        products.putAll(found);
+        return products;
+    }
+
+    /**
+     * Reads a product from this replica's share of the cache, or from the backend on a miss.
+     */
+    public Optional<Product> getOwned(String id) {
+        Optional<Product> cached = peerCache.getOwned(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long generation = peerCache.generation();
+        Optional<Product> product = delegate.getProduct(id);
+        product.ifPresent(p -> peerCache.putOwned(p, generation));
+        return product;
+    }
+
+    /**
+     * Reads products from this replica's share of the cache, and those missing from the backend in one call.
+     */
+    public Map<String, Product> getOwned(Collection<String> ids) {
+        Map<String, Product> products = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            Optional<Product> cached = peerCache.getOwned(id);
+            if (cached.isPresent()) {
+                products.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return products;
+        }
+        long generation = peerCache.generation();
+        Map<String, Product> found = delegate.getProducts(misses);
+        found.values().forEach(product -> peerCache.putOwned(product, generation));
+        products.putAll(found);
+        return products;
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        delegate.putProduct(product);
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        delegate.deleteProduct(id);
+    }
+
+    @Override
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        return delegate.patchProduct(id, patch);
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        return delegate.getAllProduct(fields);
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        return delegate.scanProducts(fields, pageSize, continuationToken);
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        return delegate.queryProducts(query, fields);
+    }
+}
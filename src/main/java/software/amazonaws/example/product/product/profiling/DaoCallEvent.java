@@ -0,0 +1,110 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a ProductDao call against a database backend.
+ * Begun and committed around the call by the observed DAO; backends add response details
+ * of the call in progress on the same thread through {@link #annotateCurrent}.
+ * Product ids are recorded as hashes so recordings can be shared without the catalog.
+ */
+@Name(DaoCallEvent.NAME)
+@Label("Product DAO Call")
+@Category({"Product Service", "Database"})
+@Description("A product database call, with its backend cost and outcome")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    public static final String NAME = "software.amazonaws.example.product.DaoCall";
+
+    private static final ThreadLocal<DaoCallEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Id Hash")
+    @Description("Hash of the product id, 0 for calls not about a single product")
+    int idHash;
+
+    @Label("Request Charge")
+    @Description("Request units (Cosmos DB) or consumed capacity units (DynamoDB), summed over the call; -1 if unknown")
+    double requestCharge = -1;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Outcome")
+    @Description("success, or the simple name of the exception the call failed with")
+    String outcome;
+
+    // The event of an enclosing call on this thread, restored when this one ends; not recorded
+    transient DaoCallEvent previous;
+
+    /**
+     * Begins an event for a call and makes it the current one on this thread, if the event is enabled.
+     *
+     * @param id the product id, or null
+     * @return the event to pass to {@link #end}
+     */
+    public static DaoCallEvent begin(String backend, String operation, String id) {
+        DaoCallEvent event = new DaoCallEvent();
+        if (event.isEnabled()) {
+            event.backend = backend;
+            event.operation = operation;
+            event.idHash = id == null ? 0 : id.hashCode();
+            event.previous = CURRENT.get();
+            CURRENT.set(event);
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Commits the event with the outcome of the call.
+     *
+     * @param failure the exception the call failed with, or null
+     */
+    public static void end(DaoCallEvent event, Throwable failure) {
+        if (!event.isEnabled()) {
+            return;
+        }
+        if (event.previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(event.previous);
+        }
+        event.outcome = failure == null ? "success" : failure.getClass().getSimpleName();
+        event.commit();
+    }
+
+    /**
+     * Adds the details of a backend response to the event of the call in progress on this thread, if any.
+     *
+     * @param requestCharge request units or consumed capacity units, negative if unknown
+     */
+    public static void annotateCurrent(int statusCode, double requestCharge, int retries) {
+        DaoCallEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        event.statusCode = statusCode;
+        if (requestCharge >= 0) {
+            event.requestCharge = Math.max(event.requestCharge, 0) + requestCharge;
+        }
+        event.retries += retries;
+    }
+}
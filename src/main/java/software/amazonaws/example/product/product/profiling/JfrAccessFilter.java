@@ -0,0 +1,65 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards {@link JfrEndpoint}, which shares the public port with the API: requests to /actuator/jfr need
+ * {@code Authorization: Bearer <product.profiling.token>}, and without a configured token they are all refused.
+ * Requests are matched on their decoded path without matrix parameters, as the endpoint's mapping is, so that
+ * e.g. /actuator/jfr;x cannot reach the endpoint past the filter.
+ */
+@Component
+public class JfrAccessFilter extends OncePerRequestFilter {
+    private static final String BEARER = "Bearer ";
+
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    static {
+        PATHS.setRemoveSemicolonContent(true);
+        PATHS.setUrlDecode(true);
+    }
+
+    private final String path;
+    private final byte[] token;
+
+    public JfrAccessFilter(ProductConfigurationProperties productConfig,
+                           @Value("${management.endpoints.web.base-path:/actuator}") String basePath) {
+        this.path = basePath + "/jfr";
+        String configured = productConfig.getProfiling().getToken();
+        this.token = configured == null || configured.isBlank() ? null : configured.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String lookupPath = PATHS.getPathWithinApplication(request);
+        return !lookupPath.equals(path) && !lookupPath.startsWith(path + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (token == null || authorization == null || !authorization.startsWith(BEARER)
+            || !MessageDigest.isEqual(token, authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,210 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint at /actuator/jfr that records the replica with JDK Flight Recorder for a while,
+ * for JDK Mission Control or {@code jfr print}: {@code POST .../actuator/jfr?duration=30s} starts a recording
+ * and returns at once, and {@code GET .../actuator/jfr} downloads it when it has finished (202 until then).
+ * The recording uses a low-overhead settings profile plus the product {@link RequestEvent}s and
+ * {@link DaoCallEvent}s, so a live replica can be profiled without attaching tools. Events carrying the
+ * environment, system or security properties, or JVM arguments are left out, as they may hold secrets.
+ * Only one recording runs at a time; requests are only served with the token, see {@link JfrAccessFilter}.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(JfrEndpoint.class);
+
+    static final String[] SENSITIVE_EVENTS = {
+        "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.InitialSecurityProperty",
+        "jdk.JVMInformation"
+    };
+    private static final int STATUS_ACCEPTED = 202;
+
+    private final ProductConfigurationProperties.Profiling config;
+    private final ScheduledExecutorService executor;
+    // Guarded by this
+    private Recording active;
+    private Instant activeUntil;
+    private Path finished;
+
+    public JfrEndpoint(ProductConfigurationProperties productConfig) {
+        this.config = productConfig.getProfiling();
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "jfr-recording");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a recording, replacing a finished one nobody downloaded.
+     *
+     * @param duration how long to record for, capped at the configured maximum
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<RecordingStatus> start(@Nullable Duration duration) {
+        if (active != null) {
+            return new WebEndpointResponse<>(new RecordingStatus("recording", activeUntil),
+                WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        Duration recordFor = duration == null || duration.isNegative() || duration.isZero()
+            ? config.getDefaultDuration()
+            : min(duration, config.getMaxDuration());
+        try {
+            discardFinished();
+            Path file = Files.createTempFile("product-", ".jfr");
+            Recording jfr = newRecording();
+            logger.info("Starting {} Flight Recorder recording with {} settings", recordFor, config.getSettings());
+            jfr.start();
+            active = jfr;
+            activeUntil = Instant.now().plus(recordFor);
+            executor.schedule(() -> finish(jfr, file), recordFor.toMillis(), TimeUnit.MILLISECONDS);
+            return new WebEndpointResponse<>(new RecordingStatus("recording", activeUntil), STATUS_ACCEPTED);
+        } catch (IOException | ParseException e) {
+            logger.warn("Flight Recorder recording failed", e);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Returns the finished recording once, 202 while it is still recording, or 404 if there is none.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download() {
+        if (finished != null) {
+            Path file = finished;
+            finished = null;
+            return new WebEndpointResponse<>(new TemporaryFileResource(file));
+        }
+        return new WebEndpointResponse<>(active != null ? STATUS_ACCEPTED : WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+        discardFinished();
+    }
+
+    Recording newRecording() throws IOException, ParseException {
+        Recording jfr = new Recording(Configuration.getConfiguration(config.getSettings()));
+        jfr.setName("product-on-demand");
+        jfr.enable(RequestEvent.class);
+        jfr.enable(DaoCallEvent.class);
+        for (String event : SENSITIVE_EVENTS) {
+            jfr.disable(event);
+        }
+        return jfr;
+    }
+
+    private void finish(Recording jfr, Path file) {
+        Path recorded = null;
+        try {
+            jfr.stop();
+            jfr.dump(file);
+            recorded = file;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Flight Recorder recording failed", e);
+        } finally {
+            jfr.close();
+        }
+        boolean kept = false;
+        synchronized (this) {
+            if (active == jfr) {
+                active = null;
+                finished = recorded;
+                kept = recorded != null;
+            }
+        }
+        if (!kept) {
+            deleteQuietly(file);
+        }
+    }
+
+    private void discardFinished() {
+        if (finished != null) {
+            deleteQuietly(finished);
+            finished = null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete recording {}", file, e);
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * State of the recording in progress and when it ends.
+     */
+    public record RecordingStatus(String state, Instant until) {
+    }
+
+    /**
+     * Recording file deleted once it has been streamed to the client.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // Makes the response stream the file through getInputStream rather than use it directly
+            return false;
+        }
+    }
+}
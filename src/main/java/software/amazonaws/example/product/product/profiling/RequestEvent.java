@@ -0,0 +1,55 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for an HTTP request to the product API, from the first interceptor
+ * to completion, so that DAO calls and JVM activity can be attributed to the request they served.
+ */
+@Name(RequestEvent.NAME)
+@Label("Product API Request")
+@Category({"Product Service", "HTTP"})
+@Description("A product API request handled by this replica")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    public static final String NAME = "software.amazonaws.example.product.Request";
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    @Description("The matched route pattern, e.g. /products/{id}")
+    String route;
+
+    @Label("Status")
+    int status;
+
+    @Label("Exception")
+    @Description("Simple name of the exception that escaped the handler, if any")
+    String exception;
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public void setException(String exception) {
+        this.exception = exception;
+    }
+}
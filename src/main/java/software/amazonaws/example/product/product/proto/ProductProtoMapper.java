@@ -0,0 +1,78 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.proto;
+
+import com.google.protobuf.ByteString;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps between the Product entities and their generated Protobuf messages.
+ */
+public final class ProductProtoMapper {
+
+    private ProductProtoMapper() {
+    }
+
+    public static ProductMessage toMessage(Product product) {
+        ProductMessage.Builder builder = ProductMessage.newBuilder();
+        if (product.id() != null) {
+            builder.setId(product.id());
+        }
+        if (product.name() != null) {
+            builder.setName(product.name());
+        }
+        if (product.price() != null) {
+            builder.setPrice(toDecimal(product.price()));
+        }
+        if (product.category() != null) {
+            builder.setCategory(product.category());
+        }
+        return builder.build();
+    }
+
+    public static Product fromMessage(ProductMessage message) {
+        return new Product(
+            message.hasId() ? message.getId() : null,
+            message.hasName() ? message.getName() : null,
+            message.hasPrice() ? fromDecimal(message.getPrice()) : null,
+            message.hasCategory() ? message.getCategory() : null
+        );
+    }
+
+    public static ProductListMessage toMessage(Products products) {
+        ProductListMessage.Builder builder = ProductListMessage.newBuilder();
+        for (Product product : products.products()) {
+            builder.addProducts(toMessage(product));
+        }
+        return builder.build();
+    }
+
+    public static Products fromMessage(ProductListMessage message) {
+        List<Product> products = new ArrayList<>(message.getProductsCount());
+        for (ProductMessage product : message.getProductsList()) {
+            products.add(fromMessage(product));
+        }
+        return new Products(products);
+    }
+
+    public static Decimal toDecimal(BigDecimal value) {
+        return Decimal.newBuilder()
+            .setUnscaledValue(ByteString.copyFrom(value.unscaledValue().toByteArray()))
+            .setScale(value.scale())
+            .build();
+    }
+
+    public static BigDecimal fromDecimal(Decimal decimal) {
+        BigInteger unscaled = decimal.getUnscaledValue().isEmpty()
+            ? BigInteger.ZERO
+            : new BigInteger(decimal.getUnscaledValue().toByteArray());
+        return new BigDecimal(unscaled, decimal.getScale());
+    }
+}
@@ -0,0 +1,218 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Per-client rate limiter protecting the database throughput budget.
+ * Each client has one token bucket per cost class, so a client listing products cannot use up
+ * the budget for its point reads and vice versa. Buckets live in a concurrent map and take tokens
+ * with a compare-and-set, so the limiter adds no lock to the request path.
+ * Idle clients are evicted once their buckets have refilled, which forgets nothing.
+ *
+ * <p>Clients are identified by API key only when the key is one of the configured keys, otherwise by
+ * remote address, so that inventing keys does not buy fresh budgets. Beyond max-clients, new clients are
+ * spread by key over a fixed set of overflow buckets rather than all sharing one.
+ */
+@Component
+@ConditionalOnProperty(value = "product.rate-limit.enabled", havingValue = "true")
+public class RateLimiter {
+
+    /**
+     * How much of the throughput budget an operation consumes.
+     */
+    public enum CostClass {
+        CHEAP, EXPENSIVE
+    }
+
+    static final String OTHER = "other";
+    static final int OVERFLOW_BUCKETS = 1024;
+
+    private final ProductConfigurationProperties.RateLimit config;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final Client[] overflow = new Client[OVERFLOW_BUCKETS];
+    private final Set<String> apiKeyHashes;
+    private final AtomicInteger taggedClients = new AtomicInteger();
+
+    @Autowired
+    public RateLimiter(ProductConfigurationProperties productConfig, MeterRegistry meterRegistry) {
+        this(productConfig.getRateLimit(), meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(ProductConfigurationProperties.RateLimit config, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new Client(OTHER, nanoTime.getAsLong());
+        }
+        this.apiKeyHashes = config.getApiKeys().stream()
+            .filter(key -> !key.isBlank())
+            .map(RateLimiter::sha256)
+            .collect(Collectors.toUnmodifiableSet());
+
+        Gauge.builder("product.ratelimit.clients", clients, Map::size)
+            .description("Clients with a rate limit budget in use")
+            .register(meterRegistry);
+    }
+
+    public String getApiKeyHeader() {
+        return config.getApiKeyHeader();
+    }
+
+    /**
+     * The client key of a request: "key:" followed by its API key if that is a configured key,
+     * otherwise "ip:" followed by its remote address.
+     *
+     * @param apiKey the request's API key header, or null
+     */
+    public String clientOf(String apiKey, String remoteAddress) {
+        // Compares hashes, so the time taken reveals nothing about the configured keys
+        if (apiKey != null && !apiKey.isBlank() && apiKeyHashes.contains(sha256(apiKey))) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + remoteAddress;
+    }
+
+    /**
+     * Takes one request's worth of the client's budget for the cost class.
+     *
+     * @param client the client key, see {@link #clientOf}
+     * @return 0 if the request may proceed, otherwise the nanoseconds until the client may retry
+     */
+    public long tryAcquire(String client, CostClass costClass) {
+        long now = nanoTime.getAsLong();
+        Client state = clients.get(client);
+        if (state == null) {
+            state = clients.size() < config.getMaxClients()
+                ? clients.computeIfAbsent(client, key -> new Client(key, now))
+                : overflow[Math.floorMod(client.hashCode(), OVERFLOW_BUCKETS)];
+        }
+        return state.tryAcquire(costClass, now);
+    }
+
+    /**
+     * Evicts clients whose buckets are all full again: a new bucket for them would be identical.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    void evictIdleClients() {
+        long now = nanoTime.getAsLong();
+        clients.values().removeIf(client -> {
+            if (!client.isIdle(now)) {
+                return false;
+            }
+            client.removeMeters();
+            return true;
+        });
+    }
+
+    int trackedClients() {
+        return clients.size();
+    }
+
+    /**
+     * Metric tag for a client: API keys are hashed so that they do not end up in the metrics backend,
+     * and only the first clients seen get a tag of their own to bound the metric's cardinality.
+     */
+    private String tag(String client) {
+        if (client.equals(OTHER) || !reserveTag()) {
+            return OTHER;
+        }
+        if (client.startsWith("key:")) {
+            return "key:" + sha256(client.substring(4)).substring(0, 12);
+        }
+        return client;
+    }
+
+    private boolean reserveTag() {
+        int tagged;
+        do {
+            tagged = taggedClients.get();
+            if (tagged >= config.getMetricsClients()) {
+                return false;
+            }
+        } while (!taggedClients.compareAndSet(tagged, tagged + 1));
+        return true;
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class Client {
+        private final TokenBucket cheap;
+        private final TokenBucket expensive;
+        private final boolean ownTag;
+        private final Counter[] allowed = new Counter[CostClass.values().length];
+        private final Counter[] limited = new Counter[CostClass.values().length];
+
+        Client(String client, long now) {
+            this.cheap = new TokenBucket(config.getCheap().getCapacity(), config.getCheap().getRefillPerSecond(), now);
+            this.expensive = new TokenBucket(config.getExpensive().getCapacity(),
+                config.getExpensive().getRefillPerSecond(), now);
+            String tag = tag(client);
+            this.ownTag = !tag.equals(OTHER);
+            for (CostClass costClass : CostClass.values()) {
+                allowed[costClass.ordinal()] = counter(tag, costClass, "allowed");
+                limited[costClass.ordinal()] = counter(tag, costClass, "limited");
+            }
+        }
+
+        long tryAcquire(CostClass costClass, long now) {
+            long wait = (costClass == CostClass.CHEAP ? cheap : expensive).tryAcquire(now);
+            (wait == 0 ? allowed : limited)[costClass.ordinal()].increment();
+            return wait;
+        }
+
+        boolean isIdle(long now) {
+            return cheap.isFull(now) && expensive.isFull(now);
+        }
+
+        void removeMeters() {
+            if (ownTag) {
+                for (CostClass costClass : CostClass.values()) {
+                    meterRegistry.remove(allowed[costClass.ordinal()]);
+                    meterRegistry.remove(limited[costClass.ordinal()]);
+                }
+                taggedClients.decrementAndGet();
+            }
+        }
+
+        private Counter counter(String tag, CostClass costClass, String outcome) {
+            return Counter.builder("product.ratelimit.requests")
+                .description("Rate limited product requests per client, cost class and outcome")
+                .tag("client", tag)
+                .tag("class", costClass.name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.saturation;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint publishing the replica's saturation at /actuator/saturation,
+ * in a shape a KEDA metrics-api scaler can read (valueLocation: saturation).
+ */
+@Component
+@Endpoint(id = "saturation")
+public class SaturationEndpoint {
+
+    private final SaturationMonitor saturationMonitor;
+
+    public SaturationEndpoint(SaturationMonitor saturationMonitor) {
+        this.saturationMonitor = saturationMonitor;
+    }
+
+    @ReadOperation
+    public SaturationMonitor.Saturation saturation() {
+        return saturationMonitor.snapshot();
+    }
+}
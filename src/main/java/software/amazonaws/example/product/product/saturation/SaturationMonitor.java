@@ -0,0 +1,160 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.saturation;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.ObservedProductDao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how saturated this replica is, as a signal for the autoscaler.
+ * Follows the HTTP server observations of /products requests and the product.dao observations of
+ * database calls to track in-flight requests, in-flight database calls and recent request latency,
+ * and reports each against its target. The saturation is the highest of the three ratios:
+ * 1.0 means the replica is at capacity on at least one of them. Request latencies go to a timer
+ * whose client-side p99 only covers the latency window.
+ */
+@Component
+public class SaturationMonitor implements ObservationHandler<Observation.Context> {
+
+    private static final String PRODUCTS_PATH = "/products";
+    private static final String STARTED_AT = SaturationMonitor.class.getName() + ".startedAt";
+    private static final String DAO_CALL = SaturationMonitor.class.getName() + ".daoCall";
+
+    private final int targetConcurrency;
+    private final int daoTargetConcurrency;
+    private final long latencySloNanos;
+    private final Clock clock;
+    private final Timer latency;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger inFlightDaoCalls = new AtomicInteger();
+
+    @Autowired
+    public SaturationMonitor(ProductConfigurationProperties productConfig, MeterRegistry meterRegistry) {
+        this(productConfig.getSaturation(), meterRegistry);
+    }
+
+    SaturationMonitor(ProductConfigurationProperties.Saturation config, MeterRegistry meterRegistry) {
+        this.targetConcurrency = config.getTargetConcurrency();
+        this.daoTargetConcurrency = config.getDaoTargetConcurrency();
+        this.latencySloNanos = config.getLatencySlo().toNanos();
+        this.clock = meterRegistry.config().clock();
+        this.latency = Timer.builder("product.requests.latency")
+            .description("Latency of product requests, with the p99 over the saturation latency window")
+            .publishPercentiles(0.99)
+            .percentilePrecision(2)
+            .distributionStatisticExpiry(config.getLatencyWindow())
+            .register(meterRegistry);
+
+        Gauge.builder("product.saturation", this, SaturationMonitor::saturation)
+            .description("Highest of in-flight requests, in-flight database calls and p99 latency relative to their targets")
+            .register(meterRegistry);
+        Gauge.builder("product.requests.in-flight", inFlightRequests, AtomicInteger::get)
+            .description("Product requests being processed")
+            .register(meterRegistry);
+        Gauge.builder("product.dao.in-flight", inFlightDaoCalls, AtomicInteger::get)
+            .description("Database calls waiting on a backend")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof ServerRequestObservationContext
+            || ObservedProductDao.OBSERVATION_NAME.equals(context.getName());
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (context instanceof ServerRequestObservationContext serverContext) {
+            if (isProductRequest(serverContext)) {
+                inFlightRequests.incrementAndGet();
+                context.put(STARTED_AT, clock.monotonicTime());
+            }
+        } else {
+            inFlightDaoCalls.incrementAndGet();
+            context.put(DAO_CALL, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long startedAt = context.get(STARTED_AT);
+        if (startedAt != null) {
+            inFlightRequests.decrementAndGet();
+            latency.record(clock.monotonicTime() - startedAt, TimeUnit.NANOSECONDS);
+        } else if (context.get(DAO_CALL) != null) {
+            inFlightDaoCalls.decrementAndGet();
+        }
+    }
+
+    public Saturation snapshot() {
+        int requests = inFlightRequests.get();
+        int daoCalls = inFlightDaoCalls.get();
+        long p99 = latencyP99();
+        double saturation = Math.max(
+            (double) requests / targetConcurrency,
+            Math.max((double) daoCalls / daoTargetConcurrency, (double) p99 / latencySloNanos));
+        return new Saturation(saturation,
+            requests, targetConcurrency,
+            daoCalls, daoTargetConcurrency,
+            p99 / 1_000_000.0, latencySloNanos / 1_000_000.0);
+    }
+
+    public double saturation() {
+        return snapshot().saturation();
+    }
+
+    /**
+     * Requests to the product API, not to the internal endpoints that also serve products.
+     */
+    private static boolean isProductRequest(ServerRequestObservationContext context) {
+        HttpServletRequest request = context.getCarrier();
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (uri == null || !uri.startsWith(contextPath)) {
+            return false;
+        }
+        String path = uri.substring(contextPath.length());
+        return path.equals(PRODUCTS_PATH) || path.startsWith(PRODUCTS_PATH + "/");
+    }
+
+    /**
+     * p99 over the latencies recorded within the window, or 0 when there were none.
+     */
+    long latencyP99() {
+        ValueAtPercentile[] percentiles = latency.takeSnapshot().percentileValues();
+        return percentiles.length == 0 ? 0 : (long) percentiles[0].value(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Saturation of this replica and its components.
+     *
+     * @param saturation the highest of the component ratios; above 1.0 the replica is overloaded
+     * @param inFlightRequests product requests being processed
+     * @param targetConcurrency product requests the replica is sized for
+     * @param inFlightDaoCalls database calls waiting on a backend
+     * @param daoTargetConcurrency database calls the replica is sized for
+     * @param latencyP99Millis p99 latency of recent product requests
+     * @param latencySloMillis target p99 latency
+     */
+    public record Saturation(double saturation,
+                             int inFlightRequests, int targetConcurrency,
+                             int inFlightDaoCalls, int daoTargetConcurrency,
+                             double latencyP99Millis, double latencySloMillis) {
+    }
+}
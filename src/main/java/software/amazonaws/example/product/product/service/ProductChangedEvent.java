@@ -0,0 +1,19 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.service;
+
+/**
+ * Published by {@link ProductService} after a product was created, updated or deleted,
+ * and for changes made by other replicas as they are received over the invalidation channel.
+ *
+ * @param id the id of the changed product
+ * @param deleted whether the product was deleted
+ * @param remote whether the change was made by another replica
+ */
+public record ProductChangedEvent(String id, boolean deleted, boolean remote) {
+
+    public ProductChangedEvent(String id) {
+        this(id, false, false);
+    }
+}
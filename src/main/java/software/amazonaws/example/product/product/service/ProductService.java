@@ -3,24 +3,41 @@
 
 package software.amazonaws.example.product.product.service;
 
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import software.amazonaws.example.product.product.catalog.CatalogProjection;
 import software.amazonaws.example.product.product.dao.ProductDao;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Service layer for Product operations.
  * Separates business logic from HTTP controller concerns.
+ * Each operation is observed as a product.service span between the HTTP and database spans.
  */
 @Service
 public class ProductService {
 
     private final ProductDao productDao;
+    private final CatalogProjection catalogProjection;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductDao productDao) {
+    public ProductService(ProductDao productDao,
+                          ObjectProvider<CatalogProjection> catalogProjection,
+                          ApplicationEventPublisher eventPublisher) {
         this.productDao = productDao;
+        this.catalogProjection = catalogProjection.getIfAvailable();
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -29,26 +46,132 @@ public class ProductService {
      * @param id the product ID
      * @return Optional containing the product if found, empty otherwise
      */
+    @Observed(name = "product.service")
     public Optional<Product> getProductById(String id) {
         return productDao.getProduct(id);
     }
 
+    /**
+     * Retrieves several products by their IDs, with batched backend reads where the backend has them.
+     *
+     * @param ids the product IDs
+     * @return the products found, by ID; IDs of products that don't exist are absent
+     */
+    @Observed(name = "product.service")
+    public Map<String, Product> getProductsByIds(Collection<String> ids) {
+        return productDao.getProducts(ids);
+    }
+
     /**
      * Retrieves all products.
+     * Served from the catalog projection when it is enabled and within its staleness bound.
      *
      * @return Products containing list of all products
      */
+    @Observed(name = "product.service")
     public Products getAllProducts() {
+        if (catalogProjection != null && catalogProjection.isFresh()) {
+            return catalogProjection.snapshot();
+        }
         return productDao.getAllProduct();
     }
 
+    /**
+     * Retrieves all products with only the requested fields populated.
+     * The projection is pushed down to the backend query when the catalog projection is not used.
+     *
+     * @param fields the fields to populate
+     * @return Products containing list of all products
+     */
+    @Observed(name = "product.service")
+    public Products getAllProducts(ProductFields fields) {
+        if (catalogProjection != null && catalogProjection.isFresh()) {
+            return fields.project(catalogProjection.snapshot());
+        }
+        return productDao.getAllProduct(fields);
+    }
+
+    /**
+     * Reads the catalog a page at a time, for callers streaming all of it.
+     * When the catalog projection is fresh, the first page is its whole snapshot; otherwise pages come from
+     * a paged backend scan, as a backend listing may stop short of the full catalog.
+     *
+     * @param pageSize the maximum number of products per backend page
+     * @param continuationToken the token of the previous page, or null for the first page
+     * @return the page, with a null continuation token after the last one
+     */
+    @Observed(name = "product.service")
+    public ProductPage scanProducts(int pageSize, String continuationToken) {
+        if (continuationToken == null && catalogProjection != null && catalogProjection.isFresh()) {
+            return new ProductPage(catalogProjection.snapshot().products(), null);
+        }
+        return productDao.scanProducts(ProductFields.ALL, pageSize, continuationToken);
+    }
+
+    /**
+     * Searches products by name prefix and price range.
+     * Answered from the in-process indexes of the catalog projection when it is fresh,
+     * otherwise pushed down to the backend as a query.
+     *
+     * @param query the search criteria
+     * @return Products matching the query
+     */
+    @Observed(name = "product.service")
+    public Products searchProducts(ProductQuery query) {
+        if (catalogProjection != null && catalogProjection.isFresh()) {
+            return catalogProjection.query(query);
+        }
+        return productDao.queryProducts(query);
+    }
+
+    /**
+     * Searches products with only the requested fields populated.
+     *
+     * @param query the search criteria
+     * @param fields the fields to populate
+     * @return Products matching the query
+     */
+    @Observed(name = "product.service")
+    public Products searchProducts(ProductQuery query, ProductFields fields) {
+        if (catalogProjection != null && catalogProjection.isFresh()) {
+            return fields.project(catalogProjection.query(query));
+        }
+        return productDao.queryProducts(query, fields);
+    }
+
     /**
      * Creates or updates a product.
      *
      * @param product the product to create/update
      */
+    @Observed(name = "product.service")
     public void createOrUpdateProduct(Product product) {
         productDao.putProduct(product);
+        if (catalogProjection != null) {
+            catalogProjection.apply(product);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(product.id()));
+    }
+
+    /**
+     * Updates some fields of a product, with a server-side partial update where the backend has one.
+     *
+     * @param id the product ID
+     * @param patch the fields to set and the optional expected price
+     * @return Optional containing the updated product, empty if it didn't exist
+     * @throws software.amazonaws.example.product.product.dao.PreconditionFailedException
+     *         if the product's price is not the expected one
+     */
+    @Observed(name = "product.service")
+    public Optional<Product> patchProduct(String id, ProductPatch patch) {
+        Optional<Product> patched = productDao.patchProduct(id, patch);
+        if (patched.isPresent()) {
+            if (catalogProjection != null) {
+                catalogProjection.apply(patched.get());
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
+        }
+        return patched;
     }
 
     /**
@@ -57,10 +180,16 @@ public class ProductService {
      * @param id the product ID to delete
      * @return true if the product existed and was deleted, false if it didn't exist
      */
+    @Observed(name = "product.service")
     public boolean deleteProduct(String id) {
         Optional<Product> existingProduct = productDao.getProduct(id);
         if (existingProduct.isPresent()) {
             productDao.deleteProduct(id);
+            if (catalogProjection != null) {
+                // The change feed does not report deletes, so apply them locally straight away
+                catalogProjection.remove(id);
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(id, true, false));
             return true;
         }
         return false;
@@ -72,6 +201,7 @@ public class ProductService {
      * @param id the product ID
      * @return true if the product exists, false otherwise
      */
+    @Observed(name = "product.service")
     public boolean productExists(String id) {
         return productDao.getProduct(id).isPresent();
     }
@@ -0,0 +1,125 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.invalidation.LocalInvalidationChannel;
+import software.amazonaws.example.product.product.invalidation.ProductInvalidations;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for OffHeapCachingProductDao.
+ * Tests that a read racing with a write on the same replica does not cache the value it read before the write.
+ */
+class OffHeapCachingProductDaoTest {
+
+    private final Product before = new Product("1", "Test Product", new BigDecimal("10.00"));
+    private final Product after = new Product("1", "Test Product", new BigDecimal("12.00"));
+
+    private final ProductDao delegate = mock(ProductDao.class);
+    private final ProductInvalidations invalidations = new ProductInvalidations(
+        new LocalInvalidationChannel(), event -> { }, new SimpleMeterRegistry());
+
+    @Test
+    void testReadOverlappingLocalWriteIsNotCached() {
+        // Given
+        OffHeapProductStore store = store();
+        OffHeapCachingProductDao dao = new OffHeapCachingProductDao(delegate, store, invalidations);
+        when(delegate.getProduct("1")).thenAnswer(invocation -> {
+            // The write completes while the read of the old value is in flight
+            dao.putProduct(after);
+            return Optional.of(before);
+        });
+
+        // When
+        Optional<Product> read = dao.getProduct("1");
+
+        // Then
+        assertEquals(Optional.of(before), read);
+        assertNotEquals(Optional.of(before), store.get("1"));
+    }
+
+    @Test
+    void testReadStoredAfterLocalWriteIsDropped() {
+        // Given
+        OffHeapCachingProductDao[] dao = new OffHeapCachingProductDao[1];
+        OffHeapProductStore store = new OffHeapProductStore(offHeapConfig(), Clock.systemUTC()) {
+            private boolean written;
+
+            @Override
+            public boolean put(Product product) {
+                if (product.equals(before) && !written) {
+                    // The read was checked before the write, but is stored after the write stored its value
+                    written = true;
+                    dao[0].putProduct(after);
+                }
+                return super.put(product);
+            }
+        };
+        dao[0] = new OffHeapCachingProductDao(delegate, store, invalidations);
+        when(delegate.getProduct("1")).thenReturn(Optional.of(before));
+
+        // When
+        dao[0].getProduct("1");
+
+        // Then
+        assertNotEquals(Optional.of(before), store.get("1"));
+    }
+
+    @Test
+    void testReadOverlappingLocalDeleteIsNotCached() {
+        // Given
+        OffHeapProductStore store = store();
+        OffHeapCachingProductDao dao = new OffHeapCachingProductDao(delegate, store, invalidations);
+        when(delegate.getProduct("1")).thenAnswer(invocation -> {
+            dao.deleteProduct("1");
+            return Optional.of(before);
+        });
+
+        // When
+        dao.getProduct("1");
+
+        // Then
+        assertEquals(Optional.empty(), store.get("1"));
+    }
+
+    @Test
+    void testCachesReadsWithoutOverlappingWrites() {
+        // Given
+        OffHeapProductStore store = store();
+        OffHeapCachingProductDao dao = new OffHeapCachingProductDao(delegate, store, invalidations);
+        dao.putProduct(before);
+        store.remove("1");
+        when(delegate.getProduct("1")).thenReturn(Optional.of(before));
+
+        // When
+        dao.getProduct("1");
+        dao.getProduct("1");
+
+        // Then
+        assertEquals(Optional.of(before), store.get("1"));
+        verify(delegate, times(1)).getProduct("1");
+    }
+
+    private static OffHeapProductStore store() {
+        return new OffHeapProductStore(offHeapConfig(), Clock.systemUTC());
+    }
+
+    private static ProductConfigurationProperties.OffHeap offHeapConfig() {
+        ProductConfigurationProperties.OffHeap config = new ProductConfigurationProperties.OffHeap();
+        config.setMaxEntries(100);
+        config.setSegments(4);
+        return config;
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OffHeapProductStore.
+ * Tests the compact off-heap layout, the open-addressing index and clock eviction.
+ */
+class OffHeapProductStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testRoundTripsProducts() {
+        // Given
+        OffHeapProductStore store = store(100, 4);
+        Product product = new Product("1", "Prodüct ✓", new BigDecimal("-29.990"));
+        Product withoutNameAndPrice = new Product("2", null, null);
+        Product categorized = new Product("3", null, new BigDecimal("5"), "Bücher");
+
+        // When
+        store.put(product);
+        store.put(withoutNameAndPrice);
+        store.put(categorized);
+
+        // Then
+        assertEquals(Optional.of(product), store.get("1"));
+        assertEquals(3, store.get("1").get().price().scale());
+        assertEquals(Optional.of(withoutNameAndPrice), store.get("2"));
+        assertEquals(Optional.of(categorized), store.get("3"));
+        assertEquals(Optional.empty(), store.get("4"));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testReplacesAndRemoves() {
+        // Given
+        OffHeapProductStore store = store(100, 4);
+        for (int i = 0; i < 50; i++) {
+            store.put(new Product(String.valueOf(i), "Test Product " + i, BigDecimal.valueOf(i)));
+        }
+
+        // When
+        store.put(new Product("7", "Updated", BigDecimal.ONE));
+        for (int i = 0; i < 50; i += 2) {
+            store.remove(String.valueOf(i));
+        }
+
+        // Then
+        assertEquals(25, store.size());
+        assertEquals("Updated", store.get("7").get().name());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 == 1, store.get(String.valueOf(i)).isPresent(), "product " + i);
+        }
+    }
+
+    @Test
+    void testEvictsUnreferencedEntriesWhenFull() {
+        // Given
+        OffHeapProductStore store = store(4, 1);
+        for (int i = 0; i < 4; i++) {
+            store.put(new Product(String.valueOf(i), "Test Product", BigDecimal.ONE));
+        }
+        store.get("0");
+
+        // When
+        store.put(new Product("4", "Test Product", BigDecimal.ONE));
+
+        // Then
+        assertEquals(4, store.size());
+        assertTrue(store.get("0").isPresent());
+        assertFalse(store.get("1").isPresent());
+        assertTrue(store.get("4").isPresent());
+    }
+
+    @Test
+    void testExpiresEntries() {
+        // Given
+        OffHeapProductStore store = store(10, 1);
+        store.put(new Product("1", "Test Product", BigDecimal.ONE));
+
+        // When
+        clock.advance(Duration.ofMinutes(6));
+
+        // Then
+        assertFalse(store.get("1").isPresent());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testSkipsProductsThatDoNotFit() {
+        // Given
+        OffHeapProductStore store = store(10, 1);
+        store.put(new Product("1", "Test Product", BigDecimal.ONE));
+
+        // When
+        boolean longName = store.put(new Product("1", "x".repeat(200), BigDecimal.ONE));
+        boolean hugePrice = store.put(new Product("2", "Test Product", new BigDecimal("1e30").setScale(2)));
+
+        // Then
+        assertFalse(longName);
+        assertFalse(hugePrice);
+        assertFalse(store.get("1").isPresent());
+        assertFalse(store.get("2").isPresent());
+    }
+
+    private OffHeapProductStore store(int maxEntries, int segments) {
+        ProductConfigurationProperties.OffHeap config = new ProductConfigurationProperties.OffHeap();
+        config.setMaxEntries(maxEntries);
+        config.setSegments(segments);
+        return new OffHeapProductStore(config, clock);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.InMemoryProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductIdFilter and NegativeLookupProductDao.
+ * Tests membership of added and deleted ids, growth, rebuilds from paged scans and reads skipped for absent ids.
+ */
+class ProductIdFilterTest {
+
+    private final ProductConfigurationProperties.Negative config = new ProductConfigurationProperties.Negative();
+    private final InMemoryProductDao backend = new InMemoryProductDao();
+
+    private ProductIdFilter builtFilter() {
+        ProductIdFilter filter = new ProductIdFilter(config);
+        filter.rebuildFrom(backend);
+        filter.rebuild();
+        return filter;
+    }
+
+    @Test
+    void testReportsEveryIdMaybeUntilBuilt() {
+        // Given
+        ProductIdFilter filter = new ProductIdFilter(config);
+
+        // Then
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain("unknown"));
+    }
+
+    @Test
+    void testGrowsWithoutFalseNegativesOrDegradedFalsePositiveRate() {
+        // Given
+        config.setExpectedIds(1_000);
+        ProductIdFilter filter = builtFilter();
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("product-" + i);
+        }
+
+        // Then
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filter.mightContain("product-" + i));
+        }
+        // Probed over many more absent ids than were added, so the measured rate is not down to sampling noise
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(filter.sliceCount() > 1);
+        assertTrue(falsePositives < probes * 2 * config.getFalsePositiveRate(), "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testReportsDeletedIdsAbsentUntilAddedAgain() {
+        // Given
+        ProductIdFilter filter = builtFilter();
+        filter.add("1");
+        filter.add("2");
+
+        // When
+        filter.remove("1");
+        filter.remove("1");
+        filter.remove("never-added");
+
+        // Then
+        assertFalse(filter.mightContain("1"));
+        assertTrue(filter.mightContain("2"));
+        filter.add("1");
+        assertTrue(filter.mightContain("1"));
+        filter.remove("1");
+        assertFalse(filter.mightContain("1"));
+    }
+
+    @Test
+    void testDoesNotAddKnownIdsAgain() {
+        // Given
+        config.setExpectedIds(10);
+        ProductIdFilter filter = builtFilter();
+
+        // When
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("1");
+        }
+
+        // Then
+        assertEquals(1, filter.sliceCount());
+    }
+
+    @Test
+    void testRebuildForgetsDeletesOfIdsTheScanFinds() {
+        // Given
+        ProductIdFilter filter = builtFilter();
+        filter.add("1");
+        filter.remove("1");
+        // Recreated on another replica
+        backend.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+
+        // When
+        filter.rebuild();
+
+        // Then
+        assertTrue(filter.mightContain("1"));
+    }
+
+    @Test
+    void testRebuildsFromBackendScan() {
+        // Given
+        backend.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        ProductIdFilter filter = new ProductIdFilter(config);
+        filter.rebuildFrom(backend);
+
+        // When
+        filter.rebuild();
+
+        // Then
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightContain("1"));
+        assertFalse(filter.mightContain("2"));
+    }
+
+    @Test
+    void testRebuildsFromEveryPageOfTheScan() {
+        // Given
+        for (int i = 0; i < 2_500; i++) {
+            backend.putProduct(new Product("product-" + i, "Test Product " + i, new BigDecimal("29.99")));
+        }
+        ProductIdFilter filter = new ProductIdFilter(config);
+        filter.rebuildFrom(backend);
+
+        // When
+        filter.rebuild();
+
+        // Then
+        for (int i = 0; i < 2_500; i++) {
+            assertTrue(filter.mightContain("product-" + i));
+        }
+        assertEquals(3, backend.scannedPages());
+    }
+
+    @Test
+    void testSkipsReadsOfAbsentIds() {
+        // Given
+        backend.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        NegativeLookupProductDao dao = new NegativeLookupProductDao(backend, builtFilter(), new SimpleMeterRegistry());
+
+        // When
+        Optional<Product> absent = dao.getProduct("2");
+        Optional<Product> present = dao.getProduct("1");
+        dao.putProduct(new Product("2", "Test Product 2", new BigDecimal("39.99")));
+        Optional<Product> created = dao.getProduct("2");
+
+        // Then
+        assertTrue(absent.isEmpty());
+        assertTrue(present.isPresent());
+        assertTrue(created.isPresent());
+        assertEquals(2, backend.gets());
+    }
+
+    /**
+     * Keeps products ordered by id; like a DynamoDB scan, getAllProduct only returns the first 20.
+     */
+}
@@ -0,0 +1,149 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductResponseCache.
+ * Tests the encoded response cache used to serve product reads.
+ */
+class ProductResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductResponseCache cache = new ProductResponseCache(objectMapper, config(64));
+
+    @Test
+    void testCachesEncodedProduct() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+
+        // When
+        cache.cacheProduct(product, cache.generation());
+
+        // Then
+        ProductResponseCache.EncodedResponse cached = cache.getProduct("1");
+        assertNotNull(cached);
+        assertEquals(product, objectMapper.readValue(cached.identity(), Product.class));
+        assertNull(cached.gzip());
+    }
+
+    @Test
+    void testInvalidatesChangedProduct() {
+        // Given
+        cache.cacheProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")), cache.generation());
+        cache.cacheProduct(new Product("2", "Test Product 2", new BigDecimal("39.99")), cache.generation());
+        cache.cacheListing(new Products(List.of()), cache.generation());
+
+        // When
+        cache.onProductChanged(new ProductChangedEvent("1"));
+
+        // Then
+        assertNull(cache.getProduct("1"));
+        assertNotNull(cache.getProduct("2"));
+        assertNull(cache.getListing());
+    }
+
+    @Test
+    void testDoesNotCacheReadOlderThanWrite() {
+        // Given
+        long generation = cache.generation();
+        cache.onProductChanged(new ProductChangedEvent("1"));
+
+        // When
+        cache.cacheProduct(new Product("1", "Test Product", new BigDecimal("29.99")), generation);
+        cache.cacheListing(new Products(List.of()), generation);
+
+        // Then
+        assertNull(cache.getProduct("1"));
+        assertNull(cache.getListing());
+    }
+
+    @Test
+    void testPrecompressesLargeBodies() throws Exception {
+        // Given
+        List<Product> products = Collections.nCopies(50, new Product("1", "Test Product", new BigDecimal("29.99")));
+
+        // When
+        ProductResponseCache.EncodedResponse cached = cache.cacheListing(new Products(products), cache.generation());
+
+        // Then
+        assertNotNull(cached.gzip());
+        assertTrue(cached.gzip().length < cached.identity().length);
+        assertArrayEquals(cached.identity(), gunzip(cached.gzip()));
+    }
+
+    @Test
+    void testBoundsEntries() {
+        // Given
+        ProductResponseCache small = new ProductResponseCache(objectMapper, config(2));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            small.cacheProduct(new Product(String.valueOf(i), "Test Product", BigDecimal.ONE), small.generation());
+        }
+
+        // Then
+        int cached = 0;
+        for (int i = 0; i < 5; i++) {
+            cached += small.getProduct(String.valueOf(i)) != null ? 1 : 0;
+        }
+        assertEquals(2, cached);
+        assertNotNull(small.getProduct("4"));
+    }
+
+    @Test
+    void testContentNegotiation() {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+
+        // Then
+        assertTrue(ProductResponseCache.acceptsJson(headers));
+        assertFalse(ProductResponseCache.acceptsGzip(headers));
+
+        // When
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-protobuf")));
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8");
+
+        // Then
+        assertFalse(ProductResponseCache.acceptsJson(headers));
+        assertTrue(ProductResponseCache.acceptsGzip(headers));
+
+        // When
+        headers.setAccept(List.of(MediaType.ALL));
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0");
+
+        // Then
+        assertTrue(ProductResponseCache.acceptsJson(headers));
+        assertFalse(ProductResponseCache.acceptsGzip(headers));
+    }
+
+    private static ProductConfigurationProperties config(int maxEntries) {
+        ProductConfigurationProperties properties = new ProductConfigurationProperties();
+        properties.getCache().getResponse().setMaxEntries(maxEntries);
+        return properties;
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+}
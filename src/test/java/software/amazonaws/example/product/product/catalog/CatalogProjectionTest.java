@@ -0,0 +1,168 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CatalogProjection.
+ * Tests the in-memory catalog used to serve list requests.
+ */
+class CatalogProjectionTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final CatalogProjection projection = new CatalogProjection(Duration.ofSeconds(10), clock);
+
+    @Test
+    void testNotFreshUntilCaughtUp() {
+        // Given
+        projection.apply(new Product("1", "Test Product", new BigDecimal("29.99")));
+
+        // Then
+        assertFalse(projection.isFresh());
+
+        // When
+        projection.markCaughtUp();
+
+        // Then
+        assertTrue(projection.isFresh());
+    }
+
+    @Test
+    void testStaleAfterMaxStaleness() {
+        // Given
+        projection.markCaughtUp();
+
+        // When
+        clock.advance(Duration.ofSeconds(11));
+
+        // Then
+        assertEquals(Duration.ofSeconds(11), projection.lag());
+        assertFalse(projection.isFresh());
+    }
+
+    @Test
+    void testSnapshotReflectsChanges() {
+        // Given
+        projection.apply(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        projection.apply(new Product("2", "Test Product 2", new BigDecimal("39.99")));
+        Products first = projection.snapshot();
+
+        // When
+        projection.remove("1");
+        Products second = projection.snapshot();
+
+        // Then
+        assertEquals(2, first.products().size());
+        assertEquals(1, second.products().size());
+        assertEquals("2", second.products().get(0).id());
+        assertSame(second, projection.snapshot());
+    }
+
+    @Test
+    void testReplaceAll() {
+        // Given
+        projection.apply(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        long version = projection.version();
+
+        // When
+        projection.replaceAll(Map.of("2", new Product("2", "Test Product 2", new BigDecimal("39.99"))));
+
+        // Then
+        assertTrue(projection.get("1").isEmpty());
+        assertTrue(projection.get("2").isPresent());
+        assertTrue(projection.version() > version);
+    }
+
+    @Test
+    void testReplaceAll_KeepsDeletesMadeDuringRebuild() throws InterruptedException {
+        // Given
+        Product product1 = new Product("1", "Test Product 1", new BigDecimal("29.99"));
+        Product product2 = new Product("2", "Test Product 2", new BigDecimal("39.99"));
+        projection.apply(product1);
+        projection.apply(product2);
+
+        // When
+        projection.beginRebuild();
+        // The rebuild has read both products from the change feed when another replica deletes one
+        Map<String, Product> rebuilt = Map.of("1", product1, "2", product2);
+        Thread delete = new Thread(() -> projection.remove("1"));
+        delete.start();
+        delete.join();
+        projection.replaceAll(rebuilt);
+        projection.endRebuild();
+
+        // Then
+        assertTrue(projection.get("1").isEmpty());
+        assertEquals(product2, projection.get("2").orElseThrow());
+        assertEquals(1, projection.size());
+    }
+
+    @Test
+    void testReplaceAll_KeepsProductsRecreatedDuringRebuild() {
+        // Given
+        Product product1 = new Product("1", "Test Product 1", new BigDecimal("29.99"));
+        projection.apply(product1);
+
+        // When
+        projection.beginRebuild();
+        projection.remove("1");
+        projection.apply(product1);
+        projection.replaceAll(Map.of("1", product1));
+        projection.endRebuild();
+
+        // Then
+        assertEquals(product1, projection.get("1").orElseThrow());
+    }
+
+    @Test
+    void testReplaceAll_ForgetsDeletesAfterRebuild() {
+        // Given
+        Product product1 = new Product("1", "Test Product 1", new BigDecimal("29.99"));
+        projection.beginRebuild();
+        projection.remove("1");
+        projection.endRebuild();
+
+        // When
+        projection.replaceAll(Map.of("1", product1));
+
+        // Then
+        assertEquals(product1, projection.get("1").orElseThrow());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
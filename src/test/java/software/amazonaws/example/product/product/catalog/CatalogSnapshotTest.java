@@ -0,0 +1,221 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.dao.InMemoryProductDao;
+import software.amazonaws.example.product.product.dao.ProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CatalogSnapshot and CatalogSnapshotStore.
+ * Tests the binary snapshot format, capturing the catalog from a paged scan, loading snapshots into the catalog
+ * projection, and exporting and loading snapshots through Blob Storage when AZURITE_CONNECTION_STRING points at
+ * an emulator, e.g. UseDevelopmentStorage=true.
+ */
+class CatalogSnapshotTest {
+
+    private static final List<Product> PRODUCTS = List.of(
+        new Product("1", "Test Product 1", new BigDecimal("29.99"), "books"),
+        new Product("2", "Produit testé ✓", new BigDecimal("-1234567890123456789.5")),
+        new Product("3", null, null));
+
+    private final AzureConfigurationProperties azureConfig = new AzureConfigurationProperties();
+    private BlobContainerClient container;
+
+    CatalogSnapshotTest() {
+        azureConfig.getStorage().getSnapshot().setExportInterval(Duration.ZERO);
+        azureConfig.getStorage().getSnapshot().setBlobName("test-" + System.nanoTime() + ".snapshot");
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        // Given
+        CatalogSnapshot snapshot = new CatalogSnapshot(
+            Instant.now().truncatedTo(ChronoUnit.MILLIS), "{\"Continuation\":[\"\\\"42\\\"\"]}", PRODUCTS);
+
+        // When
+        CatalogSnapshot read = CatalogSnapshot.readFrom(ByteBuffer.wrap(encode(snapshot)));
+
+        // Then
+        assertEquals(snapshot, read);
+        assertEquals(2, read.products().get(0).price().scale());
+    }
+
+    @Test
+    void testRoundTripWithoutContinuationToken() throws IOException {
+        // Given
+        CatalogSnapshot snapshot = new CatalogSnapshot(Instant.ofEpochMilli(0), null, List.of());
+
+        // When
+        CatalogSnapshot read = CatalogSnapshot.readFrom(ByteBuffer.wrap(encode(snapshot)));
+
+        // Then
+        assertNull(read.continuationToken());
+        assertTrue(read.products().isEmpty());
+    }
+
+    @Test
+    void testRejectsCorruptOrTruncatedSnapshot() throws IOException {
+        // Given
+        byte[] bytes = encode(new CatalogSnapshot(Instant.now(), null, PRODUCTS));
+        byte[] corrupt = bytes.clone();
+        corrupt[30] ^= 1;
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 6);
+        byte[] newerVersion = bytes.clone();
+        newerVersion[5] = CatalogSnapshot.FORMAT_VERSION + 1;
+
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.readFrom(ByteBuffer.wrap(corrupt)));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.readFrom(ByteBuffer.wrap(truncated)));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.readFrom(ByteBuffer.wrap(newerVersion)));
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.readFrom(ByteBuffer.wrap(new byte[2])));
+    }
+
+    @Test
+    void testReadsSnapshotWithoutCategories() throws IOException {
+        // Given a format version 1 snapshot, written before products had a category
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(bytes, crc));
+        out.writeInt(0x50434154);
+        out.writeShort(1);
+        out.writeLong(42);
+        out.writeInt(-1);
+        out.writeInt(1);
+        out.writeShort(1);
+        out.write('1');
+        out.writeShort(-1);
+        out.writeInt(2);
+        out.writeByte(2);
+        out.write(new byte[] {0x0b, (byte) 0xb7});
+        out.flush();
+        new DataOutputStream(bytes).writeInt((int) crc.getValue());
+
+        // When
+        CatalogSnapshot read = CatalogSnapshot.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+
+        // Then
+        assertEquals(List.of(new Product("1", null, new BigDecimal("29.99"))), read.products());
+    }
+
+    @Test
+    void testCapturesEveryPageOfTheScan() {
+        // Given
+        List<Product> catalog = catalog(2_500);
+        CatalogSnapshotStore store = store(new InMemoryProductDao(catalog), "UseDevelopmentStorage=true", null);
+
+        // When
+        CatalogSnapshot snapshot = store.capture(Instant.now());
+
+        // Then
+        assertEquals(catalog, snapshot.products());
+        assertNull(snapshot.continuationToken());
+    }
+
+    @Test
+    void testLoadsSnapshotIntoProjection() {
+        // Given
+        CatalogProjection projection = new CatalogProjection(Duration.ofSeconds(10), Clock.systemUTC());
+        CatalogSnapshotStore store = store(new InMemoryProductDao(PRODUCTS), "UseDevelopmentStorage=true", projection);
+
+        // When
+        store.apply(new CatalogSnapshot(Instant.now().minus(Duration.ofHours(5)), null, PRODUCTS));
+
+        // Then
+        assertEquals(PRODUCTS.size(), projection.size());
+        assertEquals(Optional.of(PRODUCTS.get(0)), projection.get("1"));
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "AZURITE_CONNECTION_STRING", matches = ".+")
+    void testExportsAndLoadsThroughBlobEmulator() {
+        // Given
+        CatalogSnapshotStore store = store(new InMemoryProductDao(PRODUCTS), System.getenv("AZURITE_CONNECTION_STRING"), null);
+
+        // When
+        store.export();
+        Optional<CatalogSnapshot> loaded = store.load();
+
+        // Then
+        assertTrue(loaded.isPresent());
+        assertEquals(PRODUCTS, loaded.get().products());
+        deleteSnapshot();
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "AZURITE_CONNECTION_STRING", matches = ".+")
+    void testExportsScannedCatalogAndLoadsItColdThroughBlobEmulator() {
+        // Given
+        List<Product> catalog = catalog(2_500);
+        CatalogProjection projection = new CatalogProjection(Duration.ofSeconds(10), Clock.systemUTC());
+        CatalogSnapshotStore store = store(new InMemoryProductDao(catalog), System.getenv("AZURITE_CONNECTION_STRING"),
+            projection);
+
+        // When
+        store.export();
+        store.start();
+
+        // Then
+        Optional<CatalogSnapshot> loaded = store.load();
+        assertTrue(loaded.isPresent());
+        assertEquals(catalog, loaded.get().products());
+        assertEquals(catalog.size(), projection.size());
+        deleteSnapshot();
+    }
+
+    private CatalogSnapshotStore store(ProductDao productDao, String connectionString,
+                                       CatalogProjection projection) {
+        container = new BlobServiceClientBuilder()
+            .connectionString(connectionString)
+            .buildClient()
+            .getBlobContainerClient(azureConfig.getStorage().getSnapshot().getContainer());
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (projection != null) {
+            beans.addBean("catalogProjection", projection);
+        }
+        return new CatalogSnapshotStore(container, azureConfig, productDao,
+            beans.getBeanProvider(CatalogProjection.class),
+            beans.getBeanProvider(CosmosChangeFeedProjector.class));
+    }
+
+    private void deleteSnapshot() {
+        container.getBlobClient(azureConfig.getStorage().getSnapshot().getBlobName()).delete();
+    }
+
+    private static List<Product> catalog(int size) {
+        return IntStream.range(0, size)
+            .mapToObj(i -> new Product(String.format("%05d", i), "Test Product " + i, new BigDecimal("29.99")))
+            .toList();
+    }
+
+    private static byte[] encode(CatalogSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductIndex.
+ * Tests name-prefix and price-range lookups on the in-process indexes.
+ */
+class ProductIndexTest {
+
+    private final ProductIndex index = new ProductIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.put(new Product("1", "Apple Juice", new BigDecimal("3.50")));
+        index.put(new Product("2", "apple pie", new BigDecimal("12.00")));
+        index.put(new Product("3", "Banana", new BigDecimal("0.99")));
+        index.put(new Product("4", "Apricot Jam", new BigDecimal("5.25")));
+    }
+
+    @Test
+    void testNamePrefixIsCaseInsensitive() {
+        // When
+        List<Product> results = index.query(new ProductQuery("APPLE", null, null, null, null));
+
+        // Then
+        assertEquals(List.of("1", "2"), ids(results));
+    }
+
+    @Test
+    void testPriceRangeSortedByPrice() {
+        // When
+        List<Product> results = index.query(
+            new ProductQuery(null, new BigDecimal("1.00"), new BigDecimal("6"), ProductQuery.Sort.PRICE, null));
+
+        // Then
+        assertEquals(List.of("1", "4"), ids(results));
+    }
+
+    @Test
+    void testTopNByPrice() {
+        // When
+        List<Product> results = index.query(new ProductQuery(null, null, null, ProductQuery.Sort.PRICE, 2));
+
+        // Then
+        assertEquals(List.of("3", "1"), ids(results));
+    }
+
+    @Test
+    void testPrefixSortedByPriceWithLimit() {
+        // When
+        List<Product> results = index.query(new ProductQuery("ap", null, null, ProductQuery.Sort.PRICE, 2));
+
+        // Then
+        assertEquals(List.of("1", "4"), ids(results));
+    }
+
+    @Test
+    void testUpdateReindexes() {
+        // Given
+        index.put(new Product("3", "Blueberry", new BigDecimal("20.00")));
+
+        // When
+        List<Product> byName = index.query(new ProductQuery("ban", null, null, null, null));
+        List<Product> byPrice = index.query(new ProductQuery(null, new BigDecimal("15"), null, null, null));
+
+        // Then
+        assertTrue(byName.isEmpty());
+        assertEquals(List.of("3"), ids(byPrice));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testRemove() {
+        // When
+        boolean removed = index.remove("2");
+
+        // Then
+        assertTrue(removed);
+        assertFalse(index.remove("2"));
+        assertEquals(List.of("1"), ids(index.query(new ProductQuery("apple", null, null, null, null))));
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::id).toList();
+    }
+
+    @Test
+    void testListsProductsWithoutPriceOrName() {
+        // Given
+        index.put(new Product("5", null, new BigDecimal("2.00")));
+        index.put(new Product("6", "Cherry", null));
+
+        // When
+        List<Product> all = index.query(new ProductQuery(null, null, null, null, 10));
+        List<Product> byName = index.query(new ProductQuery(null, null, null, ProductQuery.Sort.NAME, null));
+        List<Product> byPrice = index.query(new ProductQuery(null, null, null, ProductQuery.Sort.PRICE, null));
+        List<Product> priced = index.query(new ProductQuery(null, new BigDecimal("1.00"), null, null, null));
+
+        // Then
+        assertEquals(6, all.size());
+        assertEquals(List.of("1", "2", "4", "3", "6", "5"), ids(byName));
+        assertEquals(List.of("3", "5", "1", "4", "2", "6"), ids(byPrice));
+        assertFalse(ids(priced).contains("6"));
+    }
+
+    @Test
+    void testCategory() {
+        // Given
+        index.put(new Product("5", "Apple Crumble", new BigDecimal("7.00"), "desserts"));
+        index.put(new Product("6", "Banana Split", new BigDecimal("6.00"), "desserts"));
+        index.put(new Product("7", "Orange Juice", new BigDecimal("3.00"), "drinks"));
+
+        // When
+        List<Product> desserts = index.query(
+            new ProductQuery(null, null, null, ProductQuery.Sort.PRICE, null, "desserts"));
+        List<Product> appleDesserts = index.query(new ProductQuery("apple", null, null, null, null, "desserts"));
+        index.put(new Product("6", "Banana Split", new BigDecimal("6.00"), "drinks"));
+        index.remove("7");
+
+        // Then
+        assertEquals(List.of("6", "5"), ids(desserts));
+        assertEquals(List.of("5"), ids(appleDesserts));
+        assertEquals(List.of("5"), ids(index.query(new ProductQuery(null, null, null, null, null, "desserts"))));
+        assertEquals(List.of("6"), ids(index.query(new ProductQuery(null, null, null, null, null, "drinks"))));
+        assertTrue(index.query(new ProductQuery(null, null, null, null, null, "toys")).isEmpty());
+    }
+}
@@ -3,20 +3,33 @@
 
 package software.amazonaws.example.product.product.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import software.amazonaws.example.product.product.dao.DeadlineExceededException;
+import software.amazonaws.example.product.product.dao.PreconditionFailedException;
+import software.amazonaws.example.product.product.dao.SessionTokenContext;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+import software.amazonaws.example.product.product.entity.ProductQuery;
 import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
 import software.amazonaws.example.product.product.service.ProductService;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -52,6 +65,48 @@ public class ProductControllerTest {
         verify(productService).getAllProducts();
     }
 
+    @Test
+    public void testSearchProducts() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+        ProductQuery query = new ProductQuery("test", null, new BigDecimal("50"), ProductQuery.Sort.PRICE, 10);
+        when(productService.searchProducts(query)).thenReturn(new Products(List.of(product)));
+
+        // When & Then
+        mockMvc.perform(get("/products")
+                        .param("namePrefix", "test")
+                        .param("maxPrice", "50")
+                        .param("sort", "price")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value("1"));
+
+        verify(productService).searchProducts(query);
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    public void testSearchProductsByCategory() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"), "books");
+        ProductQuery query = new ProductQuery(null, null, null, ProductQuery.Sort.NONE, null, "books");
+        when(productService.searchProducts(query)).thenReturn(new Products(List.of(product)));
+
+        // When & Then
+        mockMvc.perform(get("/products").param("category", "books"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].category").value("books"));
+    }
+
+    @Test
+    public void testSearchProducts_InvalidSort() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/products").param("sort", "popularity"))
+                .andExpect(status().isBadRequest());
+
+        verify(productService, never()).searchProducts(any(ProductQuery.class));
+    }
+
     @Test
     public void testGetProductById_Found() throws Exception {
         // Given
@@ -69,6 +124,92 @@ public class ProductControllerTest {
         verify(productService).getProductById("1");
     }
 
+    @Test
+    public void testGetProductById_WithFields() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+        when(productService.getProductById("1")).thenReturn(Optional.of(product));
+
+        // When & Then
+        mockMvc.perform(get("/products/1").param("fields", "id,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("1"))
+                .andExpect(jsonPath("$.price").value(29.99))
+                .andExpect(jsonPath("$.name").doesNotExist());
+    }
+
+    @Test
+    public void testGetAllProducts_WithFields() throws Exception {
+        // Given
+        Products products = new Products(List.of(new Product("1", null, new BigDecimal("29.99"))));
+        when(productService.getAllProducts(new ProductFields(Set.of("id", "price")))).thenReturn(products);
+
+        // When & Then
+        mockMvc.perform(get("/products").param("fields", "price, id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value("1"))
+                .andExpect(jsonPath("$.products[0].name").doesNotExist());
+
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    public void testGetAllProducts_UnknownField() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/products").param("fields", "id,color"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    public void testGetProductById_Smile() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+        when(productService.getProductById("1")).thenReturn(Optional.of(product));
+
+        // When
+        byte[] body = mockMvc.perform(get("/products/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        Product decoded = new ObjectMapper(new SmileFactory()).readValue(body, Product.class);
+        assertEquals(product, decoded);
+    }
+
+    @Test
+    public void testGetAllProducts_Protobuf() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+        when(productService.getAllProducts()).thenReturn(new Products(List.of(product)));
+
+        // When
+        byte[] body = mockMvc.perform(get("/products").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        Products decoded = ProductProtoMapper.fromMessage(ProductListMessage.parseFrom(body));
+        assertEquals(List.of(product), decoded.products());
+    }
+
+    @Test
+    public void testCreateProduct_Protobuf() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+
+        // When & Then
+        mockMvc.perform(put("/products/1")
+                        .contentType("application/x-protobuf")
+                        .content(ProductProtoMapper.toMessage(product).toByteArray()))
+                .andExpect(status().isCreated());
+
+        verify(productService).createOrUpdateProduct(product);
+    }
+
     @Test
     public void testGetProductById_NotFound() throws Exception {
         // Given
@@ -111,6 +252,70 @@ public class ProductControllerTest {
         verify(productService, never()).createOrUpdateProduct(any(Product.class));
     }
 
+    @Test
+    public void testPatchProduct() throws Exception {
+        // Given
+        ProductPatch patch = new ProductPatch(null, new BigDecimal("24.99"), new BigDecimal("29.99"));
+        when(productService.patchProduct("1", patch))
+            .thenReturn(Optional.of(new Product("1", "Test Product", new BigDecimal("24.99"))));
+
+        // When & Then
+        mockMvc.perform(patch("/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":24.99,\"expectedPrice\":29.99}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Product with id = 1 updated"));
+
+        verify(productService).patchProduct("1", patch);
+    }
+
+    @Test
+    public void testPatchProduct_PreconditionFailed() throws Exception {
+        // Given
+        when(productService.patchProduct(eq("1"), any(ProductPatch.class)))
+            .thenThrow(new PreconditionFailedException("1"));
+
+        // When & Then
+        mockMvc.perform(patch("/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":24.99,\"expectedPrice\":19.99}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testGetProductById_DeadlineExceeded() throws Exception {
+        // Given
+        when(productService.getProductById("1"))
+            .thenThrow(new DeadlineExceededException("Request deadline exceeded during the database call"));
+
+        // When & Then
+        mockMvc.perform(get("/products/1"))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    @Test
+    public void testPatchProduct_NotFound() throws Exception {
+        // Given
+        when(productService.patchProduct(eq("999"), any(ProductPatch.class))).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(patch("/products/999")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testPatchProduct_NoFields() throws Exception {
+        // When & Then
+        mockMvc.perform(patch("/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expectedPrice\":29.99}"))
+                .andExpect(status().isBadRequest());
+
+        verify(productService, never()).patchProduct(anyString(), any(ProductPatch.class));
+    }
+
     @Test
     public void testDeleteProduct_Found() throws Exception {
         // Given
@@ -135,4 +340,40 @@ public class ProductControllerTest {
 
         verify(productService).deleteProduct("999");
     }
+
+    @Test
+    public void testCreateProduct_ReturnsSessionToken() throws Exception {
+        // Given
+        String productJson = "{\"id\":\"1\",\"name\":\"Test Product\",\"price\":29.99}";
+        doAnswer(invocation -> {
+            SessionTokenContext.setResponseToken("0:-1#42");
+            return null;
+        }).when(productService).createOrUpdateProduct(any(Product.class));
+
+        // When & Then
+        mockMvc.perform(put("/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(productJson))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("X-Session-Token", "0:-1#42"));
+    }
+
+    @Test
+    public void testGetProductById_PropagatesSessionToken() throws Exception {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+        AtomicReference<String> seenToken = new AtomicReference<>();
+        when(productService.getProductById("1")).thenAnswer(invocation -> {
+            seenToken.set(SessionTokenContext.getRequestToken());
+            return Optional.of(product);
+        });
+
+        // When
+        mockMvc.perform(get("/products/1").header("X-Session-Token", "0:-1#42"))
+                .andExpect(status().isOk());
+
+        // Then
+        assertEquals("0:-1#42", seenToken.get());
+        assertNull(SessionTokenContext.getRequestToken());
+    }
 }
\ No newline at end of file
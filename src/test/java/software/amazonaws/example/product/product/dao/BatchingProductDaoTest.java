@@ -0,0 +1,207 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BatchingProductDao.
+ * Tests that concurrent reads are coalesced into batch reads under load and go straight to the backend otherwise.
+ */
+class BatchingProductDaoTest {
+
+    private static final int BATCH_SIZE = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Duration> batchDeadlines = Collections.synchronizedList(new ArrayList<>());
+    private final InMemoryProductDao backend = new InMemoryProductDao() {
+        @Override
+        public Map<String, Product> getProducts(Collection<String> ids) {
+            batchDeadlines.add(DeadlineContext.remaining());
+            return super.getProducts(ids);
+        }
+    };
+    private final AtomicLong clock = new AtomicLong();
+    private final BatchingProductDao dao = new BatchingProductDao(
+        backend, Duration.ofSeconds(5), BATCH_SIZE, meterRegistry, clock::get);
+
+    @Test
+    void testReadsDirectlyAtLowTraffic() {
+        // Given
+        backend.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+
+        // When
+        Optional<Product> product = dao.getProduct("1");
+        Optional<Product> missing = dao.getProduct("2");
+
+        // Then
+        assertEquals("Test Product 1", product.get().name());
+        assertTrue(missing.isEmpty());
+        assertEquals(Duration.ZERO, dao.window());
+        assertEquals(2, backend.gets());
+        assertTrue(backend.batches().isEmpty());
+    }
+
+    @Test
+    void testBatchesConcurrentReads() throws Exception {
+        // Given
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            backend.putProduct(new Product(String.valueOf(i), "Test Product " + i, new BigDecimal("29.99")));
+        }
+        raiseArrivalRate();
+
+        // When
+        List<Optional<Product>> products = concurrently(i -> dao.getProduct(String.valueOf(i)));
+
+        // Then
+        assertEquals(1, backend.batches().size());
+        assertEquals(BATCH_SIZE, backend.batches().get(0).size());
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            assertEquals("Test Product " + i, products.get(i).get().name());
+        }
+        assertEquals(BATCH_SIZE, meterRegistry.get("product.dao.batch.size").summary().max());
+    }
+
+    @Test
+    void testFailedBatchFailsEveryRead() throws Exception {
+        // Given
+        raiseArrivalRate();
+        backend.failWith("Backend unavailable");
+
+        // When
+        List<Optional<Product>> products = concurrently(i -> {
+            try {
+                return dao.getProduct(String.valueOf(i));
+            } catch (RuntimeException e) {
+                assertEquals("Backend unavailable", e.getMessage());
+                return null;
+            }
+        });
+
+        // Then
+        assertEquals(BATCH_SIZE, products.stream().filter(product -> product == null).count());
+    }
+
+    @Test
+    void testRunsBatchUnderLatestDeadlineOfItsReads() throws Exception {
+        // Given
+        raiseArrivalRate();
+
+        // When
+        concurrently(i -> {
+            DeadlineContext.set(Duration.ofSeconds(10L * (i + 1)));
+            try {
+                return dao.getProduct(String.valueOf(i));
+            } finally {
+                DeadlineContext.clear();
+            }
+        });
+
+        // Then
+        assertEquals(1, batchDeadlines.size());
+        assertTrue(batchDeadlines.get(0).compareTo(Duration.ofSeconds(30)) > 0);
+    }
+
+    @Test
+    void testRunsBatchWithoutDeadlineWhenOneReadHasNone() throws Exception {
+        // Given
+        raiseArrivalRate();
+
+        // When
+        List<Optional<Product>> products = concurrently(i -> {
+            if (i > 0) {
+                DeadlineContext.set(Duration.ofMillis(1));
+            }
+            try {
+                return dao.getProduct(String.valueOf(i));
+            } catch (DeadlineExceededException e) {
+                return null;
+            } finally {
+                DeadlineContext.clear();
+            }
+        });
+
+        // Then
+        assertEquals(1, backend.batches().size());
+        assertNull(batchDeadlines.get(0));
+        assertNotNull(products.get(0));
+    }
+
+    @Test
+    void testBypassesBatchingForSessionReads() {
+        // Given
+        raiseArrivalRate();
+        SessionTokenContext.setRequestToken("0:1#42");
+
+        // When
+        try {
+            dao.getProduct("1");
+        } finally {
+            SessionTokenContext.clear();
+        }
+
+        // Then
+        assertEquals(1, backend.gets());
+        assertTrue(backend.batches().isEmpty());
+    }
+
+    /**
+     * Reads twice in one rate interval, which opens a window of a few hundred milliseconds,
+     * long enough for the concurrent reads of a test to fill a batch. The second read
+     * waits for its window and is issued alone.
+     */
+    private void raiseArrivalRate() {
+        dao.getProduct("warm-up");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        dao.getProduct("warm-up");
+        assertTrue(dao.window().compareTo(Duration.ZERO) > 0);
+        backend.resetCounts();
+    }
+
+    private List<Optional<Product>> concurrently(Read read) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BATCH_SIZE);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<Product>>> futures = new ArrayList<>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return read.apply(index);
+                }));
+            }
+            start.countDown();
+            List<Optional<Product>> results = new ArrayList<>();
+            for (Future<Optional<Product>> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Read {
+        Optional<Product> apply(int index);
+    }
+}
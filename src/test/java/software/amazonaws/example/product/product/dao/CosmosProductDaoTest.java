@@ -3,20 +3,80 @@
 
 package software.amazonaws.example.product.product.dao;
 
+import com.azure.cosmos.CosmosClient;
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.CosmosDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosPatchItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchOperations;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlQuerySpec;
+import com.azure.cosmos.util.CosmosPagedIterable;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockMakers;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
 import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductPatch;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for CosmosProductDao.
- * Tests the Azure Cosmos DB data access layer.
+ * Tests the Azure Cosmos DB data access layer, the order in which copies of a moved product are kept,
+ * and, against a stubbed container, when writes under category partitioning look copies up.
  * Note: For comprehensive testing, integration tests with Cosmos DB emulator are recommended.
  */
 class CosmosProductDaoTest {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private CosmosContainer container;
+    private CosmosItemResponse<Object> response;
+    private CosmosProductDao dao;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // The Cosmos DB client classes are final, so they are mocked inline
+        CosmosClient client = inlineMock(CosmosClient.class);
+        CosmosDatabase database = inlineMock(CosmosDatabase.class);
+        container = inlineMock(CosmosContainer.class);
+        response = inlineMock(CosmosItemResponse.class);
+        AzureConfigurationProperties azureConfig = new AzureConfigurationProperties();
+        azureConfig.getCosmos().setDatabaseName("products");
+        azureConfig.getCosmos().setContainerName("products");
+        azureConfig.getCosmos().setPartitionKey("category");
+        when(client.getDatabase("products")).thenReturn(database);
+        when(database.getContainer("products")).thenReturn(container);
+        doReturn(response).when(container).upsertItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        doReturn(response).when(container).createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        doReturn(response).when(container)
+            .replaceItem(any(), anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        doReturn(response).when(container).deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        stored();
+        dao = new CosmosProductDao(client, azureConfig, ObservationRegistry.NOOP);
+    }
+
     @Test
     void testCosmosProductDocumentMapping() {
         // Given
@@ -45,4 +105,185 @@ class CosmosProductDaoTest {
         assertEquals(productId, document.getPartitionKey());
         assertEquals(productId, document.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testKeepsNewestCopyOfMovedProduct() {
+        // Given
+        CosmosProductDao.StoredCopy old = new CosmosProductDao.StoredCopy("books", "\"1\"", 1_700_000_000_100L, 1_700_000_000L);
+        CosmosProductDao.StoredCopy moved = new CosmosProductDao.StoredCopy("music", "\"2\"", 1_700_000_000_900L, 1_700_000_000L);
+        CosmosProductDao.StoredCopy legacy = new CosmosProductDao.StoredCopy("1", "\"3\"", -1, 1_699_999_999L);
+
+        // When
+        CosmosProductDao.StoredCopy newest = Collections.max(List.of(moved, legacy, old), CosmosProductDao.StoredCopy.AGE);
+
+        // Then
+        assertSame(moved, newest);
+    }
+
+    @Test
+    void testBreaksTiesBetweenCopiesTheSameWayEverywhere() {
+        // Given
+        CosmosProductDao.StoredCopy books = new CosmosProductDao.StoredCopy("books", "\"1\"", 1_700_000_000_100L, 1_700_000_000L);
+        CosmosProductDao.StoredCopy music = new CosmosProductDao.StoredCopy("music", "\"2\"", 1_700_000_000_100L, 1_700_000_000L);
+
+        // When
+        CosmosProductDao.StoredCopy first = Collections.max(List.of(books, music), CosmosProductDao.StoredCopy.AGE);
+        CosmosProductDao.StoredCopy second = Collections.max(List.of(music, books), CosmosProductDao.StoredCopy.AGE);
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    void testSkipsLookupForWritesWithinTheKnownPartition() {
+        // Given
+        dao.putProduct(new Product("1", "Book", new BigDecimal("10.00"), "books"));
+
+        // When
+        dao.putProduct(new Product("1", "Book", new BigDecimal("12.00"), "books"));
+
+        // Then
+        verify(container, times(2)).upsertItem(any(), eq(new PartitionKey("books")), any(CosmosItemRequestOptions.class));
+        verify(container, times(1)).queryItems(any(SqlQuerySpec.class), any(CosmosQueryRequestOptions.class), eq(JsonNode.class));
+    }
+
+    @Test
+    void testDeletesOlderCopyWhenCategoryChanges() {
+        // Given
+        dao.putProduct(new Product("1", "Record", new BigDecimal("10.00"), "books"));
+        stored(copy("books", "\"1\"", 1_700_000_000_100L), copy("music", "\"2\"", 1_700_000_000_900L));
+
+        // When
+        dao.putProduct(new Product("1", "Record", new BigDecimal("10.00"), "music"));
+
+        // Then
+        ArgumentCaptor<CosmosItemRequestOptions> options = ArgumentCaptor.forClass(CosmosItemRequestOptions.class);
+        verify(container).deleteItem(eq("1"), eq(new PartitionKey("books")), options.capture());
+        assertEquals("\"1\"", options.getValue().getIfMatchETag());
+        verify(container, never()).deleteItem(eq("1"), eq(new PartitionKey("music")), any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testPatchesInKnownPartitionWithoutLookup() {
+        // Given
+        dao.putProduct(new Product("1", "Book", new BigDecimal("10.00"), "books"));
+        patched(new Product("1", "Novel", new BigDecimal("10.00"), "books"));
+
+        // When
+        Optional<Product> product = dao.patchProduct("1", new ProductPatch("Novel", null, null));
+
+        // Then
+        assertEquals("Novel", product.orElseThrow().name());
+        verify(container).patchItem(eq("1"), eq(new PartitionKey("books")), any(CosmosPatchOperations.class),
+            any(CosmosPatchItemRequestOptions.class), eq(CosmosProductItem.class));
+        verify(container, times(1)).queryItems(any(SqlQuerySpec.class), any(CosmosQueryRequestOptions.class), eq(JsonNode.class));
+    }
+
+    @Test
+    void testPatchLooksProductUpWhenMovedFromKnownPartition() {
+        // Given
+        dao.putProduct(new Product("1", "Record", new BigDecimal("10.00"), "books"));
+        CosmosException notFound = inlineMock(CosmosException.class);
+        when(notFound.getStatusCode()).thenReturn(404);
+        patched(new Product("1", "Single", new BigDecimal("10.00"), "music"));
+        doThrow(notFound).when(container).patchItem(eq("1"), eq(new PartitionKey("books")), any(CosmosPatchOperations.class),
+            any(CosmosPatchItemRequestOptions.class), eq(CosmosProductItem.class));
+        stored(copy("music", "\"2\"", 1_700_000_000_900L));
+
+        // When
+        Optional<Product> product = dao.patchProduct("1", new ProductPatch("Single", null, null));
+
+        // Then
+        assertEquals("Single", product.orElseThrow().name());
+        verify(container).patchItem(eq("1"), eq(new PartitionKey("music")), any(CosmosPatchOperations.class),
+            any(CosmosPatchItemRequestOptions.class), eq(CosmosProductItem.class));
+    }
+
+    @Test
+    void testCopyKeepsNewerCopyInTarget() {
+        // Given
+        stored(copy("music", "\"2\"", 1_700_000_000_900L));
+
+        // When
+        boolean copied = dao.copyProduct(new Product("1", "Record", new BigDecimal("10.00"), "books"), 1_700_000_000_100L);
+
+        // Then
+        assertFalse(copied);
+        verify(container, never()).createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        verify(container, never()).upsertItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+        verify(container, never()).deleteItem(anyString(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testCopyCreatesProductMissingFromTarget() {
+        // When
+        boolean copied = dao.copyProduct(new Product("1", "Book", new BigDecimal("10.00"), "books"), 1_700_000_000_100L);
+
+        // Then
+        assertTrue(copied);
+        verify(container).createItem(any(), eq(new PartitionKey("books")), any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testCopyReplacesOlderCopyOnlyIfUnchanged() {
+        // Given
+        stored(copy("books", "\"1\"", 1_700_000_000_100L));
+
+        // When
+        boolean copied = dao.copyProduct(new Product("1", "Book", new BigDecimal("12.00"), "books"), 1_700_000_000_900L);
+
+        // Then
+        assertTrue(copied);
+        ArgumentCaptor<CosmosItemRequestOptions> options = ArgumentCaptor.forClass(CosmosItemRequestOptions.class);
+        verify(container).replaceItem(any(), eq("1"), eq(new PartitionKey("books")), options.capture());
+        assertEquals("\"1\"", options.getValue().getIfMatchETag());
+    }
+
+    @Test
+    void testCopyYieldsToWriteMadeWhileCopying() {
+        // Given
+        CosmosException conflict = inlineMock(CosmosException.class);
+        when(conflict.getStatusCode()).thenReturn(409);
+        doThrow(conflict).when(container).createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+
+        // When
+        boolean copied = dao.copyProduct(new Product("1", "Book", new BigDecimal("10.00"), "books"), 1_700_000_000_100L);
+
+        // Then
+        assertFalse(copied);
+    }
+
+    /**
+     * Makes lookups of a product across partitions return the given documents.
+     */
+    @SuppressWarnings("unchecked")
+    private void stored(JsonNode... copies) {
+        FeedResponse<JsonNode> page = inlineMock(FeedResponse.class);
+        when(page.getResults()).thenReturn(List.of(copies));
+        CosmosPagedIterable<JsonNode> results = inlineMock(CosmosPagedIterable.class);
+        when(results.iterableByPage()).thenReturn(new ArrayList<>(List.of(page)));
+        doReturn(results).when(container)
+            .queryItems(any(SqlQuerySpec.class), any(CosmosQueryRequestOptions.class), eq(JsonNode.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void patched(Product product) {
+        CosmosItemResponse<CosmosProductItem> patched = inlineMock(CosmosItemResponse.class);
+        when(patched.getItem()).thenReturn(new CosmosProductItem(product, product.category()));
+        doReturn(patched).when(container).patchItem(anyString(), any(PartitionKey.class), any(CosmosPatchOperations.class),
+            any(CosmosPatchItemRequestOptions.class), eq(CosmosProductItem.class));
+    }
+
+    private static JsonNode copy(String partitionKey, String etag, long writtenAt) {
+        ObjectNode copy = MAPPER.createObjectNode();
+        copy.put("_partitionKey", partitionKey);
+        copy.put("_etag", etag);
+        copy.put("_writtenAt", writtenAt);
+        copy.put("_ts", writtenAt / 1000);
+        return copy;
+    }
+
+    private static <T> T inlineMock(Class<T> type) {
+        return mock(type, withSettings().mockMaker(MockMakers.INLINE));
+    }
+}
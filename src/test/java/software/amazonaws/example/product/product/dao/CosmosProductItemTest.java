@@ -0,0 +1,97 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CosmosProductItem.
+ * Tests that the streaming codecs read and write the same documents as CosmosProductDocument.
+ */
+class CosmosProductItemTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testWritesSameDocumentAsBean() throws IOException {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.90"));
+
+        // When
+        JsonNode item = objectMapper.readTree(CosmosProductItem.encode(product));
+        JsonNode serialized = objectMapper.readTree(objectMapper.writeValueAsBytes(new CosmosProductItem(product, "1")));
+        JsonNode document = objectMapper.readTree(
+            objectMapper.writeValueAsBytes(CosmosProductDocument.fromProduct(product)));
+
+        // Then
+        assertEquals(document, item);
+        assertEquals(document, serialized);
+    }
+
+    @Test
+    void testReadsDocumentWithSystemProperties() throws IOException {
+        // Given
+        String json = "{\"id\":\"1\",\"name\":\"Test Product\",\"price\":12345678901234567.89,"
+            + "\"_partitionKey\":\"1\",\"_rid\":\"abc==\",\"_ts\":1700000000,\"_attachments\":{\"a\":[1,2]}}";
+
+        // When
+        CosmosProductItem item = objectMapper.readValue(json, CosmosProductItem.class);
+
+        // Then
+        assertEquals(new Product("1", "Test Product", new BigDecimal("12345678901234567.89")), item.product());
+        assertEquals("1", item.partitionKey());
+        assertEquals(1700000000000L, item.writtenAt());
+    }
+
+    @Test
+    void testRoundTripsProjectionsAndMissingFields() throws IOException {
+        // Given
+        Product product = new Product("1", null, null);
+
+        // When
+        CosmosProductItem item = objectMapper.readValue(CosmosProductItem.encode(product), CosmosProductItem.class);
+        CosmosProductItem projected = objectMapper.readValue("{\"price\":5}", CosmosProductItem.class);
+
+        // Then
+        assertEquals(product, item.product());
+        assertEquals(new Product(null, null, new BigDecimal("5")), projected.product());
+    }
+
+    @Test
+    void testWritesCategoryPartitionKey() throws IOException {
+        // Given
+        Product categorized = new Product("1", "Test Product", new BigDecimal("29.90"), "books");
+        Product uncategorized = new Product("2", "Other Product", new BigDecimal("5"));
+
+        // When
+        JsonNode item = objectMapper.readTree(
+            CosmosProductItem.encode(categorized, CosmosPartitioning.CATEGORY.partitionKeyOf(categorized)));
+        JsonNode uncategorizedItem = objectMapper.readTree(
+            CosmosProductItem.encode(uncategorized, CosmosPartitioning.CATEGORY.partitionKeyOf(uncategorized)));
+
+        // Then
+        assertEquals("books", item.get("_partitionKey").asText());
+        assertEquals("2", uncategorizedItem.get("_partitionKey").asText());
+        assertEquals("1", CosmosPartitioning.ID.partitionKeyOf(categorized));
+        CosmosProductItem read = objectMapper.readValue(CosmosProductItem.encode(categorized, "books"), CosmosProductItem.class);
+        assertEquals(categorized, read.product());
+        assertEquals("books", read.partitionKey());
+        assertEquals("books", objectMapper.readTree(objectMapper.writeValueAsBytes(read)).get("_partitionKey").asText());
+        assertEquals(1700000000123L, objectMapper.readTree(
+            CosmosProductItem.encode(categorized, "books", 1700000000123L)).get("_writtenAt").asLong());
+        assertEquals(1700000000123L, objectMapper.readValue(
+            CosmosProductItem.encode(categorized, "books", 1700000000123L), CosmosProductItem.class).writtenAt());
+        assertEquals(-1, read.writtenAt());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(CosmosProductDocument.fromProduct(categorized))),
+            objectMapper.readTree(CosmosProductItem.encode(categorized)));
+    }
+}
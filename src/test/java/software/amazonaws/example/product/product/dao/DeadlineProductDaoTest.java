@@ -0,0 +1,90 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DeadlineProductDao.
+ * Tests that calls past the request deadline are abandoned or reported as deadline failures, and counted.
+ */
+class DeadlineProductDaoTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductDao backend = mock(ProductDao.class);
+    private final DeadlineProductDao dao = new DeadlineProductDao(backend, meterRegistry);
+
+    @AfterEach
+    void clearDeadline() {
+        DeadlineContext.clear();
+    }
+
+    @Test
+    void testCallsWithoutDeadline() {
+        // Given
+        when(backend.getProduct("1")).thenReturn(Optional.of(new Product("1", "Test Product 1", new BigDecimal("29.99"))));
+
+        // When
+        Optional<Product> product = dao.getProduct("1");
+
+        // Then
+        assertEquals("Test Product 1", product.get().name());
+        verify(backend).getProduct("1");
+        assertEquals(0.0, exceeded("before-call") + exceeded("during-call"));
+    }
+
+    @Test
+    void testAbandonsCallAfterDeadline() {
+        // Given
+        DeadlineContext.set(Duration.ofMillis(-1));
+
+        // When & Then
+        assertThrows(DeadlineExceededException.class, () -> dao.deleteProduct("1"));
+        verifyNoInteractions(backend);
+        assertEquals(1.0, exceeded("before-call"));
+    }
+
+    @Test
+    void testReportsFailureAfterDeadline() {
+        // Given
+        DeadlineContext.set(Duration.ofMillis(20));
+        when(backend.getProduct("1")).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new RuntimeException("Backend timed out");
+        });
+
+        // When
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class, () -> dao.getProduct("1"));
+
+        // Then
+        assertEquals("Backend timed out", e.getCause().getMessage());
+        assertEquals(1.0, exceeded("during-call"));
+    }
+
+    @Test
+    void testKeepsFailureWithinDeadline() {
+        // Given
+        DeadlineContext.set(Duration.ofSeconds(10));
+        when(backend.getProduct("1")).thenThrow(new RuntimeException("Backend timed out"));
+
+        // When & Then
+        RuntimeException e = assertThrows(RuntimeException.class, () -> dao.getProduct("1"));
+        assertFalse(e instanceof DeadlineExceededException);
+        assertEquals(0.0, exceeded("during-call"));
+    }
+
+    private double exceeded(String stage) {
+        return meterRegistry.get(DeadlineProductDao.EXCEEDED_METRIC).tag("stage", stage).counter().count();
+    }
+}
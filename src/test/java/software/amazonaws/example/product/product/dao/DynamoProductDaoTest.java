@@ -0,0 +1,216 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DynamoProductDao.
+ * Tests batch reads and paged scans through a real DynamoDB client with the observation interceptor attached,
+ * answered by a stub HTTP client with recorded DynamoDB JSON responses.
+ */
+class DynamoProductDaoTest {
+
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final List<Observation.Context> stopped = new ArrayList<>();
+    private final StubHttpClient http = new StubHttpClient();
+
+    DynamoProductDaoTest() {
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    void testGetProducts_SumsConsumedCapacityOfBatchGet() {
+        // Given
+        http.respond("""
+            {"Responses": {"ProductsTable": [
+              {"PK": {"S": "1"}, "name": {"S": "Test Product 1"}, "price": {"N": "29.99"}},
+              {"PK": {"S": "2"}, "name": {"S": "Test Product 2"}, "price": {"N": "39.99"}}]},
+             "UnprocessedKeys": {},
+             "ConsumedCapacity": [{"TableName": "ProductsTable", "CapacityUnits": 1.5}]}
+            """);
+        ProductDao dao = new ObservedProductDao(dynamoDao(), "dynamodb", observationRegistry);
+
+        // When
+        Map<String, Product> products = dao.getProducts(List.of("1", "2"));
+
+        // Then
+        assertEquals(new Product("1", "Test Product 1", new BigDecimal("29.99")), products.get("1"));
+        assertEquals(new Product("2", "Test Product 2", new BigDecimal("39.99")), products.get("2"));
+        assertEquals("1.5", value(stopped.get(0).getHighCardinalityKeyValue("db.request_charge")));
+        assertEquals("200", value(stopped.get(0).getHighCardinalityKeyValue("db.response.status_code")));
+    }
+
+    @Test
+    void testGetProducts_RetriesUnprocessedKeys() {
+        // Given
+        http.respond("""
+            {"Responses": {"ProductsTable": [
+              {"PK": {"S": "1"}, "name": {"S": "Test Product 1"}, "price": {"N": "29.99"}}]},
+             "UnprocessedKeys": {"ProductsTable": {"Keys": [{"PK": {"S": "2"}}]}},
+             "ConsumedCapacity": [{"TableName": "ProductsTable", "CapacityUnits": 1.0}]}
+            """);
+        http.respond("""
+            {"Responses": {"ProductsTable": [
+              {"PK": {"S": "2"}, "name": {"S": "Test Product 2"}, "price": {"N": "39.99"}}]},
+             "UnprocessedKeys": {},
+             "ConsumedCapacity": [{"TableName": "ProductsTable", "CapacityUnits": 0.5}]}
+            """);
+        ProductDao dao = new ObservedProductDao(dynamoDao(), "dynamodb", observationRegistry);
+
+        // When
+        Map<String, Product> products = dao.getProducts(List.of("1", "2"));
+
+        // Then
+        assertEquals(2, products.size());
+        assertEquals(2, http.requests.size());
+        assertTrue(http.requests.get(1).contains("\"2\""));
+        assertFalse(http.requests.get(1).contains("\"1\""));
+        assertEquals("1.5", value(stopped.get(0).getHighCardinalityKeyValue("db.request_charge")));
+    }
+
+    @Test
+    void testGetProduct_ReadsSingleConsumedCapacity() {
+        // Given
+        http.respond("""
+            {"Item": {"PK": {"S": "1"}, "name": {"S": "Test Product 1"}, "price": {"N": "29.99"}},
+             "ConsumedCapacity": {"TableName": "ProductsTable", "CapacityUnits": 0.5}}
+            """);
+        ProductDao dao = new ObservedProductDao(dynamoDao(), "dynamodb", observationRegistry);
+
+        // When
+        Product product = dao.getProduct("1").get();
+
+        // Then
+        assertEquals("Test Product 1", product.name());
+        assertEquals("0.5", value(stopped.get(0).getHighCardinalityKeyValue("db.request_charge")));
+    }
+
+    @Test
+    void testScanProducts_ContinuesFromLastEvaluatedKey() {
+        // Given
+        http.respond("""
+            {"Items": [{"PK": {"S": "1"}}], "Count": 1, "ScannedCount": 1, "LastEvaluatedKey": {"PK": {"S": "1"}}}
+            """);
+        http.respond("""
+            {"Items": [{"PK": {"S": "2"}}], "Count": 1, "ScannedCount": 1}
+            """);
+        DynamoProductDao dao = dynamoDao();
+
+        // When
+        ProductPage first = dao.scanProducts(ProductFields.parse(ProductFields.ID), 1, null);
+        ProductPage second = dao.scanProducts(ProductFields.parse(ProductFields.ID), 1, first.continuationToken());
+
+        // Then
+        assertEquals("1", first.products().get(0).id());
+        assertEquals("1", first.continuationToken());
+        assertEquals("2", second.products().get(0).id());
+        assertNull(second.continuationToken());
+        assertFalse(http.requests.get(0).contains("ExclusiveStartKey"));
+        assertTrue(http.requests.get(1).contains("\"ExclusiveStartKey\":{\"PK\":{\"S\":\"1\"}}"));
+        assertTrue(http.requests.get(1).contains("\"Limit\":1"));
+    }
+
+    private DynamoProductDao dynamoDao() {
+        DynamoDbClient client = DynamoDbClient.builder()
+            .region(Region.US_EAST_1)
+            .endpointOverride(URI.create("http://localhost:8000"))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .overrideConfiguration(ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new DynamoDbObservationInterceptor(observationRegistry))
+                .build())
+            .httpClient(http)
+            .build();
+        return new DynamoProductDao("ProductsTable", "", client);
+    }
+
+    private static String value(KeyValue keyValue) {
+        return keyValue == null ? null : keyValue.getValue();
+    }
+
+    /**
+     * Answers requests with the queued response bodies, in order, and records the request bodies.
+     */
+    private static class StubHttpClient implements SdkHttpClient {
+        private final Queue<String> responses = new ArrayDeque<>();
+        private final List<String> requests = new ArrayList<>();
+
+        void respond(String body) {
+            responses.add(body);
+        }
+
+        @Override
+        public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+            return new ExecutableHttpRequest() {
+                @Override
+                public HttpExecuteResponse call() throws IOException {
+                    if (request.contentStreamProvider().isPresent()) {
+                        try (InputStream body = request.contentStreamProvider().get().newStream()) {
+                            requests.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                        }
+                    }
+                    byte[] body = responses.remove().getBytes(StandardCharsets.UTF_8);
+                    return HttpExecuteResponse.builder()
+                        .response(SdkHttpResponse.builder()
+                            .statusCode(200)
+                            .putHeader("Content-Type", "application/x-amz-json-1.0")
+                            .putHeader("Content-Length", String.valueOf(body.length))
+                            .build())
+                        .responseBody(AbortableInputStream.create(new ByteArrayInputStream(body)))
+                        .build();
+                }
+
+                @Override
+                public void abort() {
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
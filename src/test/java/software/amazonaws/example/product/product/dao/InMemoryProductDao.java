@@ -0,0 +1,144 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.ProductQuery;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ProductDao backed by a map, shared by the tests of the DAO decorators and of the components scanning
+ * the catalog. Products are kept ordered by id; like a DynamoDB scan, getAllProduct only returns the first
+ * {@value #LISTING_LIMIT}, so that callers needing the whole catalog must page through scanProducts.
+ * Counts point reads, batch reads and scanned pages, and can be made to fail every call.
+ */
+public class InMemoryProductDao implements ProductDao {
+
+    public static final int LISTING_LIMIT = 20;
+
+    private final ConcurrentSkipListMap<String, Product> products = new ConcurrentSkipListMap<>();
+    private final AtomicInteger gets = new AtomicInteger();
+    private final AtomicInteger scannedPages = new AtomicInteger();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private volatile String failure;
+
+    public InMemoryProductDao(Product... products) {
+        for (Product product : products) {
+            this.products.put(product.id(), product);
+        }
+    }
+
+    public InMemoryProductDao(Collection<Product> products) {
+        products.forEach(product -> this.products.put(product.id(), product));
+    }
+
+    @Override
+    public Optional<Product> getProduct(String id) {
+        check();
+        gets.incrementAndGet();
+        return Optional.ofNullable(products.get(id));
+    }
+
+    @Override
+    public Map<String, Product> getProducts(Collection<String> ids) {
+        check();
+        batches.add(List.copyOf(ids));
+        Map<String, Product> found = new HashMap<>();
+        for (String id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                found.put(id, product);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void putProduct(Product product) {
+        check();
+        products.put(product.id(), product);
+    }
+
+    @Override
+    public void deleteProduct(String id) {
+        check();
+        products.remove(id);
+    }
+
+    @Override
+    public Products getAllProduct(ProductFields fields) {
+        check();
+        return new Products(products.values().stream().limit(LISTING_LIMIT).toList());
+    }
+
+    @Override
+    public ProductPage scanProducts(ProductFields fields, int pageSize, String continuationToken) {
+        check();
+        scannedPages.incrementAndGet();
+        Map<String, Product> after = continuationToken == null ? products : products.tailMap(continuationToken, false);
+        List<Product> page = after.values().stream().limit(pageSize).toList();
+        boolean last = page.size() < pageSize || page.get(page.size() - 1).id().equals(products.lastKey());
+        return new ProductPage(page, last ? null : page.get(page.size() - 1).id());
+    }
+
+    @Override
+    public Products queryProducts(ProductQuery query, ProductFields fields) {
+        check();
+        return new Products(products.values().stream().filter(query::matches).toList());
+    }
+
+    /**
+     * Makes every following call throw a RuntimeException with the given message, or succeed again for null.
+     */
+    public void failWith(String message) {
+        this.failure = message;
+    }
+
+    /**
+     * The products stored, by id.
+     */
+    public Map<String, Product> products() {
+        return Collections.unmodifiableMap(products);
+    }
+
+    public int gets() {
+        return gets.get();
+    }
+
+    /**
+     * Ids asked for by each batch read, in call order.
+     */
+    public List<List<String>> batches() {
+        return batches;
+    }
+
+    public int scannedPages() {
+        return scannedPages.get();
+    }
+
+    public void resetCounts() {
+        gets.set(0);
+        scannedPages.set(0);
+        batches.clear();
+    }
+
+    private void check() {
+        String message = failure;
+        if (message != null) {
+            throw new RuntimeException(message);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.profiling.DaoCallEvent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ObservedProductDao.
+ * Tests the observations and Flight Recorder events recorded around backend calls.
+ */
+class ObservedProductDaoTest {
+
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final List<Observation.Context> stopped = new ArrayList<>();
+
+    ObservedProductDaoTest() {
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    void testAnnotatesBackendResponses() {
+        // Given
+        ProductDao backend = mock(ProductDao.class);
+        when(backend.getAllProduct(any())).thenAnswer(invocation -> {
+            // Two result pages, the second one retried once
+            ObservedProductDao.annotate(observationRegistry, 200, 2.5, 0);
+            ObservedProductDao.annotate(observationRegistry, 200, 3.0, 1);
+            return new Products(List.of());
+        });
+        ProductDao dao = new ObservedProductDao(backend, "cosmosdb", observationRegistry);
+
+        // When
+        dao.getAllProduct();
+
+        // Then
+        assertEquals(1, stopped.size());
+        Observation.Context context = stopped.get(0);
+        assertEquals("product.dao", context.getName());
+        assertEquals("cosmosdb list", context.getContextualName());
+        assertEquals("cosmosdb", value(context.getLowCardinalityKeyValue("db.system")));
+        assertEquals("list", value(context.getLowCardinalityKeyValue("db.operation")));
+        assertEquals("5.5", value(context.getHighCardinalityKeyValue("db.request_charge")));
+        assertEquals("1", value(context.getHighCardinalityKeyValue("db.retries")));
+        assertEquals("200", value(context.getHighCardinalityKeyValue("db.response.status_code")));
+    }
+
+    @Test
+    void testRecordsFailures() {
+        // Given
+        ProductDao backend = mock(ProductDao.class);
+        doThrow(new RuntimeException("Failed to save product")).when(backend).putProduct(any());
+        ProductDao dao = new ObservedProductDao(backend, "dynamodb", observationRegistry);
+
+        // When
+        assertThrows(RuntimeException.class,
+            () -> dao.putProduct(new Product("1", "Test Product", new BigDecimal("29.99"))));
+
+        // Then
+        assertEquals(1, stopped.size());
+        assertNotNull(stopped.get(0).getError());
+    }
+
+    @Test
+    void testAnnotateWithoutObservationIsIgnored() {
+        // When & Then
+        assertDoesNotThrow(() -> ObservedProductDao.annotate(observationRegistry, 200, 1.0, 0));
+    }
+
+    @Test
+    void testRecordsFlightRecorderEvents() throws IOException {
+        // Given
+        ProductDao backend = mock(ProductDao.class);
+        when(backend.getProduct("1")).thenAnswer(invocation -> {
+            ObservedProductDao.annotate(observationRegistry, 200, 1.0, 0);
+            ObservedProductDao.annotate(observationRegistry, 200, 1.5, 2);
+            return Optional.empty();
+        });
+        doThrow(new IllegalStateException("Failed to delete product")).when(backend).deleteProduct("2");
+        ProductDao dao = new ObservedProductDao(backend, "cosmosdb", ObservationRegistry.NOOP);
+        Path file = Files.createTempFile("dao", ".jfr");
+
+        // When
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(DaoCallEvent.class);
+            recording.start();
+            dao.getProduct("1");
+            assertThrows(IllegalStateException.class, () -> dao.deleteProduct("2"));
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // Then
+        List<RecordedEvent> daoCalls = events.stream()
+            .filter(event -> event.getEventType().getName().equals(DaoCallEvent.NAME))
+            .toList();
+        assertEquals(2, daoCalls.size());
+        RecordedEvent get = daoCalls.get(0);
+        assertEquals("cosmosdb", get.getString("backend"));
+        assertEquals("get", get.getString("operation"));
+        assertEquals("1".hashCode(), get.getInt("idHash"));
+        assertEquals(2.5, get.getDouble("requestCharge"));
+        assertEquals(2, get.getInt("retries"));
+        assertEquals("success", get.getString("outcome"));
+        RecordedEvent delete = daoCalls.get(1);
+        assertEquals(-1.0, delete.getDouble("requestCharge"));
+        assertEquals("IllegalStateException", delete.getString("outcome"));
+    }
+
+    private static String value(KeyValue keyValue) {
+        return keyValue != null ? keyValue.getValue() : null;
+    }
+}
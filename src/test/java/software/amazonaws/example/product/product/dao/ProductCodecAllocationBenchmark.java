@@ -0,0 +1,93 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import com.azure.cosmos.implementation.InternalObjectNode;
+import com.azure.cosmos.implementation.Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazonaws.example.product.product.entity.Product;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Measures the bytes allocated per product by the backend codecs, against the mappings they replaced.
+ * Not a unit test; after {@code mvn test-compile}, run its main method on the test classpath
+ * (target/test-classes, target/classes and the dependencies), e.g. from the IDE.
+ * Cosmos DB codecs run through the serialization entry point and mapper the Cosmos SDK itself uses.
+ */
+public final class ProductCodecAllocationBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final ObjectMapper COSMOS_MAPPER = Utils.getSimpleObjectMapper();
+    private static final Product PRODUCT = new Product("3f2504e0-4f89-11d3-9a0c-0305e82c3301",
+        "Stainless steel water bottle 750ml", new BigDecimal("24.99"));
+
+    // Holds results so the JIT cannot discard the work being measured
+    private static volatile Object sink;
+
+    private ProductCodecAllocationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        byte[] document = COSMOS_MAPPER.writeValueAsBytes(CosmosProductDocument.fromProduct(PRODUCT));
+        Map<String, AttributeValue> item = ProductMapper.productToDynamoDb(PRODUCT);
+
+        System.out.printf("%-22s %14s %14s %10s%n", "codec", "before B/op", "after B/op", "saved");
+        compare("cosmos write",
+            () -> write(CosmosProductDocument.fromProduct(PRODUCT)),
+            () -> write(CosmosProductItem.encode(PRODUCT)));
+        compare("cosmos read",
+            () -> read(document, CosmosProductDocument.class).toProduct(),
+            () -> read(document, CosmosProductItem.class).product());
+        compare("dynamodb write",
+            () -> Map.of(
+                "PK", AttributeValue.builder().s(PRODUCT.id()).build(),
+                "name", AttributeValue.builder().s(PRODUCT.name()).build(),
+                "price", AttributeValue.builder().n(PRODUCT.price().toString()).build()),
+            () -> ProductMapper.productToDynamoDb(PRODUCT));
+        compare("dynamodb read",
+            () -> new Product(item.get("PK").s(), item.get("name").s(), new BigDecimal(item.get("price").n())),
+            () -> ProductMapper.productFromDynamoDB(item));
+    }
+
+    private static void compare(String codec, Supplier<Object> before, Supplier<Object> after) {
+        long beforeBytes = bytesPerOperation(before);
+        long afterBytes = bytesPerOperation(after);
+        System.out.printf("%-22s %14d %14d %9.0f%%%n", codec, beforeBytes, afterBytes,
+            100.0 * (beforeBytes - afterBytes) / beforeBytes);
+    }
+
+    private static long bytesPerOperation(Supplier<Object> operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = operation.get();
+        }
+        long thread = Thread.currentThread().getId();
+        long start = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = operation.get();
+        }
+        return (THREADS.getThreadAllocatedBytes(thread) - start) / ITERATIONS;
+    }
+
+    private static Object write(Object value) {
+        return InternalObjectNode.serializeJsonToByteBuffer(value, COSMOS_MAPPER, null);
+    }
+
+    private static <T> T read(byte[] json, Class<T> type) {
+        try {
+            return COSMOS_MAPPER.readValue(json, type);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductFields;
+import software.amazonaws.example.product.product.entity.ProductPatch;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductMapper.
+ * Tests the DynamoDB item mapping, including the fast number parsing path.
+ */
+class ProductMapperTest {
+
+    @Test
+    void testParsesNumbersLikeBigDecimal() {
+        // Given
+        List<String> numbers = List.of("0", "29.99", "29.90", "-0.00", "007", "-.5", "1.", "123456789012345678",
+            "1234567890123456789", "99999999999999999.9", "1E+3", "-1.5e-2", "123456789012345678901234.5");
+
+        // Then
+        for (String number : numbers) {
+            BigDecimal expected = new BigDecimal(number);
+            BigDecimal parsed = ProductMapper.parseNumber(number);
+            assertEquals(expected, parsed, number);
+            assertEquals(expected.scale(), parsed.scale(), number);
+        }
+        assertThrows(NumberFormatException.class, () -> ProductMapper.parseNumber("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> ProductMapper.parseNumber("-"));
+    }
+
+    @Test
+    void testRoundTrip() {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"));
+
+        // When
+        Map<String, AttributeValue> item = ProductMapper.productToDynamoDb(product);
+
+        // Then
+        assertEquals(product, ProductMapper.productFromDynamoDB(item));
+        assertEquals(Map.of("PK", AttributeValue.fromS("1")), ProductMapper.key("1"));
+        assertFalse(item.containsKey("category"));
+    }
+
+    @Test
+    void testCategory() {
+        // Given
+        Product product = new Product("1", "Test Product", new BigDecimal("29.99"), "books");
+
+        // When
+        Map<String, AttributeValue> item = ProductMapper.productToDynamoDb(product);
+
+        // Then
+        assertEquals(AttributeValue.fromS("books"), item.get("category"));
+        assertEquals(product, ProductMapper.productFromDynamoDB(item));
+        assertEquals("#category = :category", ProductMapper.categoryKeyCondition());
+        assertEquals(Map.of("#category", "category"), ProductMapper.categoryAttributeNames());
+        assertEquals(Map.of(":category", AttributeValue.fromS("books")), ProductMapper.categoryAttributeValues("books"));
+    }
+
+    @Test
+    void testProjection() {
+        // Given
+        ProductFields fields = new ProductFields(Set.of("price", "id"));
+
+        // Then
+        assertEquals("#id, #price", ProductMapper.projectionExpression(fields));
+        assertEquals(Map.of("#id", "PK", "#price", "price"), ProductMapper.projectionAttributeNames(fields));
+        assertSame(ProductMapper.projectionExpression(fields),
+            ProductMapper.projectionExpression(new ProductFields(Set.of("id", "price"))));
+    }
+
+    @Test
+    void testUpdateExpressions() {
+        // Given
+        ProductPatch price = new ProductPatch(null, new BigDecimal("24.99"), new BigDecimal("29.99"));
+        ProductPatch name = new ProductPatch("Renamed", null, null);
+
+        // Then
+        assertEquals("SET #price = :price", ProductMapper.updateExpression(price));
+        assertEquals("attribute_exists(#PK) AND #price = :expectedPrice", ProductMapper.updateConditionExpression(price));
+        assertEquals(Map.of("#PK", "PK", "#price", "price"), ProductMapper.updateAttributeNames(price));
+        assertEquals(Map.of(":price", AttributeValue.fromN("24.99"), ":expectedPrice", AttributeValue.fromN("29.99")),
+            ProductMapper.updateAttributeValues(price));
+
+        assertEquals("SET #name = :name", ProductMapper.updateExpression(name));
+        assertEquals("attribute_exists(#PK)", ProductMapper.updateConditionExpression(name));
+        assertEquals(Map.of("#PK", "PK", "#name", "name"), ProductMapper.updateAttributeNames(name));
+        assertEquals(Map.of(":name", AttributeValue.fromS("Renamed")), ProductMapper.updateAttributeValues(name));
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShadowReadProductDao.
+ * Tests that shadow reads are compared with the primary backend without affecting its results.
+ */
+class ShadowReadProductDaoTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryProductDao primary = new InMemoryProductDao();
+    private final InMemoryProductDao shadow = new InMemoryProductDao();
+
+    @Test
+    void testComparesShadowReads() {
+        // Given
+        primary.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        primary.putProduct(new Product("2", "Test Product 2", new BigDecimal("39.99")));
+        shadow.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.990")));
+        shadow.putProduct(new Product("2", "Diverged", new BigDecimal("39.99")));
+        ShadowReadProductDao dao = dao(false);
+
+        // When
+        Optional<Product> first = dao.getProduct("1");
+        Optional<Product> second = dao.getProduct("2");
+        dao.close();
+
+        // Then
+        assertEquals("Test Product 1", first.get().name());
+        assertEquals("Test Product 2", second.get().name());
+        assertEquals(1.0, comparisons("get", "match"));
+        assertEquals(1.0, comparisons("get", "mismatch"));
+        assertEquals(2, meterRegistry.get("product.dao.requests").tag("role", "shadow").tag("operation", "get").timer().count());
+    }
+
+    @Test
+    void testPrimaryUnaffectedByShadowFailure() {
+        // Given
+        primary.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        shadow.failWith("Backend unavailable");
+        ShadowReadProductDao dao = dao(false);
+
+        // When
+        Products products = dao.getAllProduct();
+        dao.close();
+
+        // Then
+        assertEquals(1, products.products().size());
+        assertEquals(1.0, comparisons("list", "error"));
+    }
+
+    @Test
+    void testMirrorsWrites() {
+        // Given
+        ShadowReadProductDao dao = dao(true);
+
+        // When
+        dao.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        dao.putProduct(new Product("2", "Test Product 2", new BigDecimal("39.99")));
+        dao.deleteProduct("1");
+        dao.close();
+
+        // Then
+        assertEquals(primary.products(), shadow.products());
+    }
+
+    @Test
+    void testMirrorsWritesToAProductInOrder() {
+        // Given
+        ShadowReadProductDao dao = new ShadowReadProductDao(primary, "dynamodb", shadow, "cosmos", 1.0, true, 4, 1000,
+            meterRegistry);
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            dao.putProduct(new Product(String.valueOf(i), "Test Product " + i, new BigDecimal("29.99")));
+            dao.putProduct(new Product(String.valueOf(i), "Renamed " + i, new BigDecimal("29.99")));
+            if (i % 2 == 0) {
+                dao.deleteProduct(String.valueOf(i));
+            }
+        }
+        dao.close();
+
+        // Then
+        assertEquals(100, shadow.products().size());
+        assertEquals(primary.products(), shadow.products());
+    }
+
+    @Test
+    void testTimesListingsWithoutComparingThem() {
+        // Given
+        primary.putProduct(new Product("1", "Test Product 1", new BigDecimal("29.99")));
+        ShadowReadProductDao dao = dao(false);
+
+        // When
+        dao.getAllProduct();
+        dao.close();
+
+        // Then
+        assertEquals(1, meterRegistry.get("product.dao.requests").tag("role", "shadow").tag("operation", "list").timer().count());
+        assertEquals(0.0, comparisons("list", "match"));
+        assertEquals(0.0, comparisons("list", "mismatch"));
+    }
+
+    @Test
+    void testComparesUnorderedListings() {
+        // Given
+        Product first = new Product("1", "Test Product 1", new BigDecimal("29.99"));
+        Product second = new Product("2", "Test Product 2", new BigDecimal("39.99"));
+
+        // Then
+        assertTrue(ShadowReadProductDao.sameProducts(List.of(first, second), List.of(second, first), false));
+        assertFalse(ShadowReadProductDao.sameProducts(List.of(first, second), List.of(second, first), true));
+        assertFalse(ShadowReadProductDao.sameProducts(List.of(first, first), List.of(first, second), false));
+    }
+
+    private ShadowReadProductDao dao(boolean mirrorWrites) {
+        return new ShadowReadProductDao(primary, "dynamodb", shadow, "cosmos", 1.0, mirrorWrites, 1, 100, meterRegistry);
+    }
+
+    private double comparisons(String operation, String outcome) {
+        return meterRegistry.get("product.dao.shadow.comparisons")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .counter()
+            .count();
+    }
+}
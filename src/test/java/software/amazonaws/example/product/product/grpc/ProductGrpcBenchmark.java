@@ -0,0 +1,157 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.proto.GetProductRequest;
+import software.amazonaws.example.product.product.proto.ListProductsRequest;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+import software.amazonaws.example.product.product.proto.ProductServiceGrpc;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the REST API with the gRPC endpoint of a running instance, started with product.grpc.enabled:
+ * point reads at a fixed concurrency (throughput and latency percentiles), and full catalog reads.
+ * Not a unit test; after {@code mvn test-compile}, run its main method on the test classpath, e.g.
+ * {@code ProductGrpcBenchmark http://localhost:8080/api localhost:9090 64 30 1000 seed}: REST base URL,
+ * gRPC target, concurrent callers, seconds per measurement, products read, and whether to write them first
+ * (as bench-0, bench-1, ...). Run it from another machine than the instance for realistic numbers.
+ */
+public final class ProductGrpcBenchmark {
+
+    // Holds results so the JIT cannot discard the work being measured
+    private static volatile Object sink;
+
+    private ProductGrpcBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String restUrl = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        String grpcTarget = args.length > 1 ? args[1] : "localhost:9090";
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Duration duration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 30);
+        int productCount = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        boolean seed = args.length > 5 && args[5].equals("seed");
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(grpcTarget).usePlaintext().build();
+        ProductServiceGrpc.ProductServiceBlockingStub grpc = ProductServiceGrpc.newBlockingStub(channel);
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        try {
+            if (seed) {
+                for (int i = 0; i < productCount; i++) {
+                    grpc.put(ProductProtoMapper.toMessage(
+                        new Product("bench-" + i, "Benchmark product " + i, new BigDecimal("24.99"))));
+                }
+            }
+
+            System.out.printf("point reads, %d callers, %ds each%n", concurrency, duration.toSeconds());
+            System.out.printf("%-8s %12s %10s %10s %10s%n", "api", "calls/s", "p50 ms", "p99 ms", "max ms");
+            // The first round of each only warms up both sides
+            for (boolean report : new boolean[] {false, true}) {
+                run("rest", report, callers, concurrency, duration, () -> {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(restUrl + "/products/" + randomId(productCount)))
+                        .header("Accept", "application/json")
+                        .build();
+                    HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("REST read failed: " + response.statusCode());
+                    }
+                    sink = response.body();
+                });
+                run("grpc", report, callers, concurrency, duration,
+                    () -> sink = grpc.get(GetProductRequest.newBuilder().setId(randomId(productCount)).build()));
+            }
+
+            System.out.printf("%nfull catalog reads%n");
+            System.out.printf("%-8s %12s %12s %10s%n", "api", "products", "bytes", "ms");
+            for (int round = 0; round < 5; round++) {
+                boolean report = round == 4;
+                long start = System.nanoTime();
+                HttpResponse<byte[]> listing = http.send(HttpRequest.newBuilder(URI.create(restUrl + "/products"))
+                    .header("Accept", "application/json").build(), HttpResponse.BodyHandlers.ofByteArray());
+                long restNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int products = 0;
+                long bytes = 0;
+                Iterator<ProductListMessage> pages = grpc.list(ListProductsRequest.getDefaultInstance());
+                while (pages.hasNext()) {
+                    ProductListMessage page = pages.next();
+                    products += page.getProductsCount();
+                    bytes += page.getSerializedSize();
+                }
+                long grpcNanos = System.nanoTime() - start;
+                if (report) {
+                    System.out.printf("%-8s %12s %12d %10.1f%n", "rest", "-", listing.body().length, restNanos / 1e6);
+                    System.out.printf("%-8s %12d %12d %10.1f%n", "grpc", products, bytes, grpcNanos / 1e6);
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+            channel.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static void run(String api, boolean report, ExecutorService callers, int concurrency, Duration duration,
+                            Call call) throws Exception {
+        long end = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(callers.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    call.run();
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        if (!report || all.length == 0) {
+            return;
+        }
+        Arrays.sort(all);
+        System.out.printf("%-8s %12.0f %10.2f %10.2f %10.2f%n", api,
+            all.length / (double) duration.toSeconds(),
+            all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    private static String randomId(int productCount) {
+        return "bench-" + ThreadLocalRandom.current().nextInt(productCount);
+    }
+}
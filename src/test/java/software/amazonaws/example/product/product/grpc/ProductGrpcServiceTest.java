@@ -0,0 +1,278 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+import software.amazonaws.example.product.product.dao.DeadlineExceededException;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.ProductPage;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.proto.BatchGetProductsRequest;
+import software.amazonaws.example.product.product.proto.DeleteProductRequest;
+import software.amazonaws.example.product.product.proto.GetProductRequest;
+import software.amazonaws.example.product.product.proto.ListProductsRequest;
+import software.amazonaws.example.product.product.proto.ProductListMessage;
+import software.amazonaws.example.product.product.proto.ProductMessage;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+import software.amazonaws.example.product.product.proto.ProductServiceGrpc;
+import software.amazonaws.example.product.product.service.ProductService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ProductGrpcService.
+ * Tests the unary calls and their status codes, deadline propagation, and List streams read from paged scans
+ * and flow-controlled, over the in-process transport.
+ */
+class ProductGrpcServiceTest {
+
+    private final ProductService productService = mock(ProductService.class);
+    private Server server;
+    private ManagedChannel channel;
+    private ProductServiceGrpc.ProductServiceBlockingStub stub;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+            .addService(new ProductGrpcService(productService, 2, new ProductConfigurationProperties().getDeadline()))
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        stub = ProductServiceGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void stopServer() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void testGet_Found() {
+        // Given
+        when(productService.getProductById("1")).thenReturn(Optional.of(product(1)));
+
+        // When
+        ProductMessage product = stub.get(GetProductRequest.newBuilder().setId("1").build());
+
+        // Then
+        assertEquals(product(1), ProductProtoMapper.fromMessage(product));
+    }
+
+    @Test
+    void testGet_NotFound() {
+        // Given
+        when(productService.getProductById("1")).thenReturn(Optional.empty());
+
+        // When
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+            () -> stub.get(GetProductRequest.newBuilder().setId("1").build()));
+
+        // Then
+        assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+    }
+
+    @Test
+    void testBatchGet_ReturnsFoundProducts() {
+        // Given
+        when(productService.getProductsByIds(List.of("1", "2"))).thenReturn(Map.of("1", product(1)));
+
+        // When
+        ProductListMessage products = stub.batchGet(BatchGetProductsRequest.newBuilder().addIds("1").addIds("2").build());
+
+        // Then
+        assertEquals(List.of(product(1)), ProductProtoMapper.fromMessage(products).products());
+    }
+
+    @Test
+    void testPut_MissingId() {
+        // When
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+            () -> stub.put(ProductMessage.newBuilder().setName("No ID").build()));
+
+        // Then
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+        verify(productService, never()).createOrUpdateProduct(any());
+    }
+
+    @Test
+    void testPut_PropagatesDeadline() {
+        // Given
+        AtomicReference<Duration> remaining = new AtomicReference<>();
+        doAnswer(invocation -> {
+            remaining.set(DeadlineContext.remaining());
+            return null;
+        }).when(productService).createOrUpdateProduct(product(1));
+
+        // When
+        stub.withDeadlineAfter(5, TimeUnit.SECONDS).put(ProductProtoMapper.toMessage(product(1)));
+
+        // Then
+        assertNotNull(remaining.get());
+        assertTrue(remaining.get().compareTo(Duration.ofSeconds(5)) <= 0);
+    }
+
+    @Test
+    void testDelete_DeadlineExceeded() {
+        // Given
+        when(productService.deleteProduct("1")).thenThrow(new DeadlineExceededException("Request deadline exceeded"));
+
+        // When
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+            () -> stub.delete(DeleteProductRequest.newBuilder().setId("1").build()));
+
+        // Then
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+    }
+
+    @Test
+    void testList_StreamsPages() {
+        // Given
+        scans(products(5));
+
+        // When
+        List<Integer> pageSizes = new ArrayList<>();
+        Iterator<ProductListMessage> pages = stub.list(ListProductsRequest.getDefaultInstance());
+        pages.forEachRemaining(page -> pageSizes.add(page.getProductsCount()));
+
+        // Then
+        assertEquals(List.of(2, 2, 1), pageSizes);
+        verify(productService, times(3)).scanProducts(eq(2), any());
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    void testList_SplitsLargerPages() {
+        // Given
+        when(productService.scanProducts(anyInt(), any())).thenReturn(new ProductPage(products(5).products(), null));
+
+        // When
+        List<Integer> pageSizes = new ArrayList<>();
+        Iterator<ProductListMessage> pages = stub.list(ListProductsRequest.getDefaultInstance());
+        pages.forEachRemaining(page -> pageSizes.add(page.getProductsCount()));
+
+        // Then
+        assertEquals(List.of(2, 2, 1), pageSizes);
+    }
+
+    @Test
+    void testList_FailsWhenScanFails() {
+        // Given
+        when(productService.scanProducts(anyInt(), any()))
+            .thenReturn(new ProductPage(products(2).products(), "2"))
+            .thenThrow(new DeadlineExceededException("Request deadline exceeded"));
+
+        // When
+        Iterator<ProductListMessage> pages = stub.list(ListProductsRequest.getDefaultInstance());
+        ProductListMessage first = pages.next();
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, pages::next);
+
+        // Then
+        assertEquals(2, first.getProductsCount());
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+    }
+
+    @Test
+    void testList_WaitsForCaller() throws InterruptedException {
+        // Given
+        scans(products(10));
+        List<ProductListMessage> received = new ArrayList<>();
+        CountDownLatch firstPage = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicReference<ClientCallStreamObserver<ListProductsRequest>> call = new AtomicReference<>();
+
+        // When
+        ProductServiceGrpc.newStub(channel).list(ListProductsRequest.newBuilder().setPageSize(3).build(),
+            new ClientResponseObserver<ListProductsRequest, ProductListMessage>() {
+                @Override
+                public void beforeStart(ClientCallStreamObserver<ListProductsRequest> requestStream) {
+                    call.set(requestStream);
+                    requestStream.disableAutoRequestWithInitial(1);
+                }
+
+                @Override
+                public void onNext(ProductListMessage page) {
+                    synchronized (received) {
+                        received.add(page);
+                    }
+                    firstPage.countDown();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    completed.countDown();
+                }
+
+                @Override
+                public void onCompleted() {
+                    completed.countDown();
+                }
+            });
+        assertTrue(firstPage.await(5, TimeUnit.SECONDS));
+        assertFalse(completed.await(200, TimeUnit.MILLISECONDS));
+        int beforeRequest;
+        synchronized (received) {
+            beforeRequest = received.size();
+        }
+        call.get().request(10);
+
+        // Then
+        assertEquals(1, beforeRequest);
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(4, received.size());
+        assertEquals(10, received.stream().mapToInt(ProductListMessage::getProductsCount).sum());
+    }
+
+    /**
+     * Answers scans with pages of the catalog; the continuation token is the offset of the next page.
+     */
+    private void scans(Products catalog) {
+        List<Product> products = catalog.products();
+        when(productService.scanProducts(anyInt(), any())).thenAnswer(invocation -> {
+            int pageSize = invocation.getArgument(0);
+            String token = invocation.getArgument(1);
+            int from = token == null ? 0 : Integer.parseInt(token);
+            int to = Math.min(from + pageSize, products.size());
+            return new ProductPage(products.subList(from, to), to < products.size() ? String.valueOf(to) : null);
+        });
+    }
+
+    private static Product product(int i) {
+        return new Product(String.valueOf(i), "Test Product " + i, new BigDecimal("29.99"));
+    }
+
+    private static Products products(int count) {
+        return new Products(IntStream.rangeClosed(1, count).mapToObj(ProductGrpcServiceTest::product).toList());
+    }
+}
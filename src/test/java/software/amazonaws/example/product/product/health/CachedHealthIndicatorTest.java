@@ -0,0 +1,104 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.health;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import software.amazonaws.example.product.product.dao.DeadlineContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CachedHealthIndicator.
+ * Tests that health is answered from the last check, with failure thresholds and staleness.
+ */
+class CachedHealthIndicatorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger checks = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final CachedHealthIndicator indicator = new CachedHealthIndicator("test", () -> {
+        checks.incrementAndGet();
+        assertNotNull(DeadlineContext.remaining());
+        if (failing.get()) {
+            throw new IllegalStateException("Table is CREATING");
+        }
+        return Map.of("table", "ProductsTable");
+    }, Duration.ofSeconds(1), Duration.ofSeconds(30), 2, clock::get);
+
+    @Test
+    void testUnknownBeforeFirstCheck() {
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.UNKNOWN, health.getStatus());
+        assertEquals(0, checks.get());
+    }
+
+    @Test
+    void testAnswersFromLastCheck() {
+        // Given
+        indicator.refresh();
+
+        // When
+        Health first = indicator.health();
+        Health second = indicator.health();
+
+        // Then
+        assertEquals(Status.UP, first.getStatus());
+        assertEquals(Status.UP, second.getStatus());
+        assertEquals("ProductsTable", first.getDetails().get("table"));
+        assertEquals(1, checks.get());
+        assertNull(DeadlineContext.remaining());
+    }
+
+    @Test
+    void testDownAfterConsecutiveFailures() {
+        // Given
+        failing.set(true);
+
+        // When
+        indicator.refresh();
+        Health afterOne = indicator.health();
+        indicator.refresh();
+        Health afterTwo = indicator.health();
+        failing.set(false);
+        indicator.refresh();
+        Health recovered = indicator.health();
+
+        // Then
+        assertEquals(Status.UP, afterOne.getStatus());
+        assertEquals(1, afterOne.getDetails().get("consecutiveFailures"));
+        assertEquals(Status.DOWN, afterTwo.getStatus());
+        assertTrue(afterTwo.getDetails().get("error").toString().contains("Table is CREATING"));
+        assertEquals(Status.UP, recovered.getStatus());
+        assertEquals(0, recovered.getDetails().get("consecutiveFailures"));
+    }
+
+    @Test
+    void testUnknownWhenStale() {
+        // Given
+        failing.set(true);
+        indicator.refresh();
+        indicator.refresh();
+
+        // When
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.UNKNOWN, health.getStatus());
+        assertEquals(true, health.getDetails().get("stale"));
+        assertEquals("DOWN", health.getDetails().get("lastStatus"));
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IdempotencyStore.
+ * Tests replay of recorded responses, concurrent duplicates, key reuse and expiry.
+ */
+class IdempotencyStoreTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final ProductConfigurationProperties.Idempotency config = new ProductConfigurationProperties.Idempotency();
+
+    private IdempotencyStore store() {
+        return new IdempotencyStore(config, new SimpleMeterRegistry(), nanoTime::get);
+    }
+
+    private ResponseEntity<String> write() {
+        writes.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).header("X-Session-Token", "0:1").body("created");
+    }
+
+    @Test
+    void testReplaysRecordedResponseWithoutWritingAgain() {
+        // Given
+        IdempotencyStore store = store();
+        store.execute("key-1", "PUT /products/1", this::write);
+
+        // When
+        ResponseEntity<String> response = store.execute("key-1", "PUT /products/1", this::write);
+
+        // Then
+        assertEquals(1, writes.get());
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("created", response.getBody());
+        assertEquals("0:1", response.getHeaders().getFirst("X-Session-Token"));
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForOriginal() throws Exception {
+        // Given
+        IdempotencyStore store = store();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> original = CompletableFuture.supplyAsync(() ->
+            store.execute("key-1", "PUT /products/1", () -> {
+                started.countDown();
+                await(release);
+                return write();
+            }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() ->
+            store.execute("key-1", "PUT /products/1", this::write));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        // Then
+        assertEquals(HttpStatus.CREATED, duplicate.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(HttpStatus.CREATED, original.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void testRejectsKeyReusedForDifferentRequest() {
+        // Given
+        IdempotencyStore store = store();
+        store.execute("key-1", "PUT /products/1", this::write);
+
+        // When
+        ResponseEntity<String> response = store.execute("key-1", "PUT /products/2", this::write);
+
+        // Then
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void testExecutesAgainAfterServerErrorOrExpiry() {
+        // Given
+        config.setTtl(Duration.ofMinutes(1));
+        IdempotencyStore store = store();
+        store.execute("key-1", "PUT /products/1", () -> ResponseEntity.internalServerError().build());
+
+        // When
+        store.execute("key-1", "PUT /products/1", this::write);
+        nanoTime.addAndGet(Duration.ofMinutes(1).toNanos());
+        store.execute("key-1", "PUT /products/1", this::write);
+
+        // Then
+        assertEquals(2, writes.get());
+        nanoTime.addAndGet(Duration.ofMinutes(1).toNanos());
+        store.purgeExpired();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testExecutesWithoutRecordingWhenFull() {
+        // Given
+        config.setMaxEntries(1);
+        IdempotencyStore store = store();
+        store.execute("key-1", "PUT /products/1", this::write);
+
+        // When
+        store.execute("key-2", "PUT /products/2", this::write);
+        store.execute("key-2", "PUT /products/2", this::write);
+
+        // Then
+        assertEquals(3, writes.get());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testPurgesWhenFullAtMostOnceASecond() {
+        // Given
+        config.setMaxEntries(1);
+        config.setTtl(Duration.ofMillis(500));
+        IdempotencyStore store = store();
+        store.execute("key-1", "PUT /products/1", this::write);
+        store.execute("key-2", "PUT /products/2", this::write);
+
+        // When
+        nanoTime.addAndGet(Duration.ofMillis(600).toNanos());
+        store.execute("key-3", "PUT /products/3", this::write);
+        store.execute("key-3", "PUT /products/3", this::write);
+        nanoTime.addAndGet(Duration.ofMillis(500).toNanos());
+        store.execute("key-4", "PUT /products/4", this::write);
+        store.execute("key-4", "PUT /products/4", this::write);
+
+        // Then
+        // key-3 found the store full of key-1, expired but not purged yet, so it was not recorded
+        assertEquals(5, writes.get());
+        assertEquals(1, store.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import com.azure.cosmos.CosmosClient;
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.CosmosDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchItemRequestOptions;
+import com.azure.cosmos.models.CosmosPatchOperations;
+import com.azure.cosmos.models.PartitionKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockMakers;
+import software.amazonaws.example.product.product.config.AzureConfigurationProperties;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CosmosInvalidationChannel.
+ * Tests that invalidations only replace stored ones with a lower version, against a stubbed container.
+ */
+class CosmosInvalidationChannelTest {
+
+    private final ProductInvalidation invalidation = new ProductInvalidation("1", 42, false, "replica-a");
+
+    private CosmosContainer container;
+    private CosmosInvalidationChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        // The Cosmos DB client classes are final, so they are mocked inline
+        CosmosClient client = inlineMock(CosmosClient.class);
+        CosmosDatabase database = inlineMock(CosmosDatabase.class);
+        container = inlineMock(CosmosContainer.class);
+        AzureConfigurationProperties azureConfig = new AzureConfigurationProperties();
+        ProductConfigurationProperties productConfig = new ProductConfigurationProperties();
+        productConfig.getInvalidation().setPollInterval(Duration.ofHours(1));
+        when(client.getDatabase(any())).thenReturn(database);
+        when(database.getContainer(productConfig.getInvalidation().getContainer())).thenReturn(container);
+        channel = new CosmosInvalidationChannel(client, azureConfig, productConfig, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.close();
+    }
+
+    @Test
+    void testReplacesOnlyLowerVersions() {
+        // When
+        channel.write(invalidation);
+
+        // Then
+        ArgumentCaptor<CosmosPatchItemRequestOptions> options = ArgumentCaptor.forClass(CosmosPatchItemRequestOptions.class);
+        verify(container).patchItem(eq("1"), eq(new PartitionKey("1")), any(CosmosPatchOperations.class),
+            options.capture(), eq(CosmosInvalidationChannel.InvalidationDocument.class));
+        assertEquals("FROM c WHERE c.version < 42", options.getValue().getFilterPredicate());
+        verify(container, never()).createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testKeepsHigherVersion() {
+        // Given
+        doThrow(cosmosException(412)).when(container).patchItem(any(), any(), any(), any(), any());
+
+        // When / Then
+        assertDoesNotThrow(() -> channel.write(invalidation));
+        verify(container, never()).createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testCreatesMissingDocument() {
+        // Given
+        doThrow(cosmosException(404)).when(container).patchItem(any(), any(), any(), any(), any());
+
+        // When
+        channel.write(invalidation);
+
+        // Then
+        verify(container).createItem(any(CosmosInvalidationChannel.InvalidationDocument.class), eq(new PartitionKey("1")),
+            any(CosmosItemRequestOptions.class));
+    }
+
+    @Test
+    void testPatchesDocumentCreatedMeanwhile() {
+        // Given
+        doThrow(cosmosException(404)).doReturn(null).when(container).patchItem(any(), any(), any(), any(), any());
+        doThrow(cosmosException(409)).when(container)
+            .createItem(any(), any(PartitionKey.class), any(CosmosItemRequestOptions.class));
+
+        // When
+        channel.write(invalidation);
+
+        // Then
+        verify(container, times(2)).patchItem(eq("1"), eq(new PartitionKey("1")), any(CosmosPatchOperations.class),
+            any(CosmosPatchItemRequestOptions.class), eq(CosmosInvalidationChannel.InvalidationDocument.class));
+    }
+
+    @Test
+    void testSendsQueuedInvalidationsOnClose() throws InterruptedException {
+        // Given
+        channel.publish(invalidation);
+        channel.publish(new ProductInvalidation("2", 43, true, "replica-a"));
+
+        // When
+        channel.close();
+
+        // Then
+        verify(container, times(2)).patchItem(any(), any(), any(), any(), any());
+    }
+
+    private static CosmosException cosmosException(int statusCode) {
+        CosmosException exception = inlineMock(CosmosException.class);
+        when(exception.getStatusCode()).thenReturn(statusCode);
+        return exception;
+    }
+
+    private static <T> T inlineMock(Class<T> type) {
+        return mock(type, withSettings().mockMaker(MockMakers.INLINE));
+    }
+}
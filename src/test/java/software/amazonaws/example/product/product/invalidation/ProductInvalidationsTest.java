@@ -0,0 +1,99 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.invalidation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProductInvalidations.
+ * Tests fan-out between replicas sharing a channel, ordering by version and read-through race detection.
+ */
+class ProductInvalidationsTest {
+
+    private final LocalInvalidationChannel channel = new LocalInvalidationChannel();
+    private final List<Object> eventsA = new ArrayList<>();
+    private final List<Object> eventsB = new ArrayList<>();
+    private final ProductInvalidations replicaA = replica(eventsA, 1_000);
+    private final ProductInvalidations replicaB = replica(eventsB, 1_000);
+
+    @Test
+    void testChangeEvictsOnOtherReplicas() {
+        // When
+        replicaA.onProductChanged(new ProductChangedEvent("1", true, false));
+
+        // Then
+        assertEquals(List.of(new ProductChangedEvent("1", true, true)), eventsB);
+        assertTrue(eventsA.isEmpty());
+    }
+
+    @Test
+    void testIgnoresRedeliveredAndOlderInvalidations() {
+        // Given
+        ProductInvalidation older = new ProductInvalidation("1", 5, false, "replica-c");
+        ProductInvalidation newer = new ProductInvalidation("1", 6, true, "replica-c");
+
+        // When
+        replicaB.receive(newer);
+        replicaB.receive(newer);
+        replicaB.receive(older);
+
+        // Then
+        assertEquals(List.of(new ProductChangedEvent("1", true, true)), eventsB);
+    }
+
+    @Test
+    void testVersionsStayAheadOfRemoteVersionsDespiteClockSkew() {
+        // Given
+        ProductInvalidations lagging = replica(new ArrayList<>(), 0);
+
+        // When
+        replicaA.onProductChanged(new ProductChangedEvent("1"));
+        lagging.onProductChanged(new ProductChangedEvent("1"));
+
+        // Then
+        assertEquals(List.of(new ProductChangedEvent("1", false, true), new ProductChangedEvent("1", false, true)),
+            eventsB);
+        assertEquals(List.of(new ProductChangedEvent("1", false, true)), eventsA);
+    }
+
+    @Test
+    void testInvalidatedSince() {
+        // Given
+        long sequence = replicaB.sequence();
+
+        // When
+        replicaA.onProductChanged(new ProductChangedEvent("1"));
+
+        // Then
+        assertTrue(replicaB.invalidatedSince("1", sequence));
+        assertFalse(replicaB.invalidatedSince("2", sequence));
+        assertFalse(replicaB.invalidatedSince("1", replicaB.sequence()));
+    }
+
+    @Test
+    void testPurgeForgetsOldInvalidationsConservatively() {
+        // Given
+        long sequence = replicaB.sequence();
+        replicaA.onProductChanged(new ProductChangedEvent("1"));
+
+        // When
+        replicaB.purge();
+        replicaB.purge();
+
+        // Then
+        assertTrue(replicaB.invalidatedSince("2", sequence));
+        assertFalse(replicaB.invalidatedSince("1", replicaB.sequence()));
+    }
+
+    private ProductInvalidations replica(List<Object> events, long currentTimeMillis) {
+        return new ProductInvalidations(channel, events::add, new SimpleMeterRegistry(), () -> currentTimeMillis);
+    }
+}
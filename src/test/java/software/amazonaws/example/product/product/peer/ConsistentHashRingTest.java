@@ -0,0 +1,84 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.peer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConsistentHashRing.
+ * Tests that ids are spread evenly over the replicas and that few change owner when a replica joins.
+ */
+class ConsistentHashRingTest {
+
+    private static final int IDS = 20_000;
+
+    @Test
+    void testEmptyRingHasNoOwner() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 128);
+
+        // When & Then
+        assertNull(ring.ownerOf("1"));
+    }
+
+    @Test
+    void testSpreadsIdsEvenly() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(
+            List.of("http://a:8080/api", "http://b:8080/api", "http://c:8080/api", "http://d:8080/api"), 128);
+
+        // When
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < IDS; i++) {
+            owned.merge(ring.ownerOf(String.valueOf(i)), 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(4, owned.size());
+        owned.values().forEach(count -> assertTrue(Math.abs(count - IDS / 4) < IDS / 4 * 0.25,
+            "Unbalanced ring: " + owned));
+    }
+
+    @Test
+    void testMovesFewIdsWhenReplicaJoins() {
+        // Given
+        ConsistentHashRing before = new ConsistentHashRing(
+            List.of("http://a:8080/api", "http://b:8080/api", "http://c:8080/api", "http://d:8080/api"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(
+            List.of("http://e:8080/api", "http://a:8080/api", "http://b:8080/api", "http://c:8080/api",
+                "http://d:8080/api"), 128);
+
+        // When
+        int moved = 0;
+        for (int i = 0; i < IDS; i++) {
+            String id = String.valueOf(i);
+            if (!before.ownerOf(id).equals(after.ownerOf(id))) {
+                moved++;
+                assertEquals("http://e:8080/api", after.ownerOf(id));
+            }
+        }
+
+        // Then
+        assertTrue(Math.abs(moved - IDS / 5) < IDS / 5 * 0.25, "Moved " + moved + " ids");
+    }
+
+    @Test
+    void testIgnoresMemberOrder() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a:8080/api", "http://b:8080/api"), 16);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("http://b:8080/api", "http://a:8080/api"), 16);
+
+        // When & Then
+        assertEquals(ring.members(), reordered.members());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ring.ownerOf(String.valueOf(i)), reordered.ownerOf(String.valueOf(i)));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.peer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.InMemoryProductDao;
+import software.amazonaws.example.product.product.entity.Product;
+import software.amazonaws.example.product.product.entity.Products;
+import software.amazonaws.example.product.product.proto.ProductProtoMapper;
+import software.amazonaws.example.product.product.service.ProductChangedEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PeerCachingProductDao.
+ * Tests that owned products are cached, others are read from their owner replica, served here by a
+ * local HTTP server, or from the backend when the owner fails, and that hot products are copied locally.
+ */
+class PeerCachingProductDaoTest {
+
+    private static final String SELF = "http://self.invalid/api";
+
+    private final InMemoryProductDao backend = new InMemoryProductDao();
+    private final AtomicInteger ownerReads = new AtomicInteger();
+    private volatile int ownerStatus = 200;
+    private HttpServer owner;
+    private PeerCache peerCache;
+    private PeerCachingProductDao dao;
+
+    @BeforeEach
+    void startOwner() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            backend.putProduct(product(String.valueOf(i), "Local"));
+        }
+        owner = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        owner.createContext("/api" + PeerCache.PATH, exchange -> {
+            ownerReads.incrementAndGet();
+            if (!"peer-secret".equals(exchange.getRequestHeaders().getFirst(PeerCache.SECRET_HEADER))) {
+                exchange.sendResponseHeaders(403, -1);
+                exchange.close();
+                return;
+            }
+            String id = exchange.getRequestURI().getPath().substring(("/api" + PeerCache.PATH).length());
+            byte[] body = ProductProtoMapper.toMessage(product(id, "Remote")).toByteArray();
+            exchange.sendResponseHeaders(ownerStatus, ownerStatus == 200 ? body.length : -1);
+            if (ownerStatus == 200) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        owner.createContext("/api" + PeerCache.BATCH_PATH, exchange -> {
+            ownerReads.incrementAndGet();
+            if (!"peer-secret".equals(exchange.getRequestHeaders().getFirst(PeerCache.SECRET_HEADER))) {
+                exchange.sendResponseHeaders(403, -1);
+                exchange.close();
+                return;
+            }
+            String[] ids = new ObjectMapper().readValue(exchange.getRequestBody(), String[].class);
+            List<Product> products = new ArrayList<>();
+            for (String id : ids) {
+                products.add(product(id, "Remote"));
+            }
+            byte[] body = ProductProtoMapper.toMessage(new Products(products)).toByteArray();
+            exchange.sendResponseHeaders(ownerStatus, ownerStatus == 200 ? body.length : -1);
+            if (ownerStatus == 200) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        owner.start();
+
+        ProductConfigurationProperties config = new ProductConfigurationProperties();
+        ProductConfigurationProperties.Peer peer = config.getCache().getPeer();
+        peer.setPeers(List.of(SELF, "http://localhost:" + owner.getAddress().getPort() + "/api"));
+        peer.setSelf(SELF);
+        peer.setHotThreshold(3);
+        peer.setSecret("peer-secret");
+        // Generous for the first request of a cold JVM
+        peer.setTimeout(Duration.ofSeconds(5));
+        peerCache = new PeerCache(config, 8080, "/api", new SimpleMeterRegistry());
+        dao = new PeerCachingProductDao(backend, peerCache);
+        peerCache.serveFrom(dao);
+    }
+
+    @AfterEach
+    void stopOwner() {
+        owner.stop(0);
+    }
+
+    @Test
+    void testCachesOwnedProducts() {
+        // Given
+        String id = idOwnedBy(null);
+
+        // When
+        dao.getProduct(id);
+        Optional<Product> product = dao.getProduct(id);
+
+        // Then
+        assertEquals("Local", product.get().name());
+        assertEquals(1, backend.gets());
+        assertEquals(0, ownerReads.get());
+    }
+
+    @Test
+    void testReadsRemoteProductsFromOwner() {
+        // Given
+        String id = idOwnedBy("remote");
+
+        // When
+        Optional<Product> product = dao.getProduct(id);
+
+        // Then
+        assertEquals("Remote", product.get().name());
+        assertEquals(id, product.get().id());
+        assertEquals(1, ownerReads.get());
+        assertEquals(0, backend.gets());
+    }
+
+    @Test
+    void testCopiesHotProductsLocally() {
+        // Given
+        String id = idOwnedBy("remote");
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            dao.getProduct(id);
+        }
+
+        // Then
+        assertEquals(3, ownerReads.get());
+        assertEquals(0, backend.gets());
+    }
+
+    @Test
+    void testFallsBackToBackendAndSuspendsFailingOwner() {
+        // Given
+        String id = idOwnedBy("remote");
+        ownerStatus = 500;
+
+        // When
+        Optional<Product> first = dao.getProduct(id);
+        Optional<Product> second = dao.getProduct(id);
+
+        // Then
+        assertEquals("Local", first.get().name());
+        assertEquals("Local", second.get().name());
+        assertEquals(1, ownerReads.get());
+        assertEquals(2, backend.gets());
+    }
+
+    @Test
+    void testEvictsChangedOwnedProducts() {
+        // Given
+        String id = idOwnedBy(null);
+        dao.getProduct(id);
+
+        // When
+        peerCache.onProductChanged(new ProductChangedEvent(id, false, true));
+        dao.getProduct(id);
+
+        // Then
+        assertEquals(2, backend.gets());
+    }
+
+    @Test
+    void testBatchReadsMissesInOneBackendCall() {
+        // Given
+        List<String> owned = idsOwnedBy(null, 3);
+        String remote = idOwnedBy("remote");
+        dao.getProduct(owned.get(0));
+
+        // When
+        List<String> ids = new ArrayList<>(owned);
+        ids.add(remote);
+        Map<String, Product> products = dao.getProducts(ids);
+        Map<String, Product> again = dao.getProducts(owned);
+
+        // Then
+        assertEquals(4, products.size());
+        assertEquals("Remote", products.get(remote).name());
+        assertEquals("Local", products.get(owned.get(1)).name());
+        assertEquals(List.of(List.of(owned.get(1), owned.get(2))), backend.batches());
+        assertEquals(3, again.size());
+        assertEquals(1, backend.gets());
+        assertEquals(1, ownerReads.get());
+    }
+
+    @Test
+    void testBatchAsksEachOwnerOnce() {
+        // Given
+        List<String> remote = idsOwnedBy("remote", 5);
+
+        // When
+        Map<String, Product> products = dao.getProducts(remote);
+
+        // Then
+        assertEquals(5, products.size());
+        assertTrue(products.values().stream().allMatch(product -> "Remote".equals(product.name())));
+        assertEquals(1, ownerReads.get());
+        assertTrue(backend.batches().isEmpty());
+    }
+
+    @Test
+    void testBatchReadsFromBackendWhenOwnerFails() {
+        // Given
+        List<String> remote = idsOwnedBy("remote", 3);
+        ownerStatus = 500;
+
+        // When
+        Map<String, Product> products = dao.getProducts(remote);
+
+        // Then
+        assertEquals(3, products.size());
+        assertEquals(List.of(remote), backend.batches());
+        assertEquals(1, ownerReads.get());
+    }
+
+    @Test
+    void testRequiresSecret() {
+        // Given
+        ProductConfigurationProperties config = new ProductConfigurationProperties();
+        config.getCache().getPeer().setPeers(List.of(SELF));
+        config.getCache().getPeer().setSelf(SELF);
+
+        // Then
+        assertThrows(IllegalStateException.class, () -> new PeerCache(config, 8080, "/api", new SimpleMeterRegistry()));
+        assertFalse(peerCache.isAuthorized(null));
+        assertFalse(peerCache.isAuthorized("guess"));
+        assertTrue(peerCache.isAuthorized("peer-secret"));
+    }
+
+    private String idOwnedBy(String remote) {
+        return idsOwnedBy(remote, 1).get(0);
+    }
+
+    private List<String> idsOwnedBy(String remote, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; i++) {
+            String id = String.valueOf(i);
+            if ((peerCache.remoteOwnerOf(id) == null) == (remote == null)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static Product product(String id, String name) {
+        return new Product(id, name, new BigDecimal("29.99"));
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for JfrAccessFilter.
+ * Tests that /actuator/jfr needs the configured bearer token and other paths are left alone.
+ */
+class JfrAccessFilterTest {
+
+    private final FilterChain chain = mock(FilterChain.class);
+
+    @Test
+    void testAllowsConfiguredToken() throws Exception {
+        // Given
+        MockHttpServletRequest request = request("/api/actuator/jfr");
+        request.addHeader("Authorization", "Bearer s3cret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter("s3cret").doFilter(request, response, chain);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    void testRejectsWrongOrMissingToken() throws Exception {
+        // Given
+        MockHttpServletRequest wrong = request("/api/actuator/jfr");
+        wrong.addHeader("Authorization", "Bearer guess");
+        MockHttpServletResponse wrongResponse = new MockHttpServletResponse();
+        MockHttpServletResponse missingResponse = new MockHttpServletResponse();
+
+        // When
+        filter("s3cret").doFilter(wrong, wrongResponse, chain);
+        filter("s3cret").doFilter(request("/api/actuator/jfr"), missingResponse, chain);
+
+        // Then
+        assertEquals(403, wrongResponse.getStatus());
+        assertEquals(403, missingResponse.getStatus());
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    void testRejectsEverythingWithoutConfiguredToken() throws Exception {
+        // Given
+        MockHttpServletRequest request = request("/api/actuator/jfr");
+        request.addHeader("Authorization", "Bearer ");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter("").doFilter(request, response, chain);
+
+        // Then
+        assertEquals(403, response.getStatus());
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    void testGuardsPathsWithMatrixParametersOrEncoding() throws Exception {
+        for (String uri : new String[] {"/api/actuator/jfr;x", "/api/actuator;x/jfr", "/api/actuator/%6Afr",
+                "/api/actuator/jfr/"}) {
+            // Given
+            MockHttpServletRequest request = request(uri);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            // When
+            filter("s3cret").doFilter(request, response, chain);
+
+            // Then
+            assertEquals(403, response.getStatus(), uri);
+        }
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    void testIgnoresOtherPaths() throws Exception {
+        // Given
+        MockHttpServletRequest request = request("/api/actuator/health");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter(null).doFilter(request, response, chain);
+
+        // Then
+        verify(chain).doFilter(request, response);
+    }
+
+    private static JfrAccessFilter filter(String token) {
+        ProductConfigurationProperties config = new ProductConfigurationProperties();
+        config.getProfiling().setToken(token);
+        return new JfrAccessFilter(config, "/actuator");
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setContextPath("/api");
+        return request;
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JfrEndpoint.
+ * Tests that recordings start without blocking, contain the product events but none carrying secrets,
+ * are downloaded once and run one at a time.
+ */
+class JfrEndpointTest {
+
+    private final JfrEndpoint endpoint = new JfrEndpoint(new ProductConfigurationProperties());
+
+    @AfterEach
+    void closeEndpoint() {
+        endpoint.close();
+    }
+
+    @Test
+    void testReturnsRecordingWithProductEvents() throws IOException {
+        // Given
+        WebEndpointResponse<JfrEndpoint.RecordingStatus> started = endpoint.start(Duration.ofMillis(500));
+        waitUntilRecording();
+
+        // When
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        event.setMethod("GET");
+        event.setRoute("/products/{id}");
+        event.setStatus(200);
+        event.commit();
+
+        // Then
+        assertEquals(202, started.getStatus());
+        assertEquals("recording", started.getBody().state());
+        Resource resource = awaitDownload().getBody();
+        List<RecordedEvent> events = readAll(resource);
+        List<RecordedEvent> requests = events.stream()
+            .filter(recorded -> recorded.getEventType().getName().equals(RequestEvent.NAME))
+            .toList();
+        assertEquals(1, requests.size());
+        assertEquals("/products/{id}", requests.get(0).getString("route"));
+        assertTrue(events.stream().noneMatch(
+            recorded -> Arrays.asList(JfrEndpoint.SENSITIVE_EVENTS).contains(recorded.getEventType().getName())));
+        assertFalse(resource.exists());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download().getStatus());
+    }
+
+    @Test
+    void testDownloadWhileRecording() {
+        // Given
+        endpoint.start(Duration.ofSeconds(5));
+
+        // When
+        WebEndpointResponse<Resource> response = endpoint.download();
+
+        // Then
+        assertEquals(202, response.getStatus());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void testDownloadWithoutRecording() {
+        // When
+        WebEndpointResponse<Resource> response = endpoint.download();
+
+        // Then
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, response.getStatus());
+    }
+
+    @Test
+    void testRejectsConcurrentRecording() {
+        // Given
+        endpoint.start(Duration.ofMillis(500));
+
+        // When
+        WebEndpointResponse<JfrEndpoint.RecordingStatus> second = endpoint.start(Duration.ofMillis(500));
+
+        // Then
+        assertEquals(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS, second.getStatus());
+        assertEquals(WebEndpointResponse.STATUS_OK, awaitDownload().getStatus());
+    }
+
+    private WebEndpointResponse<Resource> awaitDownload() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        WebEndpointResponse<Resource> response = endpoint.download();
+        while (response.getStatus() == 202 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            response = endpoint.download();
+        }
+        return response;
+    }
+
+    private static List<RecordedEvent> readAll(Resource resource) throws IOException {
+        Path file = Files.createTempFile("endpoint", ".jfr");
+        try {
+            try (InputStream in = resource.getInputStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void waitUntilRecording() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!new RequestEvent().isEnabled() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static software.amazonaws.example.product.product.ratelimit.RateLimiter.CostClass.CHEAP;
+import static software.amazonaws.example.product.product.ratelimit.RateLimiter.CostClass.EXPENSIVE;
+
+/**
+ * Unit tests for RateLimiter.
+ * Tests per-client token buckets, cost classes, API key validation, overflow, client eviction and usage metrics.
+ */
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductConfigurationProperties.RateLimit config = new ProductConfigurationProperties.RateLimit();
+
+    RateLimiterTest() {
+        config.getCheap().setCapacity(3);
+        config.getCheap().setRefillPerSecond(1);
+        config.getExpensive().setCapacity(1);
+        config.getExpensive().setRefillPerSecond(0.5);
+    }
+
+    @Test
+    void testAllowsBurstThenLimitsUntilRefilled() {
+        // Given
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", CHEAP));
+        }
+        long wait = limiter.tryAcquire("ip:10.0.0.1", CHEAP);
+
+        // Then
+        assertEquals(SECOND, wait);
+        nanoTime.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1", CHEAP));
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1", CHEAP) > 0);
+    }
+
+    @Test
+    void testBudgetsAreSeparatePerClientAndCostClass() {
+        // Given
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+
+        // When
+        assertEquals(0, limiter.tryAcquire("key:alpha", EXPENSIVE));
+
+        // Then
+        assertEquals(2 * SECOND, limiter.tryAcquire("key:alpha", EXPENSIVE));
+        assertEquals(0, limiter.tryAcquire("key:alpha", CHEAP));
+        assertEquals(0, limiter.tryAcquire("key:beta", EXPENSIVE));
+    }
+
+    @Test
+    void testClientsBeyondMaxGetOverflowBudgetsByAddress() {
+        // Given
+        config.setMaxClients(1);
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+        limiter.tryAcquire("ip:10.0.0.1", CHEAP);
+
+        // When
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.2", EXPENSIVE));
+
+        // Then
+        assertTrue(limiter.tryAcquire("ip:10.0.0.2", EXPENSIVE) > 0);
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.3", EXPENSIVE));
+        assertEquals(1, limiter.trackedClients());
+    }
+
+    @Test
+    void testIdentifiesClientsByConfiguredApiKeysOnly() {
+        // Given
+        config.setApiKeys(List.of("alpha", ""));
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+
+        // When
+        String known = limiter.clientOf("alpha", "10.0.0.1");
+        String unknown = limiter.clientOf("invented", "10.0.0.1");
+        String blank = limiter.clientOf("", "10.0.0.1");
+        String missing = limiter.clientOf(null, "10.0.0.1");
+
+        // Then
+        assertEquals("key:alpha", known);
+        assertEquals("ip:10.0.0.1", unknown);
+        assertEquals("ip:10.0.0.1", blank);
+        assertEquals("ip:10.0.0.1", missing);
+    }
+
+    @Test
+    void testInventedApiKeysShareTheAddressBudget() {
+        // Given
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+
+        // When
+        assertEquals(0, limiter.tryAcquire(limiter.clientOf("random-1", "10.0.0.1"), EXPENSIVE));
+
+        // Then
+        assertTrue(limiter.tryAcquire(limiter.clientOf("random-2", "10.0.0.1"), EXPENSIVE) > 0);
+        assertEquals(1, limiter.trackedClients());
+    }
+
+    @Test
+    void testEvictsClientsOnceTheirBucketsHaveRefilled() {
+        // Given
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+        limiter.tryAcquire("ip:10.0.0.1", CHEAP);
+        limiter.tryAcquire("ip:10.0.0.2", EXPENSIVE);
+
+        // When
+        nanoTime.addAndGet(SECOND);
+        limiter.evictIdleClients();
+
+        // Then
+        assertEquals(1, limiter.trackedClients());
+        assertNull(meterRegistry.find("product.ratelimit.requests").tag("client", "ip:10.0.0.1").counter());
+        assertNotNull(meterRegistry.find("product.ratelimit.requests").tag("client", "ip:10.0.0.2").counter());
+    }
+
+    @Test
+    void testReportsUsageWithHashedKeysAndBoundedClients() {
+        // Given
+        config.setMetricsClients(1);
+        RateLimiter limiter = new RateLimiter(config, meterRegistry, nanoTime::get);
+
+        // When
+        limiter.tryAcquire("key:secret", EXPENSIVE);
+        limiter.tryAcquire("key:secret", EXPENSIVE);
+        limiter.tryAcquire("ip:10.0.0.1", EXPENSIVE);
+
+        // Then
+        assertNull(meterRegistry.find("product.ratelimit.requests").tag("client", "key:secret").counter());
+        String tag = meterRegistry.find("product.ratelimit.requests").tagKeys("client").counters().stream()
+            .map(counter -> counter.getId().getTag("client"))
+            .filter(client -> client.startsWith("key:"))
+            .findFirst().orElseThrow();
+        assertEquals(16, tag.length());
+        assertEquals(1, meterRegistry.get("product.ratelimit.requests")
+            .tags("client", tag, "class", "expensive", "outcome", "limited").counter().count());
+        assertEquals(1, meterRegistry.get("product.ratelimit.requests")
+            .tags("client", RateLimiter.OTHER, "class", "expensive", "outcome", "allowed").counter().count());
+    }
+}
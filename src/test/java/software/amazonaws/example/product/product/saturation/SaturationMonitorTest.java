@@ -0,0 +1,125 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazonaws.example.product.product.saturation;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import software.amazonaws.example.product.product.config.ProductConfigurationProperties;
+import software.amazonaws.example.product.product.dao.ObservedProductDao;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SaturationMonitor.
+ * Tests the saturation signal derived from request and database call observations.
+ */
+class SaturationMonitorTest {
+
+    private final MockClock clock = new MockClock();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final SaturationMonitor monitor;
+
+    SaturationMonitorTest() {
+        ProductConfigurationProperties.Saturation config = new ProductConfigurationProperties.Saturation();
+        config.setTargetConcurrency(4);
+        config.setDaoTargetConcurrency(2);
+        config.setLatencySlo(Duration.ofMillis(100));
+        monitor = new SaturationMonitor(config, new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock));
+        observationRegistry.observationConfig().observationHandler(monitor);
+    }
+
+    @Test
+    void testTracksInFlightProductRequests() {
+        // Given
+        Observation first = request("/api/products/1").start();
+        Observation second = request("/api/products").start();
+        Observation actuator = request("/api/actuator/health").start();
+        Observation peer = request("/api/internal/peer-cache/products/1").start();
+
+        // Then
+        assertEquals(2, monitor.snapshot().inFlightRequests());
+        assertEquals(0.5, monitor.saturation());
+
+        // When
+        first.stop();
+        second.stop();
+        actuator.stop();
+        peer.stop();
+
+        // Then
+        assertEquals(0, monitor.snapshot().inFlightRequests());
+    }
+
+    @Test
+    void testTracksInFlightDaoCalls() {
+        // When
+        Observation call = Observation.createNotStarted(ObservedProductDao.OBSERVATION_NAME, observationRegistry).start();
+
+        // Then
+        assertEquals(1, monitor.snapshot().inFlightDaoCalls());
+        assertEquals(0.5, monitor.saturation());
+
+        // When
+        call.stop();
+
+        // Then
+        assertEquals(0, monitor.snapshot().inFlightDaoCalls());
+    }
+
+    @Test
+    void testLatencyAgainstSlo() {
+        // Given
+        for (int i = 1; i <= 100; i++) {
+            Observation observation = request("/api/products/" + i).start();
+            clock.add(Duration.ofMillis(i > 98 ? 300 : 10));
+            observation.stop();
+        }
+
+        // Then
+        assertEquals(300.0, monitor.snapshot().latencyP99Millis(), 3.0);
+        assertEquals(3.0, monitor.saturation(), 0.03);
+
+        // When the samples fall out of the window
+        clock.add(Duration.ofMinutes(2));
+
+        // Then
+        assertEquals(0.0, monitor.saturation());
+    }
+
+    @Test
+    void testLatencyCoversWholeWindow() {
+        // Given slow requests followed by many more fast ones, all within the window
+        for (int i = 0; i < 60; i++) {
+            Observation observation = request("/api/products/" + i).start();
+            clock.add(300, TimeUnit.MILLISECONDS);
+            observation.stop();
+        }
+        for (int i = 0; i < 5000; i++) {
+            Observation observation = request("/api/products/" + i).start();
+            clock.add(1, TimeUnit.MILLISECONDS);
+            observation.stop();
+        }
+
+        // Then
+        assertEquals(300.0, monitor.snapshot().latencyP99Millis(), 3.0);
+    }
+
+    private Observation request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setContextPath("/api");
+        ServerRequestObservationContext context = new ServerRequestObservationContext(
+            request, new MockHttpServletResponse());
+        return Observation.createNotStarted("http.server.requests", () -> context, observationRegistry);
+    }
+}